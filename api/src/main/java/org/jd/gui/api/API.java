@@ -48,6 +48,8 @@ public interface API {
 
     ContainerFactory getContainerFactory(Path rootPath);
 
+    ContainerFactory getContainerFactory(Container archiveContainer);
+
     PanelFactory getMainPanelFactory(Container container);
 
     TreeNodeFactory getTreeNodeFactory(Container.Entry entry);
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.api.feature;
+
+import org.jd.gui.api.API;
+
+import java.util.List;
+
+import javax.swing.tree.MutableTreeNode;
+
+/**
+ * Tree node whose children can be created in a background thread, while the tree displays a
+ * placeholder: the children are then inserted at once, on the event dispatch thread.
+ */
+public interface AsyncTreeNodeExpandable extends TreeNodeExpandable {
+
+    boolean isPopulated();
+
+    /**
+     * Create the children of the node, without modifying the node: may be called from any thread.
+     */
+    List<MutableTreeNode> createChildNodes(API api);
+
+    /**
+     * Replace the children of the node: must be called on the event dispatch thread.
+     */
+    void setChildNodes(List<MutableTreeNode> childNodes);
+
+    @Override
+    default void populateTreeNode(API api) {
+        if (!isPopulated()) {
+            setChildNodes(createChildNodes(api));
+        }
+    }
+}
@@ -18,4 +18,18 @@ public interface ContainerFactory {
     boolean accept(API api, Path rootPath);
 
     Container make(API api, Container.Entry parentEntry, Path rootPath);
+
+    /**
+     * Archive files are read from their central directory, without file system.
+     *
+     * @param archiveContainer container of the archive, of type 'generic'
+     * @return true if the factory makes the container of the archive from 'archiveContainer'
+     */
+    default boolean accept(API api, Container archiveContainer) { return false; }
+
+    /**
+     * @param archiveContainer container of the archive, of type 'generic'
+     * @return the container of the archive: 'archiveContainer', or a container reading the entries of 'archiveContainer'
+     */
+    default Container make(API api, Container archiveContainer) { return archiveContainer; }
 }
@@ -21,6 +21,8 @@ public final class Constants {
     public static final int MINIMAL_HEIGHT = 160;
 
     public static final String CONFIG_FILENAME = "jd-gui.cfg";
+    public static final String INDEXES_CACHE_DIRNAME = "jd-gui.indexes";
+    public static final String DECOMPILATION_CACHE_DIRNAME = "jd-gui.sources";
 
     public static final int MAX_RECENT_FILES = 10;
     public static final int RECENT_FILE_MAX_LENGTH = 200;
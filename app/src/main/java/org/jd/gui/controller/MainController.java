@@ -9,6 +9,7 @@ package org.jd.gui.controller;
 
 import org.apache.commons.io.FilenameUtils;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.Constants;
 import org.jd.gui.api.API;
 import org.jd.gui.api.feature.ContentCopyable;
 import org.jd.gui.api.feature.ContentIndexable;
@@ -26,8 +27,10 @@ import org.jd.gui.api.model.Indexes;
 import org.jd.gui.model.configuration.Configuration;
 import org.jd.gui.model.history.History;
 import org.jd.gui.service.actions.ContextualActionsFactoryService;
+import org.jd.gui.service.configuration.ConfigurationXmlPersisterProvider;
 import org.jd.gui.service.container.ContainerFactoryService;
 import org.jd.gui.service.fileloader.FileLoaderService;
+import org.jd.gui.service.indexer.IncrementalDirectoryIndexer;
 import org.jd.gui.service.indexer.IndexerService;
 import org.jd.gui.service.mainpanel.PanelFactoryService;
 import org.jd.gui.service.pastehandler.PasteHandlerService;
@@ -37,6 +40,7 @@ import org.jd.gui.service.sourceloader.MavenOrgSourceLoaderProvider;
 import org.jd.gui.service.sourceloader.SourceLoaderService;
 import org.jd.gui.service.sourcesaver.SourceSaverService;
 import org.jd.gui.service.treenode.TreeNodeFactoryService;
+import org.jd.gui.service.type.TypeCache;
 import org.jd.gui.service.type.TypeFactoryService;
 import org.jd.gui.service.uriloader.UriLoaderService;
 import org.jd.gui.spi.ContainerFactory;
@@ -51,8 +55,12 @@ import org.jd.gui.spi.UriLoader;
 import org.jd.gui.util.TempFile;
 import org.jd.gui.util.ZOutputStream;
 import org.jd.gui.util.container.JarContainerEntryUtil;
+import org.jd.gui.util.decompiler.DecompilationCache;
+import org.jd.gui.util.index.FutureIndexesList;
+import org.jd.gui.util.index.SymbolTable;
 import org.jd.gui.util.matcher.ArtifactVersionMatcher;
 import org.jd.gui.util.net.UriUtil;
+import org.jd.gui.util.parser.jdt.ASTParserFactory;
 import org.jd.gui.util.swing.AbstractSwingWorker;
 import org.jd.gui.util.swing.SwingUtil;
 import org.jd.gui.view.MainView;
@@ -84,6 +92,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
@@ -116,6 +125,8 @@ import tim.jarcomp.CompareWindow;
 public class MainController implements API {
     private static final String INDEXES = "indexes";
     private final Configuration configuration;
+    // Incremented on the EDT each time a container is opened, closed or indexed
+    private volatile long indexesGeneration;
     @SuppressWarnings("all")
     private MainView mainView;
 
@@ -137,6 +148,9 @@ public class MainController implements API {
     public MainController(Configuration configuration) {
         this.configuration = configuration;
 
+        DecompilationCache.getInstance().setDirectory(
+                new File(ConfigurationXmlPersisterProvider.getConfigFile().getAbsoluteFile().getParentFile(), Constants.DECOMPILATION_CACHE_DIRNAME));
+
         SwingUtil.invokeLater(() ->
 
         // Create main frame
@@ -205,7 +219,7 @@ public class MainController implements API {
                 openTypeHierarchyController = new OpenTypeHierarchyController(MainController.this, executor, mainFrame);
                 containerChangeListeners.add(openTypeHierarchyController);
                 goToController = new GoToController(configuration, mainFrame);
-                searchInConstantPoolsController = new SearchInConstantPoolsController(MainController.this, executor, mainFrame);
+                searchInConstantPoolsController = new SearchInConstantPoolsController(MainController.this, mainFrame);
                 containerChangeListeners.add(searchInConstantPoolsController);
                 preferencesController = new PreferencesController(configuration, mainFrame, PreferencesPanelService.getInstance().getProviders());
                 selectLocationController = new SelectLocationController(MainController.this, mainFrame);
@@ -255,6 +269,7 @@ public class MainController implements API {
             chooser.addChoosableFileFilter(new FileNameExtensionFilter(loader.getDescription(), loader.getExtensions()));
         }
 
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
         chooser.setCurrentDirectory(configuration.getRecentLoadDirectory());
 
         if (chooser.showOpenDialog(mainView.getMainFrame()) == JFileChooser.APPROVE_OPTION) {
@@ -493,13 +508,11 @@ public class MainController implements API {
     protected void checkIndexesChange(JComponent page) {
         if (page instanceof IndexesChangeListener) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
             IndexesChangeListener icl = (IndexesChangeListener) page;
-            Collection<Future<Indexes>> collectionOfFutureIndexes = getCollectionOfFutureIndexes();
-            Integer currentHashcode = collectionOfFutureIndexes.hashCode();
-            Integer lastHashcode = (Integer) page.getClientProperty("collectionOfFutureIndexes-hashCode");
+            Long lastGeneration = (Long) page.getClientProperty("collectionOfFutureIndexes-generation");
 
-            if (!currentHashcode.equals(lastHashcode)) {
-                icl.indexesChanged(collectionOfFutureIndexes);
-                page.putClientProperty("collectionOfFutureIndexes-hashCode", currentHashcode);
+            if (lastGeneration == null || lastGeneration != indexesGeneration) {
+                icl.indexesChanged(getCollectionOfFutureIndexes());
+                page.putClientProperty("collectionOfFutureIndexes-generation", indexesGeneration);
             }
         }
     }
@@ -778,15 +791,33 @@ public class MainController implements API {
 
         @Override
         protected Indexes doInBackground() throws Exception {
-            return ci.index(MainController.this, this::getProgressPercentage, this::setProgressPercentage, this::isCancelled);
+            return ci.index(MainController.this, getProgressTracker(), getProgressTracker(), this::isCancelled);
         }
 
         @Override
         protected void done() {
             super.done();
 
-            // Fire 'indexesChanged' event
+            if (!isCancelled()) {
+                try {
+                    // Register the indexes in the symbol table
+                    SymbolTable.getInstance().register(get());
+                } catch (InterruptedException e) {
+                    assert ExceptionUtil.printStackTrace(e);
+                    // Restore interrupted state...
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    assert ExceptionUtil.printStackTrace(e);
+                }
+            }
+
+            indexesGeneration++;
+
             Collection<Future<Indexes>> collectionOfFutureIndexes = getCollectionOfFutureIndexes();
+            // Unregister the replaced indexes of a re-indexed container
+            retainIndexes(collectionOfFutureIndexes);
+
+            // Fire 'indexesChanged' event
             for (IndexesChangeListener listener : containerChangeListeners) {
                 listener.indexesChanged(collectionOfFutureIndexes);
             }
@@ -809,7 +840,7 @@ public class MainController implements API {
 
         @Override
         protected Void doInBackground() throws Exception {
-            showGAVs(files, sha1Map, this::getProgressPercentage, this::setProgressPercentage, this::isCancelled);
+            showGAVs(files, sha1Map, getProgressTracker(), getProgressTracker(), this::isCancelled);
             return null;
         }
     }
@@ -896,8 +927,21 @@ public class MainController implements API {
 
     protected void panelClosed() {
         SwingUtil.invokeLater(() -> {
-            // Fire 'indexesChanged' event
+            // Evict the parser environments and the type models of the closed archives
+            List<JComponent> mainPanels = mainView.getMainPanels();
+            List<URI> openedURIs = new ArrayList<>(mainPanels.size());
+            for (JComponent panel : mainPanels) {
+                if (panel instanceof UriGettable) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                    openedURIs.add(((UriGettable) panel).getUri());
+                }
+            }
+            ASTParserFactory.retainEnvironments(openedURIs);
+            TypeCache.getInstance().retain(openedURIs);
+            // Unregister the indexes of the closed containers
             Collection<Future<Indexes>> collectionOfFutureIndexes = getCollectionOfFutureIndexes();
+            retainIndexes(collectionOfFutureIndexes);
+            indexesGeneration++;
+            // Fire 'indexesChanged' event
             for (IndexesChangeListener listener : containerChangeListeners) {
                 listener.indexesChanged(collectionOfFutureIndexes);
             }
@@ -908,6 +952,27 @@ public class MainController implements API {
         });
     }
 
+    /**
+     * Unregister the indexes of the closed containers and the replaced indexes from the symbol table.
+     */
+    protected void retainIndexes(Collection<Future<Indexes>> collectionOfFutureIndexes) {
+        List<Indexes> openedIndexes = new ArrayList<>(collectionOfFutureIndexes.size());
+        for (Future<Indexes> futureIndexes : collectionOfFutureIndexes) {
+            if (futureIndexes.isDone() && !futureIndexes.isCancelled()) {
+                try {
+                    openedIndexes.add(futureIndexes.get());
+                } catch (InterruptedException e) {
+                    assert ExceptionUtil.printStackTrace(e);
+                    // Restore interrupted state...
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    assert ExceptionUtil.printStackTrace(e);
+                }
+            }
+        }
+        SymbolTable.getInstance().retain(openedIndexes);
+    }
+
     // --- API --- //
     @Override
     public boolean openURI(URI uri) {
@@ -967,13 +1032,20 @@ public class MainController implements API {
             // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
             ContentIndexable ci = (ContentIndexable) component;
             UIManager.put("ProgressMonitor.progressText", title);
-            SwingWorker<Indexes, Void> worker = new IndexerWorker(component, ci);
-            worker.execute();
-
-            component.putClientProperty(INDEXES, worker);
+            index(component, ci);
+            // Re-index the watched directories
+            component.addPropertyChangeListener(IncrementalDirectoryIndexer.INDEXES_OUTDATED_PROPERTY, e -> index(component, ci));
         }
     }
 
+    protected void index(JComponent component, ContentIndexable ci) {
+        SwingWorker<Indexes, Void> worker = new IndexerWorker(component, ci);
+        worker.execute();
+
+        component.putClientProperty(INDEXES, worker);
+        indexesGeneration++;
+    }
+
     @Override
     public Collection<Action> getContextualActions(Container.Entry entry, String fragment) {
         return ContextualActionsFactoryService.getInstance().get(this, entry, fragment);
@@ -999,6 +1071,11 @@ public class MainController implements API {
         return ContainerFactoryService.getInstance().get(this, rootPath);
     }
 
+    @Override
+    public ContainerFactory getContainerFactory(Container archiveContainer) {
+        return ContainerFactoryService.getInstance().get(this, archiveContainer);
+    }
+
     @Override
     public TreeNodeFactory getTreeNodeFactory(Container.Entry entry) {
         return TreeNodeFactoryService.getInstance().get(entry);
@@ -1028,41 +1105,7 @@ public class MainController implements API {
     @SuppressWarnings("unchecked")
     public Collection<Future<Indexes>> getCollectionOfFutureIndexes() {
         List<JComponent> mainPanels = mainView.getMainPanels();
-        List<Future<Indexes>> list = new ArrayList<>(mainPanels.size()) {
-
-            private static final long serialVersionUID = 1L;
-
-            @Override
-            public int hashCode() {
-                int hashCode = 1;
-                try {
-                    for (Future<Indexes> futureIndexes : this) {
-                        hashCode *= 31;
-                        if (futureIndexes.isDone()) {
-                            hashCode += futureIndexes.get().hashCode();
-                        }
-                    }
-                } catch (InterruptedException e) {
-                    assert ExceptionUtil.printStackTrace(e);
-                    // Restore interrupted state...
-                    Thread.currentThread().interrupt();
-                } catch (Exception e) {
-                    assert ExceptionUtil.printStackTrace(e);
-                }
-                return hashCode;
-            }
-
-            @Override
-            public boolean equals(Object o) {
-                if (this == o) {
-                    return true;
-                }
-                if (o == null || o.getClass() != this.getClass()) {
-                    return false;
-                }
-                return super.equals(o);
-            }
-        };
+        List<Future<Indexes>> list = new FutureIndexesList(indexesGeneration, mainPanels.size());
         for (JComponent panel : mainPanels) {
             Future<Indexes> futureIndexes = (Future<Indexes>) panel.getClientProperty(INDEXES);
             if (futureIndexes != null) {
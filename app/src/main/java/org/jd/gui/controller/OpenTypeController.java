@@ -11,6 +11,7 @@ import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil
 import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Indexes;
+import org.jd.gui.util.index.FutureIndexesList;
 import org.jd.gui.util.net.UriUtil;
 import org.jd.gui.view.OpenTypeView;
 import org.jd.util.LRUCache;
@@ -41,7 +42,7 @@ public class OpenTypeController implements IndexesChangeListener {
     private final OpenTypeView openTypeView;
     private final SelectLocationController selectLocationController;
 
-    private long indexesHashCode;
+    private long indexesGeneration = -1;
     @SuppressWarnings("rawtypes")
     private final LRUCache<String, Map<String, Collection>> cache;
 
@@ -60,11 +61,11 @@ public class OpenTypeController implements IndexesChangeListener {
         this.collectionOfFutureIndexes = collectionOfFutureIndexes;
         this.openCallback = openCallback;
         // Refresh view
-        long hashCode = collectionOfFutureIndexes.hashCode();
-        if (hashCode != indexesHashCode) {
+        long generation = FutureIndexesList.getGeneration(collectionOfFutureIndexes);
+        if (generation != indexesGeneration) {
             // List of indexes has changed -> Refresh result list
             updateList(openTypeView.getPattern());
-            indexesHashCode = hashCode;
+            indexesGeneration = generation;
         }
         // Show
         openTypeView.show();
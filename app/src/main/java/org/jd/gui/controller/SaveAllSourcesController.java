@@ -87,7 +87,7 @@ public class SaveAllSourcesController {
 
         private void trySave(Path path) {
             try {
-                savable.save(api, path, this::getProgressPercentage, this::setProgressPercentage, this::isCancelled);
+                savable.save(api, path, getProgressTracker(), getProgressTracker(), this::isCancelled);
             } catch (Exception e) {
                 assert ExceptionUtil.printStackTrace(e);
             }
@@ -18,50 +18,72 @@ import org.jd.gui.model.container.entry.path.FileEntryPath;
 import org.jd.gui.service.type.TypeFactoryService;
 import org.jd.gui.spi.TypeFactory;
 import org.jd.gui.util.function.TriConsumer;
+import org.jd.gui.util.index.CompactIndexes;
+import org.jd.gui.util.index.FutureIndexesList;
+import org.jd.gui.util.index.IndexesUtil;
+import org.jd.gui.util.index.SearchIndex;
 import org.jd.gui.view.SearchInConstantPoolsView;
 import org.jd.util.LRUCache;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 
 import javax.swing.JFrame;
 
 public class SearchInConstantPoolsController implements IndexesChangeListener {
     protected static final int CACHE_MAX_ENTRIES = 5 * 20 * 9;
+    /** Previous results smaller than this are filtered instead of searching the index */
+    protected static final int MAXIMUM_REFINED_ENTRIES = 1024;
+    protected static final String REGEX_META_CHARACTERS = "\\[](){}+^$|";
 
     private final API api;
-    private final ScheduledExecutorService executor;
 
     @SuppressWarnings("rawtypes")
     private final SearchInConstantPoolsView searchInConstantPoolsView;
     @SuppressWarnings("rawtypes")
     private final Map<String, Map<String, Collection>> cache;
-    private final Set<DelegatingFilterContainer> delegatingFilterContainers = new HashSet<>();
+    @SuppressWarnings("rawtypes")
+    private final Map<Map<String, Collection>, SearchIndex> searchIndexes = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Set<DelegatingFilterContainer> delegatingFilterContainers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService searchExecutor = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final AtomicLong searchCounter = new AtomicLong();
+    private Collection<CompletableFuture<Void>> searchFutures = Collections.emptyList();
     private Collection<Future<Indexes>> collectionOfFutureIndexes;
     private Consumer<URI> openCallback;
-    private long indexesHashCode;
+    private long indexesGeneration = -1;
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
-    public SearchInConstantPoolsController(API api, ScheduledExecutorService executor, JFrame mainFrame) {
+    public SearchInConstantPoolsController(API api, JFrame mainFrame) {
         this.api = api;
-        this.executor = executor;
         // Create UI
         ObjIntConsumer<String> changedPatternCallback = this::updateTree;
         TriConsumer<URI, String, Integer> selectedTypeCallback = this::onTypeSelected;
         this.searchInConstantPoolsView = new SearchInConstantPoolsView(api, mainFrame, changedPatternCallback, selectedTypeCallback);
         // Create result cache
-        this.cache = new LRUCache<>(CACHE_MAX_ENTRIES);
+        this.cache = Collections.synchronizedMap(new LRUCache<>(CACHE_MAX_ENTRIES));
     }
 
     public void show(Collection<Future<Indexes>> collectionOfFutureIndexes, Consumer<URI> openCallback) {
@@ -69,11 +91,11 @@ public class SearchInConstantPoolsController implements IndexesChangeListener {
         this.collectionOfFutureIndexes = collectionOfFutureIndexes;
         this.openCallback = openCallback;
         // Refresh view
-        long hashCode = collectionOfFutureIndexes.hashCode();
-        if (hashCode != indexesHashCode) {
+        long generation = FutureIndexesList.getGeneration(collectionOfFutureIndexes);
+        if (generation != indexesGeneration) {
             // List of indexes has changed
             updateTree(searchInConstantPoolsView.getPattern(), searchInConstantPoolsView.getFlags());
-            indexesHashCode = hashCode;
+            indexesGeneration = generation;
         }
         // Show
         searchInConstantPoolsView.show();
@@ -81,67 +103,107 @@ public class SearchInConstantPoolsController implements IndexesChangeListener {
 
     @SuppressWarnings("unchecked")
     protected void updateTree(String pattern, int flags) {
+        // Supersede the running search
+        long searchId = searchCounter.incrementAndGet();
+        BooleanSupplier isCancelledFunction = () -> searchCounter.get() != searchId;
+
+        for (CompletableFuture<Void> future : searchFutures) {
+            future.cancel(false);
+        }
+
         delegatingFilterContainers.clear();
+        searchInConstantPoolsView.updateTree(Collections.emptyList(), 0);
 
-        executor.execute(() -> {
-            // Waiting the end of indexation...
-            searchInConstantPoolsView.showWaitCursor();
-
-            int matchingTypeCount = 0;
-            int patternLength = pattern.length();
-
-            if (patternLength > 0) {
-                try {
-                    for (Future<Indexes> futureIndexes : collectionOfFutureIndexes) {
-                        if (futureIndexes.isDone()) {
-                            Indexes indexes = futureIndexes.get();
-                            Set<Container.Entry> matchingEntries = new HashSet<>();
-                            // Find matched entries
-                            filter(indexes, pattern, flags, matchingEntries);
-
-                            if (!matchingEntries.isEmpty()) {
-                                // Search root container with first matching entry
-                                Container.Entry parentEntry = matchingEntries.iterator().next();
-                                Container container = null;
-
-                                while (parentEntry.getContainer().getRoot() != null) {
-                                    container = parentEntry.getContainer();
-                                    parentEntry = container.getRoot().getParent();
-                                }
+        if (pattern.isEmpty()) {
+            searchInConstantPoolsView.hideWaitCursor();
+            searchFutures = Collections.emptyList();
+            return;
+        }
 
-                                // TODO In a future release, display matching strings, types, inner-types,
-                                // fields and methods, not only matching files
-                                matchingEntries = getOuterEntries(matchingEntries);
+        searchInConstantPoolsView.showWaitCursor();
 
-                                matchingTypeCount += matchingEntries.size();
+        // Search containers in parallel, results are displayed as soon as a container has been searched
+        AtomicInteger matchingTypeCount = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
 
-                                // Create a filtered container
-                                delegatingFilterContainers.add(new DelegatingFilterContainer(container, matchingEntries));
-                            }
-                        }
-                    }
-                } catch (InterruptedException e) {
-                    assert ExceptionUtil.printStackTrace(e);
-                    // Restore interrupted state...
-                    Thread.currentThread().interrupt();
-                } catch (Exception e) {
-                    assert ExceptionUtil.printStackTrace(e);
-                }
+        for (Future<Indexes> futureIndexes : collectionOfFutureIndexes) {
+            // Waiting the end of indexation...
+            if (futureIndexes.isDone()) {
+                futures.add(CompletableFuture.runAsync(() -> search(futureIndexes, pattern, flags, matchingTypeCount, isCancelledFunction), searchExecutor));
             }
+        }
 
-            final int count = matchingTypeCount;
+        searchFutures = futures;
 
-            searchInConstantPoolsView.hideWaitCursor();
-            searchInConstantPoolsView.updateTree(delegatingFilterContainers, count);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).whenComplete((v, t) -> {
+            if (!isCancelledFunction.getAsBoolean()) {
+                searchInConstantPoolsView.hideWaitCursor();
+            }
         });
     }
 
-    protected Set<Container.Entry> getOuterEntries(Set<Container.Entry> matchingEntries) {
+    @SuppressWarnings("unchecked")
+    protected void search(Future<Indexes> futureIndexes, String pattern, int flags, AtomicInteger matchingTypeCount, BooleanSupplier isCancelledFunction) {
+        if (isCancelledFunction.getAsBoolean()) {
+            return;
+        }
+
+        try {
+            Indexes indexes = futureIndexes.get();
+            Set<Container.Entry> matchingEntries = new HashSet<>();
+            // Find matched entries
+            filter(indexes, pattern, flags, matchingEntries, isCancelledFunction);
+
+            if (!matchingEntries.isEmpty() && !isCancelledFunction.getAsBoolean()) {
+                // Search root container with first matching entry
+                Container.Entry parentEntry = matchingEntries.iterator().next();
+                Container container = null;
+
+                while (parentEntry.getContainer().getRoot() != null) {
+                    container = parentEntry.getContainer();
+                    parentEntry = container.getRoot().getParent();
+                }
+
+                // TODO In a future release, display matching strings, types, inner-types,
+                // fields and methods, not only matching files
+                matchingEntries = getOuterEntries(indexes, matchingEntries, isCancelledFunction);
+
+                if (!isCancelledFunction.getAsBoolean()) {
+                    // Create a filtered container
+                    DelegatingFilterContainer delegatingFilterContainer = new DelegatingFilterContainer(container, matchingEntries);
+
+                    delegatingFilterContainers.add(delegatingFilterContainer);
+                    searchInConstantPoolsView.addToTree(delegatingFilterContainer, matchingTypeCount.addAndGet(matchingEntries.size()), isCancelledFunction);
+                }
+            }
+        } catch (InterruptedException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            // Restore interrupted state...
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+    }
+
+    protected Set<Container.Entry> getOuterEntries(Indexes indexes, Set<Container.Entry> matchingEntries, BooleanSupplier isCancelledFunction) {
         Map<Container.Entry, Container.Entry> innerTypeEntryToOuterTypeEntry = new HashMap<>();
         Set<Container.Entry> matchingOuterEntriesSet = new HashSet<>();
 
         TypeFactory typeFactory;
+        Container.Entry indexedOuterTypeEntry;
         for (Container.Entry entry : matchingEntries) {
+            if (isCancelledFunction.getAsBoolean()) {
+                break;
+            }
+
+            // Search outer type entry in indexes first, without reading class files
+            indexedOuterTypeEntry = IndexesUtil.findOuterEntry(indexes, entry);
+
+            if (indexedOuterTypeEntry != null) {
+                matchingOuterEntriesSet.add(indexedOuterTypeEntry);
+                continue;
+            }
+
             typeFactory = TypeFactoryService.getInstance().get(entry);
 
             if (typeFactory != null) {
@@ -222,87 +284,91 @@ public class SearchInConstantPoolsController implements IndexesChangeListener {
         return matchingOuterEntriesSet;
     }
 
-    protected void filter(Indexes indexes, String pattern, int flags, Set<Container.Entry> matchingEntries) {
+    protected void filter(Indexes indexes, String pattern, int flags, Set<Container.Entry> matchingEntries, BooleanSupplier isCancelledFunction) {
         boolean declarations = (flags & SearchInConstantPoolsView.SEARCH_DECLARATION) != 0;
         boolean references = (flags & SearchInConstantPoolsView.SEARCH_REFERENCE) != 0;
 
         if ((flags & SearchInConstantPoolsView.SEARCH_TYPE) != 0) {
             if (declarations) {
                 match(indexes, "typeDeclarations", pattern, SearchInConstantPoolsController::matchTypeEntriesWithChar, SearchInConstantPoolsController::matchTypeEntriesWithString,
-                        matchingEntries);
+                        SearchInConstantPoolsController::getSimpleTypeName, matchingEntries, isCancelledFunction);
             }
             if (references) {
                 match(indexes, "typeReferences", pattern, SearchInConstantPoolsController::matchTypeEntriesWithChar, SearchInConstantPoolsController::matchTypeEntriesWithString,
-                        matchingEntries);
+                        SearchInConstantPoolsController::getSimpleTypeName, matchingEntries, isCancelledFunction);
             }
         }
 
         if ((flags & SearchInConstantPoolsView.SEARCH_CONSTRUCTOR) != 0) {
             if (declarations) {
                 match(indexes, "constructorDeclarations", pattern, SearchInConstantPoolsController::matchTypeEntriesWithChar,
-                        SearchInConstantPoolsController::matchTypeEntriesWithString, matchingEntries);
+                        SearchInConstantPoolsController::matchTypeEntriesWithString, SearchInConstantPoolsController::getSimpleTypeName, matchingEntries, isCancelledFunction);
             }
             if (references) {
                 match(indexes, "constructorReferences", pattern, SearchInConstantPoolsController::matchTypeEntriesWithChar,
-                        SearchInConstantPoolsController::matchTypeEntriesWithString, matchingEntries);
+                        SearchInConstantPoolsController::matchTypeEntriesWithString, SearchInConstantPoolsController::getSimpleTypeName, matchingEntries, isCancelledFunction);
             }
         }
 
         if ((flags & SearchInConstantPoolsView.SEARCH_METHOD) != 0) {
             if (declarations) {
-                match(indexes, "methodDeclarations", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, matchingEntries);
+                match(indexes, "methodDeclarations", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, UnaryOperator.identity(),
+                        matchingEntries, isCancelledFunction);
             }
             if (references) {
-                match(indexes, "methodReferences", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, matchingEntries);
+                match(indexes, "methodReferences", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, UnaryOperator.identity(),
+                        matchingEntries, isCancelledFunction);
             }
         }
 
         if ((flags & SearchInConstantPoolsView.SEARCH_FIELD) != 0) {
             if (declarations) {
-                match(indexes, "fieldDeclarations", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, matchingEntries);
+                match(indexes, "fieldDeclarations", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, UnaryOperator.identity(),
+                        matchingEntries, isCancelledFunction);
             }
             if (references) {
-                match(indexes, "fieldReferences", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, matchingEntries);
+                match(indexes, "fieldReferences", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, UnaryOperator.identity(),
+                        matchingEntries, isCancelledFunction);
             }
         }
 
         if ((flags & SearchInConstantPoolsView.SEARCH_STRING) != 0 && (declarations || references)) {
-            match(indexes, "strings", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, matchingEntries);
+            match(indexes, "strings", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, UnaryOperator.identity(),
+                        matchingEntries, isCancelledFunction);
         }
 
         if ((flags & SearchInConstantPoolsView.SEARCH_MODULE) != 0) {
             if (declarations) {
-                match(indexes, "javaModuleDeclarations", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString,
-                        matchingEntries);
+                match(indexes, "javaModuleDeclarations", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, UnaryOperator.identity(),
+                        matchingEntries, isCancelledFunction);
             }
             if (references) {
-                match(indexes, "javaModuleReferences", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, matchingEntries);
+                match(indexes, "javaModuleReferences", pattern, SearchInConstantPoolsController::matchWithChar, SearchInConstantPoolsController::matchWithString, UnaryOperator.identity(),
+                        matchingEntries, isCancelledFunction);
             }
         }
     }
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
     protected void match(Indexes indexes, String indexName, String pattern, BiFunction<Character, Map<String, Collection>, Map<String, Collection>> matchWithCharFunction,
-            BiFunction<String, Map<String, Collection>, Map<String, Collection>> matchWithStringFunction, Set<Container.Entry> matchingEntries) {
+            BiFunction<String, Map<String, Collection>, Map<String, Collection>> matchWithStringFunction, UnaryOperator<String> termFunction,
+            Set<Container.Entry> matchingEntries, BooleanSupplier isCancelledFunction) {
         int patternLength = pattern.length();
 
-        if (patternLength > 0) {
+        if (patternLength > 0 && !isCancelledFunction.getAsBoolean()) {
             String key = indexes.hashCode() + "***" + indexName + "***" + pattern;
             String lastKey = key.substring(0, key.length() - 1);
             Map<String, Collection> lastMatchedTypes = cache.get(lastKey);
-            Map<String, Collection> matchedEntries = cache.computeIfAbsent(key, k -> {
-                Map<String, Collection> index = indexes.getIndex(indexName);
-                if (index != null) {
-                    if (patternLength == 1) {
-                        return matchWithCharFunction.apply(pattern.charAt(0), index);
-                    }
-                    if (lastMatchedTypes != null) {
-                        return matchWithStringFunction.apply(pattern, lastMatchedTypes);
-                    }
-                    return matchWithStringFunction.apply(pattern, index);
+            Map<String, Collection> matchedEntries = cache.get(key);
+
+            if (matchedEntries == null) {
+                // Not computed under the lock of the cache : containers are searched in parallel
+                matchedEntries = match(indexes.getIndex(indexName), pattern, lastMatchedTypes, matchWithCharFunction, matchWithStringFunction, termFunction);
+
+                if (matchedEntries != null) {
+                    cache.put(key, matchedEntries);
                 }
-                return null;
-            });
+            }
 
             if (matchedEntries != null) {
                 for (Collection<Container.Entry> entries : matchedEntries.values()) {
@@ -312,6 +378,102 @@ public class SearchInConstantPoolsController implements IndexesChangeListener {
         }
     }
 
+    @SuppressWarnings("rawtypes")
+    protected Map<String, Collection> match(Map<String, Collection> index, String pattern, Map<String, Collection> lastMatchedTypes,
+            BiFunction<Character, Map<String, Collection>, Map<String, Collection>> matchWithCharFunction,
+            BiFunction<String, Map<String, Collection>, Map<String, Collection>> matchWithStringFunction, UnaryOperator<String> termFunction) {
+        if (index == null) {
+            return null;
+        }
+        int patternLength = pattern.length();
+        if (patternLength > 1 && lastMatchedTypes != null && lastMatchedTypes.size() <= MAXIMUM_REFINED_ENTRIES) {
+            return matchWithStringFunction.apply(pattern, lastMatchedTypes);
+        }
+        Map<String, Collection> map = matchWithSearchIndex(pattern, index, termFunction);
+        if (map != null) {
+            return map;
+        }
+        if (patternLength == 1) {
+            return matchWithCharFunction.apply(pattern.charAt(0), index);
+        }
+        if (lastMatchedTypes != null) {
+            return matchWithStringFunction.apply(pattern, lastMatchedTypes);
+        }
+        return matchWithStringFunction.apply(pattern, index);
+    }
+
+    /**
+     * Search keys with the trigram and prefix index of the index.
+     *
+     * @return the matching keys and their entries, or null if the index can not be used
+     */
+    @SuppressWarnings("rawtypes")
+    protected Map<String, Collection> matchWithSearchIndex(String pattern, Map<String, Collection> index, UnaryOperator<String> termFunction) {
+        for (int i = 0, length = pattern.length(); i < length; i++) {
+            if (REGEX_META_CHARACTERS.indexOf(pattern.charAt(i)) != -1) {
+                // Pattern is a regular expression, literal parts can not be extracted
+                return null;
+            }
+        }
+
+        SearchIndex searchIndex = getSearchIndex(index, termFunction);
+
+        if (searchIndex == null) {
+            return null;
+        }
+
+        Predicate<String> predicate;
+
+        if (pattern.length() == 1) {
+            // Terms starting with the character
+            predicate = term -> true;
+        } else {
+            Pattern p = createPattern(pattern);
+            predicate = term -> p.matcher(term).matches();
+        }
+
+        List<String> keys = searchIndex.search(pattern, predicate);
+
+        if (keys == null) {
+            return null;
+        }
+
+        Map<String, Collection> map = new HashMap<>(keys.size() * 4 / 3 + 1);
+
+        for (String key : keys) {
+            map.put(key, index.get(key));
+        }
+
+        return map;
+    }
+
+    /**
+     * Search indexes are built on first use, for compact indexes only : the others are mutable, or
+     * not compared by identity.
+     */
+    @SuppressWarnings("rawtypes")
+    protected SearchIndex getSearchIndex(Map<String, Collection> index, UnaryOperator<String> termFunction) {
+        if (!(index instanceof CompactIndexes.CompactIndex)) {
+            return null;
+        }
+        SearchIndex searchIndex = searchIndexes.get(index);
+
+        if (searchIndex == null) {
+            searchIndex = SearchIndex.build(index.keySet(), termFunction);
+            searchIndexes.put(index, searchIndex);
+        }
+
+        return searchIndex;
+    }
+
+    protected static String getSimpleTypeName(String typeName) {
+        // Search last package separator
+        int lastPackageSeparatorIndex = typeName.lastIndexOf('/') + 1;
+        int lastTypeNameSeparatorIndex = typeName.lastIndexOf('$') + 1;
+        int lastIndex = Math.max(lastPackageSeparatorIndex, lastTypeNameSeparatorIndex);
+        return typeName.substring(lastIndex);
+    }
+
     @SuppressWarnings("rawtypes")
     protected static Map<String, Collection> matchTypeEntriesWithChar(char c, Map<String, Collection> index) {
         if (c == '*' || c == '?') {
@@ -137,7 +137,7 @@ public class SelectLocationController {
             Map<String, String> preferences = api.getPreferences();
             preferences.put(Preferences.WRITE_LINE_NUMBERS, "false");
             preferences.put(Preferences.REALIGN_LINE_NUMBERS, "true"); // useful if we compare class with source
-            ContainerLoader containerLoader = new ContainerLoader(entry);
+            ContainerLoader containerLoader = new ContainerLoader(api, entry);
             String decompileEngine = preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1);
             Loader apiLoader = LoaderUtils.createLoader(preferences, containerLoader, entry);
             String entryInternalName = ClassUtil.getInternalName(entry.getPath());
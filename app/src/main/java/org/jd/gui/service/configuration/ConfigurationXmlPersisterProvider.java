@@ -44,7 +44,7 @@ public class ConfigurationXmlPersisterProvider implements ConfigurationPersister
     private static final String NEW_LINE_3_TABS = "\n\t\t\t";
     protected static final File FILE = getConfigFile();
 
-    protected static File getConfigFile() {
+    public static File getConfigFile() {
         String configFilePath = System.getProperty(Constants.CONFIG_FILENAME);
 
         if (configFilePath != null) {
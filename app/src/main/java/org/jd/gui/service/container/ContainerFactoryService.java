@@ -8,6 +8,7 @@
 package org.jd.gui.service.container;
 
 import org.jd.gui.api.API;
+import org.jd.gui.api.model.Container;
 import org.jd.gui.service.extension.ExtensionService;
 import org.jd.gui.spi.ContainerFactory;
 
@@ -30,4 +31,14 @@ public class ContainerFactoryService {
 
         return null;
     }
+
+    public ContainerFactory get(API api, Container archiveContainer) {
+        for (ContainerFactory containerFactory : providers) {
+            if (containerFactory.accept(api, archiveContainer)) {
+                return containerFactory;
+            }
+        }
+
+        return null;
+    }
 }
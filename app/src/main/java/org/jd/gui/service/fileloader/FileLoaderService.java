@@ -24,8 +24,14 @@ public class FileLoaderService {
 
     private final Map<String, FileLoader> mapProviders = new HashMap<>();
 
+    // Provider without extension, loading directories
+    private FileLoader directoryProvider;
+
     protected FileLoaderService() {
         for (FileLoader provider : providers) {
+            if (provider.getExtensions().length == 0) {
+                directoryProvider = provider;
+            }
             for (String extension : provider.getExtensions()) {
                 mapProviders.put(extension, provider);
             }
@@ -33,6 +39,9 @@ public class FileLoaderService {
     }
 
     public FileLoader get(File file) {
+        if (file.isDirectory()) {
+            return directoryProvider;
+        }
         String name = file.getName();
         int lastDot = name.lastIndexOf('.');
         String extension = name.substring(lastDot+1);
@@ -7,19 +7,26 @@
 package org.jd.gui.service.mainpanel;
 
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.Constants;
 import org.jd.gui.api.API;
 import org.jd.gui.api.feature.ContentIndexable;
 import org.jd.gui.api.feature.SourcesSavable;
 import org.jd.gui.api.feature.UriGettable;
 import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Indexes;
+import org.jd.gui.service.configuration.ConfigurationXmlPersisterProvider;
+import org.jd.gui.service.indexer.IncrementalDirectoryIndexer;
 import org.jd.gui.spi.Indexer;
 import org.jd.gui.spi.PanelFactory;
 import org.jd.gui.spi.SourceSaver;
 import org.jd.gui.spi.TreeNodeFactory;
+import org.jd.gui.util.decompiler.ClassBytesCache;
+import org.jd.gui.util.index.CompactIndexes;
+import org.jd.gui.util.index.IndexesCache;
 import org.jd.gui.view.component.panel.TreeTabbedPanel;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -28,6 +35,7 @@ import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -41,11 +49,16 @@ import java.util.function.DoubleSupplier;
 
 import javax.swing.JComponent;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXES_CACHE;
+
 public class ContainerPanelFactoryProvider implements PanelFactory {
     protected static final String[] TYPES = { "default" };
+    protected static final IndexesCache INDEXES_CACHE_STORE = new IndexesCache(
+            new File(ConfigurationXmlPersisterProvider.getConfigFile().getAbsoluteFile().getParentFile(), Constants.INDEXES_CACHE_DIRNAME));
 
     @Override
     public String[] getTypes() { return TYPES; }
@@ -61,6 +74,7 @@ public class ContainerPanelFactoryProvider implements PanelFactory {
         private static final long serialVersionUID = 1L;
         private transient Container.Entry entry;
         private transient Container container;
+        private transient IncrementalDirectoryIndexer incrementalIndexer;
 
         public ContainerPanel(API api, Container container) {
             super(api, container.getRoot().getParent().getUri());
@@ -84,6 +98,33 @@ public class ContainerPanelFactoryProvider implements PanelFactory {
         /** --- ContentIndexable --- */
         @Override
         public Indexes index(API api, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+            if (IncrementalDirectoryIndexer.accept(api, entry)) {
+                synchronized (this) {
+                    if (incrementalIndexer == null) {
+                        incrementalIndexer = new IncrementalDirectoryIndexer(api, container, Paths.get(entry.getUri()));
+                    }
+                }
+                // Re-index the changed files when notified
+                return incrementalIndexer.index(getProgressFunction, setProgressFunction, isCancelledFunction,
+                        () -> SwingUtilities.invokeLater(() -> firePropertyChange(IncrementalDirectoryIndexer.INDEXES_OUTDATED_PROPERTY, false, true)));
+            }
+
+            File cacheFile = null;
+
+            if (!"false".equals(api.getPreferences().get(INDEXES_CACHE))) {
+                cacheFile = INDEXES_CACHE_STORE.getCacheFile(entry);
+
+                if (cacheFile != null) {
+                    // Reuse indexes of the same archive content
+                    Indexes cachedIndexes = INDEXES_CACHE_STORE.load(cacheFile, entry);
+
+                    if (cachedIndexes != null) {
+                        setProgressFunction.accept(100);
+                        return cachedIndexes;
+                    }
+                }
+            }
+
             Map<String, Map<String, Collection>> map = new HashMap<>();
             DelegatedMapMapWithDefault mapWithDefault = new DelegatedMapMapWithDefault(map);
 
@@ -97,8 +138,12 @@ public class ContainerPanelFactoryProvider implements PanelFactory {
                 indexer.index(api, entry, indexesWithDefault, getProgressFunction, setProgressFunction, isCancelledFunction);
             }
 
-            // To prevent memory leaks, return an index without the 'populate' behaviour
-            return map::get;
+            if (cacheFile != null && !isCancelledFunction.getAsBoolean()) {
+                INDEXES_CACHE_STORE.save(cacheFile, map, container);
+            }
+
+            // To prevent memory leaks, return a read-only compact index without the 'populate' behaviour
+            return CompactIndexes.compact(map);
         }
 
         /** --- SourcesSavable --- */
@@ -147,6 +192,12 @@ public class ContainerPanelFactoryProvider implements PanelFactory {
 
         @Override
         public void close() throws IOException {
+            synchronized (this) {
+                if (incrementalIndexer != null) {
+                    incrementalIndexer.close();
+                }
+            }
+            ClassBytesCache.getInstance().remove(container);
             if (container instanceof Closeable) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
                 Closeable c = (Closeable) container;
                 c.close();
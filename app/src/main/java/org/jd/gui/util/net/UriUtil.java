@@ -14,6 +14,7 @@ import org.jd.gui.api.model.Indexes;
 import org.jd.gui.api.model.Type;
 import org.jd.gui.service.type.TypeFactoryService;
 import org.jd.gui.spi.TypeFactory;
+import org.jd.gui.util.index.IndexesUtil;
 
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -34,13 +35,20 @@ public final class UriUtil {
 
         try {
             String path = uri.getPath();
-            TypeFactory typeFactory = TypeFactoryService.getInstance().get(entry);
+            Container.Entry outerEntry = IndexesUtil.findOuterEntry(collectionOfFutureIndexes, entry);
 
-            if (typeFactory != null) {
-                Type type = typeFactory.make(api, entry, fragment);
+            if (outerEntry != null) {
+                // Outer entry found in indexes
+                path = outerEntry.getUri().getPath();
+            } else {
+                TypeFactory typeFactory = TypeFactoryService.getInstance().get(entry);
 
-                if (type != null) {
-                    path = getOuterPath(collectionOfFutureIndexes, entry, type);
+                if (typeFactory != null) {
+                    Type type = typeFactory.make(api, entry, fragment);
+
+                    if (type != null) {
+                        path = getOuterPath(collectionOfFutureIndexes, entry, type);
+                    }
                 }
             }
 
@@ -55,27 +63,10 @@ public final class UriUtil {
         String outerName = type.getOuterName();
 
         if (outerName != null) {
-            try {
-                for (Future<Indexes> futureIndexes : collectionOfFutureIndexes) {
-                    if (futureIndexes.isDone()) {
-                        @SuppressWarnings("unchecked")
-                        Collection<Container.Entry> outerEntries = futureIndexes.get().getIndex("typeDeclarations").get(outerName);
-
-                        if (outerEntries != null) {
-                            for (Container.Entry outerEntry : outerEntries) {
-                                if (outerEntry.getContainer() == entry.getContainer()) {
-                                    return outerEntry.getUri().getPath();
-                                }
-                            }
-                        }
-                    }
+            for (Container.Entry outerEntry : IndexesUtil.findInternalTypeName(collectionOfFutureIndexes, outerName)) {
+                if (outerEntry.getContainer() == entry.getContainer()) {
+                    return outerEntry.getUri().getPath();
                 }
-            } catch (InterruptedException e) {
-                assert ExceptionUtil.printStackTrace(e);
-                // Restore interrupted state...
-                Thread.currentThread().interrupt();
-            } catch (Exception e) {
-                assert ExceptionUtil.printStackTrace(e);
             }
         }
 
@@ -16,6 +16,8 @@
  ******************************************************************************/
 package org.jd.gui.util.swing;
 
+import org.jd.gui.util.ProgressTracker;
+
 import java.awt.Component;
 import java.beans.PropertyChangeEvent;
 
@@ -25,7 +27,8 @@ import javax.swing.SwingWorker;
 public abstract class AbstractSwingWorker<T, V> extends SwingWorker<T, V> {
 
     private final ProgressMonitor progressMonitor;
-    private double progressPercentage;
+    // Progress added by the background threads, published at a throttled rate
+    private final ProgressTracker progressTracker = new ProgressTracker(this::publishProgress);
 
     protected AbstractSwingWorker(Component component, String message) {
         progressMonitor = new ProgressMonitor(component, message, getProgressMessage(0), 0, 100);
@@ -54,11 +57,21 @@ public abstract class AbstractSwingWorker<T, V> extends SwingWorker<T, V> {
     }
 
     public double getProgressPercentage() {
-        return progressPercentage;
+        return progressTracker.getAsDouble();
     }
 
     public void setProgressPercentage(double progressPercentage) {
-        super.setProgress((int) Math.round(progressPercentage));
-        this.progressPercentage = progressPercentage;
+        progressTracker.accept(progressPercentage);
+    }
+
+    /**
+     * @return the progress getter and setter to give to indexers and source savers
+     */
+    public ProgressTracker getProgressTracker() {
+        return progressTracker;
+    }
+
+    private void publishProgress(double progressPercentage) {
+        super.setProgress((int) Math.round(Math.max(0, progressPercentage)));
     }
 }
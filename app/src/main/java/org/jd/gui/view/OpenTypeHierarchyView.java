@@ -7,7 +7,6 @@
 
 package org.jd.gui.view;
 
-import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
 import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Indexes;
@@ -15,6 +14,7 @@ import org.jd.gui.api.model.TreeNodeData;
 import org.jd.gui.api.model.Type;
 import org.jd.gui.util.ImageUtil;
 import org.jd.gui.util.function.TriConsumer;
+import org.jd.gui.util.index.IndexesUtil;
 import org.jd.gui.util.swing.SwingUtil;
 import org.jd.gui.view.component.Tree;
 import org.jd.gui.view.renderer.TreeNodeRenderer;
@@ -33,7 +33,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.Future;
 
 import javax.swing.AbstractAction;
@@ -402,67 +402,15 @@ public class OpenTypeHierarchyView {
         }
     }
 
-    @SuppressWarnings({ "rawtypes" })
     protected List<String> getSubTypeNames(String typeName) {
-        List<String> result = new ArrayList<>();
-
-        try {
-            for (Future<Indexes> futureIndexes : collectionOfFutureIndexes) {
-                if (futureIndexes.isDone()) {
-                    Map<String, Collection> subTypeNames = futureIndexes.get().getIndex("subTypeNames");
-                    if (subTypeNames != null) {
-                        @SuppressWarnings("unchecked")
-                        Collection<String> collection = subTypeNames.get(typeName);
-                        if (collection != null) {
-                            for (String tn : collection) {
-                                if (tn != null) {
-                                    result.add(tn);
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        } catch (InterruptedException e) {
-            assert ExceptionUtil.printStackTrace(e);
-            // Restore interrupted state...
-            Thread.currentThread().interrupt();
-        } catch (Exception e) {
-            assert ExceptionUtil.printStackTrace(e);
-        }
-
+        List<String> result = IndexesUtil.find(collectionOfFutureIndexes, "subTypeNames", typeName);
+        result.removeIf(Objects::isNull);
         return result;
     }
 
-    @SuppressWarnings({ "rawtypes" })
     protected List<Container.Entry> getEntries(String typeName) {
-        List<Container.Entry> result = new ArrayList<>();
-
-        try {
-            for (Future<Indexes> futureIndexes : collectionOfFutureIndexes) {
-                if (futureIndexes.isDone()) {
-                    Map<String, Collection> typeDeclarations = futureIndexes.get().getIndex("typeDeclarations");
-                    if (typeDeclarations != null) {
-                        @SuppressWarnings("unchecked")
-                        Collection<Container.Entry> collection = typeDeclarations.get(typeName);
-                        if (collection != null) {
-                            for (Container.Entry e : collection) {
-                                if (e != null) {
-                                    result.add(e);
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        } catch (InterruptedException e) {
-            assert ExceptionUtil.printStackTrace(e);
-            // Restore interrupted state...
-            Thread.currentThread().interrupt();
-        } catch (Exception e) {
-            assert ExceptionUtil.printStackTrace(e);
-        }
-
+        List<Container.Entry> result = IndexesUtil.findInternalTypeName(collectionOfFutureIndexes, typeName);
+        result.removeIf(Objects::isNull);
         return result;
     }
 
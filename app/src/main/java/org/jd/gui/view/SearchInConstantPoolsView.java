@@ -37,6 +37,7 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
 import java.util.function.ObjIntConsumer;
 
 import javax.swing.AbstractAction;
@@ -77,6 +78,8 @@ public class SearchInConstantPoolsView<T extends DefaultMutableTreeNode & Contai
     private final API api;
     private final Set<URI> accepted = new HashSet<>();
     private final Set<URI> expanded = new HashSet<>();
+    /** Root URIs of the containers displayed in the tree, in the order of the nodes */
+    private final List<URI> rootUris = new ArrayList<>();
 
     private JDialog searchInConstantPoolsDialog;
     private JTextField searchInConstantPoolsEnterTextField;
@@ -445,6 +448,7 @@ public class SearchInConstantPoolsView<T extends DefaultMutableTreeNode & Contai
 
             accepted.clear();
             expanded.clear();
+            rootUris.clear();
 
             if (containers != null) {
                 List<DelegatingFilterContainer> list = new ArrayList<>(containers);
@@ -462,34 +466,86 @@ public class SearchInConstantPoolsView<T extends DefaultMutableTreeNode & Contai
 
                     if (treeNodeFactory != null) {
                         root.add(treeNodeFactory.make(api, parentEntry));
+                        rootUris.add(container.getRootUri());
                     }
                 }
 
-                // Expand node and find the first leaf
-                T node = root;
-                do {
-                    populate(model, node);
-                    if (node.getChildCount() == 0) {
-                        break;
-                    }
-                    node = (T)node.getChildAt(0);
-                } while (true);
-                searchInConstantPoolsTree.setSelectionPath(new TreePath(node.getPath()));
+                selectFirstLeaf(model, root);
             } else {
                 model.reload();
             }
-            // Update matching item counter
-            switch (matchingTypeCount) {
-                case 0:
-                    searchInConstantPoolsLabel.setText("Matching entries:");
-                    break;
-                case 1:
-                    searchInConstantPoolsLabel.setText("1 matching entry:");
-                    break;
-                default:
-                    searchInConstantPoolsLabel.setText(matchingTypeCount + " matching entries:");
+
+            updateMatchingTypeCount(matchingTypeCount);
+        });
+    }
+
+    /**
+     * Add the results of a container to the tree, without resetting the nodes already displayed.
+     *
+     * @param isCancelledFunction tested on the event dispatch thread, to ignore the results of a superseded search
+     */
+    @SuppressWarnings("unchecked")
+    public void addToTree(DelegatingFilterContainer container, int matchingTypeCount, BooleanSupplier isCancelledFunction) {
+        SwingUtil.invokeLater(() -> {
+            if (isCancelledFunction.getAsBoolean()) {
+                return;
+            }
+
+            DefaultTreeModel model = (DefaultTreeModel)searchInConstantPoolsTree.getModel();
+            T root = (T)model.getRoot();
+            Container.Entry parentEntry = container.getRoot().getParent();
+            TreeNodeFactory treeNodeFactory = api.getTreeNodeFactory(parentEntry);
+
+            // Init uri set
+            accepted.addAll(container.getUris());
+
+            if (treeNodeFactory != null) {
+                // Keep nodes sorted by container
+                URI rootUri = container.getRootUri();
+                int index = 0;
+
+                while (index < rootUris.size() && rootUris.get(index).compareTo(rootUri) < 0) {
+                    index++;
+                }
+
+                rootUris.add(index, rootUri);
+                model.insertNodeInto(treeNodeFactory.make(api, parentEntry), root, index);
+
+                if (root.getChildCount() == 1) {
+                    selectFirstLeaf(model, root);
+                }
             }
+
+            updateMatchingTypeCount(matchingTypeCount);
         });
     }
 
+    @SuppressWarnings("unchecked")
+    protected void selectFirstLeaf(DefaultTreeModel model, T root) {
+        // Expand node and find the first leaf
+        T node = root;
+        do {
+            populate(model, node);
+            if (node.getChildCount() == 0) {
+                break;
+            }
+            node = (T)node.getChildAt(0);
+        } while (true);
+        searchInConstantPoolsTree.setSelectionPath(new TreePath(node.getPath()));
+    }
+
+    protected void updateMatchingTypeCount(int matchingTypeCount) {
+        // Update matching item counter
+        switch (matchingTypeCount) {
+            case 0:
+                searchInConstantPoolsLabel.setText("Matching entries:");
+                break;
+            case 1:
+                searchInConstantPoolsLabel.setText("1 matching entry:");
+                break;
+            default:
+                searchInConstantPoolsLabel.setText(matchingTypeCount + " matching entries:");
+        }
+    }
+
 }
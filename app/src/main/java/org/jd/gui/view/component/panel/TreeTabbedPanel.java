@@ -9,6 +9,7 @@ package org.jd.gui.view.component.panel;
 
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
 import org.jd.gui.api.API;
+import org.jd.gui.api.feature.AsyncTreeNodeExpandable;
 import org.jd.gui.api.feature.ContainerEntryGettable;
 import org.jd.gui.api.feature.PageChangeListener;
 import org.jd.gui.api.feature.PageChangeable;
@@ -19,6 +20,7 @@ import org.jd.gui.api.feature.TreeNodeExpandable;
 import org.jd.gui.api.feature.UriGettable;
 import org.jd.gui.api.feature.UriOpenable;
 import org.jd.gui.api.model.TreeNodeData;
+import org.jd.gui.util.decompiler.DecompilationPrefetcher;
 import org.jd.gui.view.component.Tree;
 import org.jd.gui.view.renderer.TreeNodeRenderer;
 
@@ -31,9 +33,16 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.Action;
 import javax.swing.JComponent;
@@ -47,12 +56,15 @@ import javax.swing.event.TreeExpansionEvent;
 import javax.swing.event.TreeExpansionListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.MutableTreeNode;
 import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 
 public class TreeTabbedPanel<T extends DefaultMutableTreeNode & ContainerEntryGettable & UriGettable> extends JPanel implements UriGettable, UriOpenable, PageChangeable, PageClosable, PreferencesChangeListener {
 
     private static final long serialVersionUID = 1L;
+    private static final String LOADING_LABEL = "Loading\u2026";
+    private static final ExecutorService TREE_NODE_EXECUTOR = newTreeNodeExecutor();
     protected final transient API api;
     private final URI uri;
     protected final Tree tree;
@@ -63,6 +75,8 @@ public class TreeTabbedPanel<T extends DefaultMutableTreeNode & ContainerEntryGe
     private boolean updateTreeMenuEnabled = true;
     private boolean openUriEnabled = true;
     private boolean treeNodeChangedEnabled = true;
+    // Nodes whose children are being created in background, accessed on the event dispatch thread
+    private final transient Set<TreeNode> loadingNodes = Collections.newSetFromMap(new IdentityHashMap<>());
 
     @SuppressWarnings("unchecked")
     public TreeTabbedPanel(API api, URI uri) {
@@ -80,12 +94,20 @@ public class TreeTabbedPanel<T extends DefaultMutableTreeNode & ContainerEntryGe
                 return super.getTreeCellRendererComponent(tree, value, selected, expanded, leaf, row, true);
             }
         });
-        tree.addTreeSelectionListener(e -> treeNodeChanged((T)tree.getLastSelectedPathComponent()));
+        tree.addTreeSelectionListener(e -> {
+            Object node = tree.getLastSelectedPathComponent();
+            // Ignore the placeholder of the nodes being populated
+            if (node instanceof UriGettable) {
+                treeNodeChanged((T)node);
+            }
+        });
         tree.addTreeExpansionListener(new TreeExpansionListener() {
             @Override
             public void treeExpanded(TreeExpansionEvent e) {
                 TreeNode node = (TreeNode)e.getPath().getLastPathComponent();
-                if (node instanceof TreeNodeExpandable) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                if (node instanceof AsyncTreeNodeExpandable) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                    populateTreeNodeInBackground((DefaultMutableTreeNode) node);
+                } else if (node instanceof TreeNodeExpandable) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
                     TreeNodeExpandable tne = (TreeNodeExpandable) node;
                     int oldHashCode = createHashCode(node.children());
                     tne.populateTreeNode(api);
@@ -104,7 +126,7 @@ public class TreeTabbedPanel<T extends DefaultMutableTreeNode & ContainerEntryGe
                 if (SwingUtilities.isRightMouseButton(e)) {
                     TreePath path = tree.getPathForLocation(e.getX(), e.getY());
 
-                    if (path != null) {
+                    if (path != null && path.getLastPathComponent() instanceof UriGettable) {
                         tree.setSelectionPath(path);
 
                         T node = (T)path.getLastPathComponent();
@@ -138,6 +160,55 @@ public class TreeTabbedPanel<T extends DefaultMutableTreeNode & ContainerEntryGe
         add(splitter, BorderLayout.CENTER);
     }
 
+    /**
+     * Display a placeholder, create the children of the node in a background thread, then insert
+     * them at once. The children are kept if the node has been populated in the meantime.
+     */
+    protected void populateTreeNodeInBackground(DefaultMutableTreeNode node) {
+        AsyncTreeNodeExpandable atne = (AsyncTreeNodeExpandable) node;
+
+        if (atne.isPopulated() || !loadingNodes.add(node)) {
+            return;
+        }
+
+        DefaultTreeModel model = (DefaultTreeModel)tree.getModel();
+
+        node.removeAllChildren();
+        node.add(new DefaultMutableTreeNode(LOADING_LABEL));
+        model.nodeStructureChanged(node);
+
+        TREE_NODE_EXECUTOR.execute(() -> {
+            List<MutableTreeNode> childNodes;
+
+            try {
+                childNodes = atne.createChildNodes(api);
+            } catch (RuntimeException e) {
+                assert ExceptionUtil.printStackTrace(e);
+                childNodes = Collections.emptyList();
+            }
+
+            List<MutableTreeNode> finalChildNodes = childNodes;
+
+            SwingUtilities.invokeLater(() -> {
+                loadingNodes.remove(node);
+                if (!atne.isPopulated()) {
+                    atne.setChildNodes(finalChildNodes);
+                    model.nodeStructureChanged(node);
+                }
+            });
+        });
+    }
+
+    private static ExecutorService newTreeNodeExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "jd-gui-tree-node-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     protected static int createHashCode(@SuppressWarnings("all") Enumeration enumeration) {
         int hashCode = 1;
 
@@ -178,6 +249,9 @@ public class TreeTabbedPanel<T extends DefaultMutableTreeNode & ContainerEntryGe
                         showPage(localURI, baseUri, baseNode);
                     }
                 }
+
+                // Prefetch the classes next to the selected node
+                DecompilationPrefetcher.getInstance().prefetch(api, () -> DecompilationPrefetcher.getNeighbours(node.getEntry()));
             } catch (URISyntaxException e) {
                 assert ExceptionUtil.printStackTrace(e);
             } finally {
@@ -302,6 +376,11 @@ public class TreeTabbedPanel<T extends DefaultMutableTreeNode & ContainerEntryGe
         if (node instanceof TreeNodeExpandable) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
             TreeNodeExpandable tne = (TreeNodeExpandable) node;
             tne.populateTreeNode(api);
+
+            if (loadingNodes.remove(node)) {
+                // Replace the placeholder of the node being populated in background
+                ((DefaultTreeModel)tree.getModel()).nodeStructureChanged(node);
+            }
         }
 
         String u = uri.toString();
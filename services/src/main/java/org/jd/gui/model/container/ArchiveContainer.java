@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.model.container;
+
+import org.apache.commons.io.IOUtils;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.api.API;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.model.container.entry.path.SimpleEntryPath;
+import org.jd.gui.spi.ContainerFactory;
+import org.jd.gui.util.zip.ZipArchive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Container of an archive read with a {@link ZipArchive}: an archive file, or an archive nested in
+ * another container that is not copied to a temporary file. No file system is opened.<br>
+ * <br>
+ * Entries are created on demand from the sorted entries of the archive, when the children of a
+ * directory are requested.<br>
+ * <br>
+ * Containers are opened with the type 'generic' and given to the container factories accepting
+ * archives ({@link ContainerFactory#accept(API, Container)}), which select their type.
+ */
+public class ArchiveContainer implements Container, Closeable {
+    private final API api;
+    private String type;
+    private final ZipArchive archive;
+    private final Container.Entry root;
+    private final List<Closeable> nestedContainers = new ArrayList<>();
+
+    public ArchiveContainer(API api, Container.Entry parentEntry, String type, ZipArchive archive) {
+        this.api = api;
+        this.type = type;
+        this.archive = archive;
+        this.root = makeRootEntry(parentEntry);
+    }
+
+    /**
+     * @param parentEntry entry of the archive
+     * @param source      content of the archive, closed on error or when the container is closed
+     * @return the container, of type 'generic', or null if the source is not a valid archive
+     */
+    public static ArchiveContainer open(API api, Container.Entry parentEntry, ZipArchive.Source source) {
+        try {
+            return new ArchiveContainer(api, parentEntry, "generic", new ZipArchive(source));
+        } catch (IOException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            IOUtils.closeQuietly(source);
+            return null;
+        }
+    }
+
+    /**
+     * @return the container made from 'archiveContainer' by the container factory accepting it, or
+     *         null. The owner of 'archiveContainer' closes it.
+     */
+    public static Container make(API api, ArchiveContainer archiveContainer) {
+        ContainerFactory containerFactory = api.getContainerFactory(archiveContainer);
+        return containerFactory == null ? archiveContainer : containerFactory.make(api, archiveContainer);
+    }
+
+    /**
+     * @return the children of the root of the container made from 'archiveContainer', to be the
+     *         children of the entry of a nested archive
+     */
+    public static Map<Container.EntryPath, Container.Entry> getChildren(API api, ArchiveContainer archiveContainer) {
+        Container container = make(api, archiveContainer);
+        return container == null ? Collections.emptyMap() : container.getRoot().getChildren();
+    }
+
+    /**
+     * Called by the container factories accepting an archive.
+     *
+     * @return 'container', of type 'type' if it is an archive container
+     */
+    public static Container withType(Container container, String type) {
+        if (container instanceof ArchiveContainer) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+            ((ArchiveContainer) container).type = type;
+        }
+        return container;
+    }
+
+    private Entry makeRootEntry(Container.Entry parentEntry) {
+        try {
+            URI uri = parentEntry.getUri();
+            return new Entry(parentEntry, "", -1, new URI(uri.getScheme(), uri.getHost(), uri.getPath() + "!/", null));
+        } catch (URISyntaxException e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+        return null;
+    }
+
+    @Override
+    public String getType() { return type; }
+    @Override
+    public Container.Entry getRoot() { return root; }
+
+    @Override
+    public void close() {
+        synchronized (nestedContainers) {
+            nestedContainers.forEach(IOUtils::closeQuietly);
+            nestedContainers.clear();
+        }
+        IOUtils.closeQuietly(archive);
+    }
+
+    protected class Entry implements Container.Entry {
+        private final Container.Entry parent;
+        private final String path;
+        // Index of the entry in the archive, or -1 for a directory
+        private final int index;
+        private URI uri;
+        private Map<Container.EntryPath, Container.Entry> children;
+
+        public Entry(Container.Entry parent, String path, int index, URI uri) {
+            this.parent = parent;
+            this.path = path;
+            this.index = index;
+            this.uri = uri;
+        }
+
+        @Override
+        public Container getContainer() { return ArchiveContainer.this; }
+        @Override
+        public Container.Entry getParent() { return parent; }
+
+        @Override
+        public URI getUri() {
+            if (uri == null) {
+                try {
+                    URI rootUri = root.getUri();
+                    uri = new URI(rootUri.getScheme(), rootUri.getHost(), rootUri.getPath() + path, null);
+                } catch (URISyntaxException e) {
+                    assert ExceptionUtil.printStackTrace(e);
+                }
+            }
+            return uri;
+        }
+
+        @Override
+        public String getPath() { return path; }
+        @Override
+        public boolean isDirectory() { return index == -1; }
+        @Override
+        public long length() { return isDirectory() ? 0 : archive.getEntry(index).getSize(); }
+        @Override
+        public long compressedLength() { return isDirectory() ? 0 : archive.getEntry(index).getImpactBytes(); }
+
+        @Override
+        public InputStream getInputStream() {
+            try {
+                return archive.getInputStream(archive.getEntry(index));
+            } catch (IOException e) {
+                assert ExceptionUtil.printStackTrace(e);
+                return null;
+            }
+        }
+
+        @Override
+        public synchronized Map<Container.EntryPath, Container.Entry> getChildren() {
+            if (children == null) {
+                children = isDirectory() ? loadChildrenFromDirectoryEntry() : loadChildrenFromFileEntry();
+            }
+            return children;
+        }
+
+        /**
+         * The entries of the directory are the range of the sorted entries starting with the path of
+         * the directory: each sub-directory is skipped with a binary search.
+         */
+        protected NavigableMap<Container.EntryPath, Container.Entry> loadChildrenFromDirectoryEntry() {
+            NavigableMap<Container.EntryPath, Container.Entry> sortedChildren = new TreeMap<>(ContainerEntryComparator.COMPARATOR);
+            String prefix = path.isEmpty() ? "" : path + '/';
+            byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+            // Children of the root entry are children of the parent entry
+            Container.Entry childParent = path.isEmpty() ? parent : this;
+            int size = archive.size();
+            int i = archive.indexOf(prefixBytes);
+
+            while (i < size && archive.startsWith(i, prefixBytes)) {
+                String name = archive.getName(i);
+                int separatorIndex = name.indexOf('/', prefix.length());
+
+                if (name.length() == prefix.length() || separatorIndex == prefix.length()) {
+                    // Entry of this directory, or empty name
+                    i++;
+                } else if (separatorIndex == -1) {
+                    Entry child = new Entry(childParent, name, i, null);
+                    sortedChildren.putIfAbsent(new SimpleEntryPath(name, false), child);
+                    i++;
+                } else {
+                    String childPath = name.substring(0, separatorIndex);
+                    sortedChildren.put(new SimpleEntryPath(childPath, true), new Entry(childParent, childPath, -1, null));
+                    i = archive.indexAfter((childPath + '/').getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            return Collections.unmodifiableNavigableMap(sortedChildren);
+        }
+
+        protected Map<Container.EntryPath, Container.Entry> loadChildrenFromFileEntry() {
+            try {
+                ArchiveContainer container = open(api, this, archive.getSource(archive.getEntry(index)));
+
+                if (container != null) {
+                    synchronized (nestedContainers) {
+                        nestedContainers.add(container);
+                    }
+                    return ArchiveContainer.getChildren(api, container);
+                }
+            } catch (IOException e) {
+                assert ExceptionUtil.printStackTrace(e);
+            }
+            return Collections.emptyMap();
+        }
+    }
+}
@@ -12,58 +12,34 @@ import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil
 import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
 import org.jd.gui.model.container.entry.path.SimpleEntryPath;
-import org.jd.gui.spi.ContainerFactory;
-import org.jd.gui.util.TempFile;
-import org.jd.gui.util.index.IndexesUtil;
+import org.jd.gui.util.zip.ZipArchive;
 
 import java.io.Closeable;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.DirectoryStream;
-import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 public class GenericContainer implements Container, Closeable {
-    protected static final long TIMESTAMP = System.currentTimeMillis();
-
-    private static final AtomicLong tmpFileCounter = new AtomicLong(0);
-
     private final API api;
     private final int rootNameCount;
     private final Container.Entry root;
-    private ZipFile zipFile; // closed when tab is closed
+    private final List<Closeable> nestedContainers = new ArrayList<>(); // closed when tab is closed
 
     public GenericContainer(API api, Container.Entry parentEntry, Path rootPath) {
         this.api = api;
         this.rootNameCount = rootPath.getNameCount();
         this.root = makeRootEntry(parentEntry, rootPath);
-        this.zipFile = makeZipFile(parentEntry);
-    }
-
-    private static ZipFile makeZipFile(Container.Entry parentEntry) {
-        try {
-            File file = new File(parentEntry.getPath());
-            if (file.exists()) {
-                return new ZipFile(file);
-            }
-        } catch (IOException e) {
-            assert ExceptionUtil.printStackTrace(e);
-        }
-        return null;
     }
 
     private Entry makeRootEntry(Container.Entry parentEntry, Path rootPath) {
@@ -86,6 +62,15 @@ public class GenericContainer implements Container, Closeable {
     @Override
     public Container.Entry getRoot() { return root; }
 
+    /**
+     * Reload the children of a directory entry: the entries of the files still existing are kept.
+     */
+    public void refreshChildren(Container.Entry entry) {
+        if (entry instanceof Entry) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+            ((Entry) entry).refreshChildren();
+        }
+    }
+
     protected class Entry implements Container.Entry {
         private final Container.Entry parent;
         private final Path fsPath;
@@ -165,11 +150,7 @@ public class GenericContainer implements Container, Closeable {
 
         @Override
         public long compressedLength() {
-            if (zipFile == null) {
-                return length();
-            }
-            ZipEntry zipEntry = zipFile.getEntry(strPath);
-            return IndexesUtil.entryImpactBytes(zipEntry);
+            return length();
         }
         
         @Override
@@ -199,6 +180,13 @@ public class GenericContainer implements Container, Closeable {
         }
 
         protected NavigableMap<Container.EntryPath, Container.Entry> loadChildrenFromDirectoryEntry() throws IOException {
+            return loadChildrenFromDirectoryEntry(Collections.emptyMap());
+        }
+
+        /**
+         * @param previousChildren children to keep if their file still exists
+         */
+        protected NavigableMap<Container.EntryPath, Container.Entry> loadChildrenFromDirectoryEntry(Map<Container.EntryPath, Container.Entry> previousChildren) throws IOException {
             try (DirectoryStream<Path> stream = Files.newDirectoryStream(fsPath)) {
                 NavigableMap<Container.EntryPath, Container.Entry> sortedChildren = new TreeMap<>(ContainerEntryComparator.COMPARATOR);
                 int parentNameCount = fsPath.getNameCount();
@@ -207,7 +195,7 @@ public class GenericContainer implements Container, Closeable {
                     if (subPath.getNameCount() > parentNameCount) {
                         Container.Entry newChildEntry = newChildEntry(subPath);
                         Container.EntryPath newChildEntryPath = new SimpleEntryPath(newChildEntry.getPath(), newChildEntry.isDirectory());
-                        sortedChildren.put(newChildEntryPath, newChildEntry);
+                        sortedChildren.put(newChildEntryPath, previousChildren.getOrDefault(newChildEntryPath, newChildEntry));
                     }
                 }
 
@@ -215,39 +203,48 @@ public class GenericContainer implements Container, Closeable {
             }
         }
 
-        @SuppressWarnings("resource")
+        protected void refreshChildren() {
+            if (children != null && Files.isDirectory(fsPath)) {
+                try {
+                    children = loadChildrenFromDirectoryEntry(children);
+                } catch (IOException e) {
+                    assert ExceptionUtil.printStackTrace(e);
+                }
+            }
+        }
+
         protected Map<Container.EntryPath, Container.Entry> loadChildrenFromFileEntry() throws IOException {
-            StringBuilder suffix = new StringBuilder(".").append(TIMESTAMP).append('.').append(tmpFileCounter.getAndIncrement()).append('.').append(fsPath.getFileName().toString());
-            try (TempFile tmpFile = new TempFile(suffix.toString())) {
-                Path tmpPath = Paths.get(tmpFile.toURI());
-                Files.copy(fsPath, tmpPath);
-    
-                @SuppressWarnings("all")
-                // Resource leak : The file system cannot be closed until the application is shutdown
-                FileSystem subFileSystem = FileSystems.newFileSystem(tmpPath, (ClassLoader)null);
-    
-                Iterator<Path> rootDirectories = subFileSystem.getRootDirectories().iterator();
-    
-                if (rootDirectories.hasNext()) {
-                    Path rootPath = rootDirectories.next();
-                    ContainerFactory containerFactory = api.getContainerFactory(rootPath);
-    
-                    if (containerFactory != null) {
-                        Container container = containerFactory.make(api, this, rootPath);
-    
-                        if (container != null) {
-                            return container.getRoot().getChildren();
-                        }
-                    }
+            ArchiveContainer container = ArchiveContainer.open(api, this, getSource());
+
+            if (container != null) {
+                synchronized (nestedContainers) {
+                    nestedContainers.add(container);
                 }
+                return ArchiveContainer.getChildren(api, container);
             }
             return Collections.emptyMap();
         }
+
+        /**
+         * @return the content of the nested archive: the file itself, a memory buffer or a temporary
+         *         file if the file is not in the default file system
+         */
+        protected ZipArchive.Source getSource() throws IOException {
+            if (fsPath.getFileSystem() == FileSystems.getDefault()) {
+                return ZipArchive.FileSource.open(fsPath);
+            }
+
+            try (InputStream inputStream = Files.newInputStream(fsPath)) {
+                return ZipArchive.newSource(inputStream, length());
+            }
+        }
     }
 
     @Override
     public void close() {
-        IOUtils.closeQuietly(zipFile);
-        zipFile = null;
+        synchronized (nestedContainers) {
+            nestedContainers.forEach(IOUtils::closeQuietly);
+            nestedContainers.clear();
+        }
     }
 }
@@ -25,4 +25,7 @@ public class GenericContainerFactoryProvider implements ContainerFactory {
     public Container make(API api, Container.Entry parentEntry, Path rootPath) {
         return new GenericContainer(api, parentEntry, rootPath);
     }
+
+    @Override
+    public boolean accept(API api, Container archiveContainer) { return true; }
 }
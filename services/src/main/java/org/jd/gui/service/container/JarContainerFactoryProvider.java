@@ -10,6 +10,7 @@ package org.jd.gui.service.container;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
 import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
+import org.jd.gui.model.container.ArchiveContainer;
 import org.jd.gui.model.container.JarContainer;
 import org.jd.gui.spi.ContainerFactory;
 
@@ -42,4 +43,14 @@ public class JarContainerFactoryProvider implements ContainerFactory {
     public Container make(API api, Container.Entry parentEntry, Path rootPath) {
         return new JarContainer(api, parentEntry, rootPath);
     }
+
+    @Override
+    public boolean accept(API api, Container archiveContainer) {
+        return archiveContainer.getRoot().getUri().toString().toLowerCase().endsWith(".jar!/");
+    }
+
+    @Override
+    public Container make(API api, Container archiveContainer) {
+        return ArchiveContainer.withType(archiveContainer, getType());
+    }
 }
@@ -10,6 +10,7 @@ package org.jd.gui.service.container;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
 import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
+import org.jd.gui.model.container.ArchiveContainer;
 import org.jd.gui.spi.ContainerFactory;
 import org.jd.gui.model.container.KarContainer;
 
@@ -41,4 +42,14 @@ public class KarContainerFactoryProvider implements ContainerFactory {
     public Container make(API api, Container.Entry parentEntry, Path rootPath) {
         return new KarContainer(api, parentEntry, rootPath);
     }
+
+    @Override
+    public boolean accept(API api, Container archiveContainer) {
+        return archiveContainer.getRoot().getUri().toString().toLowerCase().endsWith(".kar!/");
+    }
+
+    @Override
+    public Container make(API api, Container archiveContainer) {
+        return ArchiveContainer.withType(archiveContainer, getType());
+    }
 }
@@ -37,26 +37,30 @@ public abstract class AbstractFileLoaderProvider implements FileLoader {
         ContainerFactory containerFactory = api.getContainerFactory(rootPath);
 
         if (containerFactory != null) {
-            Container container = containerFactory.make(api, parentEntry, rootPath);
+            return load(api, file, parentEntry, containerFactory.make(api, parentEntry, rootPath));
+        }
+
+        return null;
+    }
 
-            if (container != null) {
-                parentEntry.setChildren(container.getRoot().getChildren());
+    protected <T extends JComponent & UriGettable> T load(API api, File file, ContainerEntry parentEntry, Container container) {
+        if (container != null) {
+            parentEntry.setChildren(container.getRoot().getChildren());
 
-                PanelFactory panelFactory = api.getMainPanelFactory(container);
+            PanelFactory panelFactory = api.getMainPanelFactory(container);
 
-                if (panelFactory != null) {
-                    T mainPanel = panelFactory.make(api, container);
+            if (panelFactory != null) {
+                T mainPanel = panelFactory.make(api, container);
 
-                    if (mainPanel != null) {
-                        TreeNodeFactory treeNodeFactory = api.getTreeNodeFactory(parentEntry);
-                        Object data = treeNodeFactory != null ? treeNodeFactory.make(api, parentEntry).getUserObject() : null;
-                        // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
-                        Icon icon = data instanceof TreeNodeData ? ((TreeNodeData) data).getIcon() : null;
-                        String location = file.getPath();
+                if (mainPanel != null) {
+                    TreeNodeFactory treeNodeFactory = api.getTreeNodeFactory(parentEntry);
+                    Object data = treeNodeFactory != null ? treeNodeFactory.make(api, parentEntry).getUserObject() : null;
+                    // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                    Icon icon = data instanceof TreeNodeData ? ((TreeNodeData) data).getIcon() : null;
+                    String location = file.getPath();
 
-                        api.addPanel(file, file.getName(), () -> icon, "Location: " + location, mainPanel);
-                        return mainPanel;
-                    }
+                    api.addPanel(file, file.getName(), () -> icon, "Location: " + location, mainPanel);
+                    return mainPanel;
                 }
             }
         }
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.fileloader;
+
+import org.jd.gui.api.API;
+
+import java.io.File;
+
+/**
+ * Load exploded archives and class folders, like 'target/classes'. Directories have no extension:
+ * the loader is selected by {@code FileLoaderService} for any directory.
+ */
+public class DirectoryFileLoaderProvider extends AbstractFileLoaderProvider {
+    protected static final String[] EXTENSIONS = {};
+
+    @Override
+    public String[] getExtensions() { return EXTENSIONS; }
+    @Override
+    public String getDescription() { return "Directories"; }
+
+    @Override
+    public boolean accept(API api, File file) {
+        return file.exists() && file.isDirectory() && file.canRead();
+    }
+
+    @Override
+    public boolean load(API api, File file) {
+        return load(api, file, file.getAbsoluteFile().toPath()) != null;
+    }
+}
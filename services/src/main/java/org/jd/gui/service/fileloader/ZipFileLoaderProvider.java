@@ -9,17 +9,13 @@ package org.jd.gui.service.fileloader;
 
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
 import org.jd.gui.api.API;
+import org.jd.gui.model.container.ArchiveContainer;
+import org.jd.gui.util.zip.ZipArchive;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystemNotFoundException;
-import java.nio.file.FileSystems;
-import java.nio.file.Path;
-import java.util.Collections;
-import java.util.Iterator;
 
 public class ZipFileLoaderProvider extends AbstractFileLoaderProvider {
     protected static final String[] EXTENSIONS = { "zip" };
@@ -39,29 +35,22 @@ public class ZipFileLoaderProvider extends AbstractFileLoaderProvider {
     }
 
     @Override
-    @SuppressWarnings("all")
     public boolean load(API api, File file) {
         try {
             URI fileUri = file.toURI();
             if (!isValidScheme(fileUri.getScheme())) {
                 throw new URISyntaxException(fileUri.toString(), "Invalid URI scheme");
             }
-            URI uri = new URI("jar:" + fileUri.getScheme(), fileUri.getHost(), fileUri.getPath() + "!/", null);
 
-            FileSystem fileSystem;
+            ContainerEntry parentEntry = new ContainerEntry(file);
+            // The central directory is mapped in memory and the entries are read from the file: no file system is opened
+            ArchiveContainer container = ArchiveContainer.open(api, parentEntry, ZipArchive.FileSource.open(file.toPath()));
 
-            try {
-                fileSystem = FileSystems.getFileSystem(uri);
-            } catch (FileSystemNotFoundException e) {
-                // Resource leak : file system cannot be closed until the application is closed
-                fileSystem = FileSystems.newFileSystem(uri, Collections.emptyMap());
-            }
-
-            if (fileSystem != null) {
-                Iterator<Path> rootDirectories = fileSystem.getRootDirectories().iterator();
-                if (rootDirectories.hasNext()) {
-                    return load(api, file, rootDirectories.next()) != null;
+            if (container != null) {
+                if (load(api, file, parentEntry, ArchiveContainer.make(api, container)) != null) {
+                    return true;
                 }
+                container.close();
             }
         } catch (URISyntaxException|IOException e) {
             assert ExceptionUtil.printStackTrace(e);
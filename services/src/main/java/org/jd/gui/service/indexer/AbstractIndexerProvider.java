@@ -8,8 +8,10 @@
 package org.jd.gui.service.indexer;
 
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Indexes;
+import org.jd.gui.service.preferencespanel.AbstractIntegerPreferencesProvider;
 import org.jd.gui.spi.Indexer;
 
 import java.io.IOException;
@@ -22,6 +24,8 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.regex.Pattern;
 
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXER_PARALLELISM;
+
 public abstract class AbstractIndexerProvider implements Indexer {
     private List<String> externalSelectors;
     protected Pattern externalPathPattern;
@@ -81,6 +85,13 @@ public abstract class AbstractIndexerProvider implements Indexer {
     @Override
     public Pattern getPathPattern() { return externalPathPattern; }
 
+    /**
+     * @return the maximum number of indexing threads, 1 for a sequential indexing
+     */
+    protected static int getParallelism(API api) {
+        return AbstractIntegerPreferencesProvider.getParallelism(api.getPreferences(), INDEXER_PARALLELISM);
+    }
+
     @SuppressWarnings({ "rawtypes", "unchecked" })
     protected static void addToIndexes(Indexes indexes, String indexName, Set<String> set, Container.Entry entry) {
         if (!set.isEmpty()) {
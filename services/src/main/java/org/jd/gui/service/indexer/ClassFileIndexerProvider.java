@@ -26,6 +26,7 @@ import org.objectweb.asm.signature.SignatureVisitor;
 import java.io.InputStream;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -45,23 +46,11 @@ import static org.objectweb.asm.ClassReader.SKIP_DEBUG;
 import static org.objectweb.asm.ClassReader.SKIP_FRAMES;
 
 /**
- * Unsafe thread implementation of class file indexer.
+ * Class file indexer. Sets and visitors are kept in a per-thread {@link Context}, so that the provider can be
+ * used by the parallel indexer.
  */
 public class ClassFileIndexerProvider extends AbstractIndexerProvider {
-    protected Set<String> typeDeclarationSet = new HashSet<>();
-    protected Set<String> constructorDeclarationSet = new HashSet<>();
-    protected Set<String> methodDeclarationSet = new HashSet<>();
-    protected Set<String> fieldDeclarationSet = new HashSet<>();
-    protected Set<String> typeReferenceSet = new HashSet<>();
-    protected Set<String> constructorReferenceSet = new HashSet<>();
-    protected Set<String> methodReferenceSet = new HashSet<>();
-    protected Set<String> fieldReferenceSet = new HashSet<>();
-    protected Set<String> stringSet = new HashSet<>();
-    protected Set<String> superTypeNameSet = new HashSet<>();
-    protected Set<String> descriptorSet = new HashSet<>();
-
-    protected ClassIndexer classIndexer = new ClassIndexer();
-    protected SignatureIndexer signatureIndexer = new SignatureIndexer();
+    protected final ThreadLocal<Context> contexts = ThreadLocal.withInitial(Context::new);
 
     @Override
     public String[] getSelectors() {
@@ -76,247 +65,330 @@ public class ClassFileIndexerProvider extends AbstractIndexerProvider {
         return externalPathPattern;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void index(API api, Container.Entry entry, Indexes indexes, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
-        // Cleaning sets...
-        typeDeclarationSet.clear();
-        constructorDeclarationSet.clear();
-        methodDeclarationSet.clear();
-        fieldDeclarationSet.clear();
-        typeReferenceSet.clear();
-        constructorReferenceSet.clear();
-        methodReferenceSet.clear();
-        fieldReferenceSet.clear();
-        stringSet.clear();
-        superTypeNameSet.clear();
-        descriptorSet.clear();
-
-        try (InputStream inputStream = entry.getInputStream()) {
-            // Index field, method, interfaces & super type
-            ClassReader classReader = new ClassReader(inputStream);
-            classReader.accept(classIndexer, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
-
-            // Index descriptors
-            for (String descriptor : descriptorSet) {
-                new SignatureReader(descriptor).accept(signatureIndexer);
-            }
+        contexts.get().index(entry, indexes, getProgressFunction, setProgressFunction);
+    }
 
-            // Index references
-            char[] buffer = new char[classReader.getMaxStringLength()];
+    /**
+     * Unsafe thread indexing state.
+     */
+    protected static class Context {
+        protected Set<String> typeDeclarationSet = new HashSet<>();
+        protected Set<String> constructorDeclarationSet = new HashSet<>();
+        protected Set<String> methodDeclarationSet = new HashSet<>();
+        protected Set<String> fieldDeclarationSet = new HashSet<>();
+        protected Set<String> typeReferenceSet = new HashSet<>();
+        protected Set<String> constructorReferenceSet = new HashSet<>();
+        protected Set<String> methodReferenceSet = new HashSet<>();
+        protected Set<String> fieldReferenceSet = new HashSet<>();
+        protected Set<String> stringSet = new HashSet<>();
+        protected Set<String> superTypeNameSet = new HashSet<>();
+        protected Set<String> descriptorSet = new HashSet<>();
+        protected Map<String, Set<String>> memberDescriptorsMap = new HashMap<>();
+
+        protected ClassIndexer classIndexer = new ClassIndexer();
+        protected SignatureIndexer signatureIndexer = new SignatureIndexer();
+
+        @SuppressWarnings("unchecked")
+        public void index(Container.Entry entry, Indexes indexes, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction) {
+            // Cleaning sets...
+            typeDeclarationSet.clear();
+            constructorDeclarationSet.clear();
+            methodDeclarationSet.clear();
+            fieldDeclarationSet.clear();
+            typeReferenceSet.clear();
+            constructorReferenceSet.clear();
+            methodReferenceSet.clear();
+            fieldReferenceSet.clear();
+            stringSet.clear();
+            superTypeNameSet.clear();
+            descriptorSet.clear();
+            memberDescriptorsMap.clear();
+
+            try (InputStream inputStream = entry.getInputStream()) {
+                // Index field, method, interfaces & super type
+                ClassReader classReader = new ClassReader(inputStream);
+                classReader.accept(classIndexer, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
+
+                // Index descriptors
+                for (String descriptor : descriptorSet) {
+                    new SignatureReader(descriptor).accept(signatureIndexer);
+                }
 
-            for (int i = classReader.getItemCount() - 1; i > 0; i--) {
-                int startIndex = classReader.getItem(i);
+                // Index references
+                char[] buffer = new char[classReader.getMaxStringLength()];
 
-                if (startIndex != 0) {
-                    int tag = classReader.readByte(startIndex - 1);
+                for (int i = classReader.getItemCount() - 1; i > 0; i--) {
+                    int startIndex = classReader.getItem(i);
 
-                    switch (tag) {
-                    case CONSTANT_Class:
-                        String className = classReader.readUTF8(startIndex, buffer);
-                        if (className.startsWith("[")) {
-                            new SignatureReader(className).acceptType(signatureIndexer);
-                        } else {
-                            typeReferenceSet.add(className);
-                        }
-                        break;
-                    case CONSTANT_String:
-                        String str = classReader.readUTF8(startIndex, buffer);
-                        stringSet.add(str);
-                        break;
-                    case CONSTANT_Fieldref:
-                        int nameAndTypeItem = classReader.readUnsignedShort(startIndex + 2);
-                        int nameAndTypeIndex = classReader.getItem(nameAndTypeItem);
-                        tag = classReader.readByte(nameAndTypeIndex - 1);
-                        if (tag == CONSTANT_NameAndType) {
-                            String fieldName = classReader.readUTF8(nameAndTypeIndex, buffer);
-                            fieldReferenceSet.add(fieldName);
-                        }
-                        break;
-                    case CONSTANT_Methodref, CONSTANT_InterfaceMethodref:
-                        nameAndTypeItem = classReader.readUnsignedShort(startIndex + 2);
-                        nameAndTypeIndex = classReader.getItem(nameAndTypeItem);
-                        tag = classReader.readByte(nameAndTypeIndex - 1);
-                        if (tag == CONSTANT_NameAndType) {
-                            String methodName = classReader.readUTF8(nameAndTypeIndex, buffer);
-                            if (StringConstants.INSTANCE_CONSTRUCTOR.equals(methodName)) {
-                                int classItem = classReader.readUnsignedShort(startIndex);
-                                int classIndex = classReader.getItem(classItem);
-                                className = classReader.readUTF8(classIndex, buffer);
-                                constructorReferenceSet.add(className);
+                    if (startIndex != 0) {
+                        int tag = classReader.readByte(startIndex - 1);
+
+                        switch (tag) {
+                        case CONSTANT_Class:
+                            String className = classReader.readUTF8(startIndex, buffer);
+                            if (className.startsWith("[")) {
+                                new SignatureReader(className).acceptType(signatureIndexer);
                             } else {
-                                methodReferenceSet.add(methodName);
+                                typeReferenceSet.add(className);
+                            }
+                            break;
+                        case CONSTANT_String:
+                            String str = classReader.readUTF8(startIndex, buffer);
+                            stringSet.add(str);
+                            break;
+                        case CONSTANT_Fieldref:
+                            int nameAndTypeItem = classReader.readUnsignedShort(startIndex + 2);
+                            int nameAndTypeIndex = classReader.getItem(nameAndTypeItem);
+                            tag = classReader.readByte(nameAndTypeIndex - 1);
+                            if (tag == CONSTANT_NameAndType) {
+                                String fieldName = classReader.readUTF8(nameAndTypeIndex, buffer);
+                                fieldReferenceSet.add(fieldName);
                             }
+                            break;
+                        case CONSTANT_Methodref, CONSTANT_InterfaceMethodref:
+                            nameAndTypeItem = classReader.readUnsignedShort(startIndex + 2);
+                            nameAndTypeIndex = classReader.getItem(nameAndTypeItem);
+                            tag = classReader.readByte(nameAndTypeIndex - 1);
+                            if (tag == CONSTANT_NameAndType) {
+                                String methodName = classReader.readUTF8(nameAndTypeIndex, buffer);
+                                if (StringConstants.INSTANCE_CONSTRUCTOR.equals(methodName)) {
+                                    int classItem = classReader.readUnsignedShort(startIndex);
+                                    int classIndex = classReader.getItem(classItem);
+                                    className = classReader.readUTF8(classIndex, buffer);
+                                    constructorReferenceSet.add(className);
+                                } else {
+                                    methodReferenceSet.add(methodName);
+                                }
+                            }
+                            break;
                         }
-                        break;
                     }
                 }
-            }
 
-            String typeName = classIndexer.name;
-
-            // Append sets to indexes
-            addToIndexes(indexes, "typeDeclarations", typeDeclarationSet, entry);
-            addToIndexes(indexes, "constructorDeclarations", constructorDeclarationSet, entry);
-            addToIndexes(indexes, "methodDeclarations", methodDeclarationSet, entry);
-            addToIndexes(indexes, "fieldDeclarations", fieldDeclarationSet, entry);
-            addToIndexes(indexes, "typeReferences", typeReferenceSet, entry);
-            addToIndexes(indexes, "constructorReferences", constructorReferenceSet, entry);
-            addToIndexes(indexes, "methodReferences", methodReferenceSet, entry);
-            addToIndexes(indexes, "fieldReferences", fieldReferenceSet, entry);
-            addToIndexes(indexes, "strings", stringSet, entry);
-
-            // Populate map [super type name : [sub type name]]
-            if (!superTypeNameSet.isEmpty()) {
-                @SuppressWarnings("rawtypes")
-                Map<String, Collection> index = indexes.getIndex("subTypeNames");
-
-                for (String superTypeName : superTypeNameSet) {
-                    index.get(superTypeName).add(typeName);
+                String typeName = classIndexer.name;
+
+                // Append sets to indexes
+                addToIndexes(indexes, "typeDeclarations", typeDeclarationSet, entry);
+                addToIndexes(indexes, "constructorDeclarations", constructorDeclarationSet, entry);
+                addToIndexes(indexes, "methodDeclarations", methodDeclarationSet, entry);
+                addToIndexes(indexes, "fieldDeclarations", fieldDeclarationSet, entry);
+                addToIndexes(indexes, "typeReferences", typeReferenceSet, entry);
+                addToIndexes(indexes, "constructorReferences", constructorReferenceSet, entry);
+                addToIndexes(indexes, "methodReferences", methodReferenceSet, entry);
+                addToIndexes(indexes, "fieldReferences", fieldReferenceSet, entry);
+                addToIndexes(indexes, "strings", stringSet, entry);
+
+                // Populate map [super type name : [sub type name]]
+                if (!superTypeNameSet.isEmpty()) {
+                    @SuppressWarnings("rawtypes")
+                    Map<String, Collection> index = indexes.getIndex("subTypeNames");
+
+                    for (String superTypeName : superTypeNameSet) {
+                        index.get(superTypeName).add(typeName);
+                    }
+                }
+
+                // Populate map [type name : [super class name]]
+                if (classIndexer.superName != null) {
+                    indexes.getIndex("superClassNames").get(typeName).add(classIndexer.superName);
+                }
+
+                // Populate map [owner type name + '-' + member name : [descriptor]]
+                if (!memberDescriptorsMap.isEmpty()) {
+                    @SuppressWarnings("rawtypes")
+                    Map<String, Collection> index = indexes.getIndex("memberDeclarations");
+
+                    for (Map.Entry<String, Set<String>> e : memberDescriptorsMap.entrySet()) {
+                        index.get(e.getKey()).addAll(e.getValue());
+                    }
+                }
+
+                // Populate map [inner type name : [outer type name]]
+                String outerTypeName = classIndexer.outerName == null ? classIndexer.enclosingName : classIndexer.outerName;
+
+                if (outerTypeName != null) {
+                    indexes.getIndex("outerTypeNames").get(typeName).add(outerTypeName);
                 }
-            }
             
-            ProgressUtil.updateProgress(entry, getProgressFunction, setProgressFunction);
+                ProgressUtil.updateProgress(entry, getProgressFunction, setProgressFunction);
 
-        } catch (Exception e) {
-            assert ExceptionUtil.printStackTrace(e);
+            } catch (Exception e) {
+                assert ExceptionUtil.printStackTrace(e);
+            }
         }
-    }
 
-    protected class ClassIndexer extends ClassVisitor {
-        private AnnotationIndexer annotationIndexer = new AnnotationIndexer();
-        private FieldIndexer fieldIndexer = new FieldIndexer(annotationIndexer);
-        private MethodIndexer methodIndexer = new MethodIndexer(annotationIndexer);
+        protected class ClassIndexer extends ClassVisitor {
+            private AnnotationIndexer annotationIndexer = new AnnotationIndexer();
+            private FieldIndexer fieldIndexer = new FieldIndexer(annotationIndexer);
+            private MethodIndexer methodIndexer = new MethodIndexer(annotationIndexer);
 
-        private String name;
+            private String name;
+            private String superName;
+            private String outerName;
+            private String enclosingName;
 
-        public ClassIndexer() {
-            super(Opcodes.ASM9);
-        }
+            public ClassIndexer() {
+                super(Opcodes.ASM9);
+            }
 
-        @Override
-        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
-            this.name = name;
-            typeDeclarationSet.add(name);
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                this.name = name;
+                this.superName = superName;
+                this.outerName = null;
+                this.enclosingName = null;
+                typeDeclarationSet.add(name);
+
+                if (superName != null) {
+                    superTypeNameSet.add(superName);
+                }
 
-            if (superName != null) {
-                superTypeNameSet.add(superName);
+                if (interfaces != null) {
+                    Collections.addAll(superTypeNameSet, interfaces);
+                }
             }
 
-            if (interfaces != null) {
-                Collections.addAll(superTypeNameSet, interfaces);
+            @Override
+            public void visitOuterClass(String owner, String name, String descriptor) {
+                // Enclosing class of a local or anonymous class
+                enclosingName = owner;
             }
-        }
 
-        @Override
-        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-            descriptorSet.add(desc);
-            return annotationIndexer;
-        }
+            @Override
+            public void visitInnerClass(String name, String outerName, String innerName, int access) {
+                if (this.name.equals(name)) {
+                    // Inner class path found
+                    this.outerName = outerName;
+                }
+            }
 
-        @Override
-        public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
-            descriptorSet.add(desc);
-            return annotationIndexer;
-        }
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                descriptorSet.add(desc);
+                return annotationIndexer;
+            }
 
-        @Override
-        public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
-            fieldDeclarationSet.add(name);
-            descriptorSet.add(signature == null ? desc : signature);
-            return fieldIndexer;
-        }
+            @Override
+            public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
+                descriptorSet.add(desc);
+                return annotationIndexer;
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+                fieldDeclarationSet.add(name);
+                descriptorSet.add(signature == null ? desc : signature);
 
-        @Override
-        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
-            if (StringConstants.INSTANCE_CONSTRUCTOR.equals(name)) {
-                constructorDeclarationSet.add(this.name);
-            } else if (!"<clinit>".equals(name)) {
-                methodDeclarationSet.add(name);
+                if ((access & (Opcodes.ACC_SYNTHETIC|Opcodes.ACC_ENUM)) == 0) {
+                    addMemberDescriptor(name, desc);
+                }
+                return fieldIndexer;
             }
 
-            descriptorSet.add(signature == null ? desc : signature);
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                if (StringConstants.INSTANCE_CONSTRUCTOR.equals(name)) {
+                    constructorDeclarationSet.add(this.name);
+                } else if (!"<clinit>".equals(name)) {
+                    methodDeclarationSet.add(name);
+                }
+
+                descriptorSet.add(signature == null ? desc : signature);
 
-            if (exceptions != null) {
-                Collections.addAll(typeReferenceSet, exceptions);
+                if ((access & (Opcodes.ACC_SYNTHETIC|Opcodes.ACC_ENUM|Opcodes.ACC_BRIDGE)) == 0) {
+                    addMemberDescriptor(name, desc);
+                }
+
+                if (exceptions != null) {
+                    Collections.addAll(typeReferenceSet, exceptions);
+                }
+                return methodIndexer;
             }
-            return methodIndexer;
-        }
-    }
 
-    protected class SignatureIndexer extends SignatureVisitor {
-        SignatureIndexer() {
-            super(Opcodes.ASM9);
+            /**
+             * Index the members searched by the pages to enable the hyperlinks, with the filters of the class file type factory.
+             */
+            protected void addMemberDescriptor(String name, String desc) {
+                memberDescriptorsMap.computeIfAbsent(this.name + '-' + name, k -> new HashSet<>()).add(desc);
+            }
         }
 
-        @Override
-        public void visitClassType(String name) {
-            typeReferenceSet.add(name);
-        }
-    }
+        protected class SignatureIndexer extends SignatureVisitor {
+            SignatureIndexer() {
+                super(Opcodes.ASM9);
+            }
 
-    protected class AnnotationIndexer extends AnnotationVisitor {
-        public AnnotationIndexer() {
-            super(Opcodes.ASM9);
+            @Override
+            public void visitClassType(String name) {
+                typeReferenceSet.add(name);
+            }
         }
 
-        @Override
-        public void visitEnum(String name, String desc, String value) {
-            descriptorSet.add(desc);
-        }
+        protected class AnnotationIndexer extends AnnotationVisitor {
+            public AnnotationIndexer() {
+                super(Opcodes.ASM9);
+            }
 
-        @Override
-        public AnnotationVisitor visitAnnotation(String name, String desc) {
-            descriptorSet.add(desc);
-            return this;
+            @Override
+            public void visitEnum(String name, String desc, String value) {
+                descriptorSet.add(desc);
+            }
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String name, String desc) {
+                descriptorSet.add(desc);
+                return this;
+            }
         }
-    }
 
-    protected class FieldIndexer extends FieldVisitor {
-        private AnnotationIndexer annotationIndexer;
+        protected class FieldIndexer extends FieldVisitor {
+            private AnnotationIndexer annotationIndexer;
 
-        public FieldIndexer(AnnotationIndexer annotationIndexer) {
-            super(Opcodes.ASM9);
-            this.annotationIndexer = annotationIndexer;
-        }
+            public FieldIndexer(AnnotationIndexer annotationIndexer) {
+                super(Opcodes.ASM9);
+                this.annotationIndexer = annotationIndexer;
+            }
 
-        @Override
-        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-            descriptorSet.add(desc);
-            return annotationIndexer;
-        }
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                descriptorSet.add(desc);
+                return annotationIndexer;
+            }
 
-        @Override
-        public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
-            descriptorSet.add(desc);
-            return annotationIndexer;
+            @Override
+            public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
+                descriptorSet.add(desc);
+                return annotationIndexer;
+            }
         }
-    }
 
-    protected class MethodIndexer extends MethodVisitor {
-        private AnnotationIndexer annotationIndexer;
+        protected class MethodIndexer extends MethodVisitor {
+            private AnnotationIndexer annotationIndexer;
 
-        public MethodIndexer(AnnotationIndexer annotationIndexer) {
-            super(Opcodes.ASM9);
-            this.annotationIndexer = annotationIndexer;
-        }
+            public MethodIndexer(AnnotationIndexer annotationIndexer) {
+                super(Opcodes.ASM9);
+                this.annotationIndexer = annotationIndexer;
+            }
 
-        @Override
-        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-            descriptorSet.add(desc);
-            return annotationIndexer;
-        }
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                descriptorSet.add(desc);
+                return annotationIndexer;
+            }
 
-        @Override
-        public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
-            descriptorSet.add(desc);
-            return annotationIndexer;
-        }
+            @Override
+            public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
+                descriptorSet.add(desc);
+                return annotationIndexer;
+            }
 
-        @Override
-        public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
-            descriptorSet.add(desc);
-            return annotationIndexer;
+            @Override
+            public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
+                descriptorSet.add(desc);
+                return annotationIndexer;
+            }
         }
     }
 }
@@ -14,6 +14,8 @@ import org.jd.gui.api.model.Indexes;
 import org.jd.gui.spi.Indexer;
 import org.jd.gui.util.decompiler.GuiPreferences;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.BooleanSupplier;
 import java.util.function.DoubleConsumer;
 import java.util.function.DoubleSupplier;
@@ -33,22 +35,39 @@ public class DirectoryIndexerProvider extends AbstractIndexerProvider {
             assert ExceptionUtil.printStackTrace(e);
         }
 
-        index(api, entry, indexes, getProgressFunction, setProgressFunction, isCancelledFunction, depth);
+        int parallelism = getParallelism(api);
+
+        if (parallelism > 1) {
+            ParallelIndexerTask.index(api, entry, indexes, getProgressFunction, setProgressFunction, isCancelledFunction, depth, parallelism);
+        } else {
+            index(api, entry, indexes, getProgressFunction, setProgressFunction, isCancelledFunction, depth);
+        }
     }
 
     public void index(API api, Container.Entry entry, Indexes indexes, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction, int depth) {
         if (depth-- > 0) {
+            JavaFileIndexerProvider javaFileIndexer = null;
+            List<Container.Entry> javaFiles = new ArrayList<>();
+
             for (Container.Entry e : entry.getChildren().values()) {
                 if (e.isDirectory()) {
                     index(api, e, indexes, getProgressFunction, setProgressFunction, isCancelledFunction, depth);
                 } else {
                     Indexer indexer = api.getIndexer(e);
 
-                    if (indexer != null) {
+                    if (indexer instanceof JavaFileIndexerProvider) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                        // Java files are parsed in batch
+                        javaFileIndexer = (JavaFileIndexerProvider) indexer;
+                        javaFiles.add(e);
+                    } else if (indexer != null) {
                         indexer.index(api, e, indexes, getProgressFunction, setProgressFunction, isCancelledFunction);
                     }
                 }
             }
+
+            if (javaFileIndexer != null) {
+                javaFileIndexer.index(api, javaFiles, indexes, getProgressFunction, setProgressFunction, isCancelledFunction);
+            }
         }
     }
 }
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.indexer;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watch a directory tree, up to a maximum depth, and collect the paths of the created, modified and
+ * deleted files and directories.<br>
+ * <br>
+ * A build rewrites many files in a row: the listener is notified once the tree has been quiet for
+ * {@link #QUIET_PERIOD} milliseconds.
+ */
+public class DirectoryWatcher implements Closeable {
+    protected static final long QUIET_PERIOD = 500;
+
+    private final Path rootPath;
+    private final int depth;
+    private final Runnable changeListener;
+    private final WatchService watchService;
+    // Accessed by the watching thread only, once started
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    // Guarded by this
+    private final Set<Path> changedPaths = new HashSet<>();
+    private boolean overflow;
+
+    public DirectoryWatcher(Path rootPath, int depth, Runnable changeListener) throws IOException {
+        this.rootPath = rootPath;
+        this.depth = depth;
+        this.changeListener = changeListener;
+        this.watchService = rootPath.getFileSystem().newWatchService();
+
+        register(rootPath);
+
+        Thread thread = new Thread(this::watch, "jd-gui-directory-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    protected void register(Path directory) {
+        if (rootPath.relativize(directory).getNameCount() < depth) {
+            try {
+                directories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), directory);
+
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                    for (Path path : stream) {
+                        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                            register(path);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                assert ExceptionUtil.printStackTrace(e);
+            }
+        }
+    }
+
+    protected void watch() {
+        try {
+            for (;;) {
+                WatchKey key = watchService.take();
+
+                // Collect the events until the tree is quiet
+                while (key != null) {
+                    process(key);
+                    key = watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+                }
+
+                changeListener.run();
+            }
+        } catch (InterruptedException e) {
+            // Restore interrupted state...
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Watcher closed
+        }
+    }
+
+    protected void process(WatchKey key) {
+        Path directory = directories.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || directory == null) {
+                synchronized (this) {
+                    overflow = true;
+                }
+            } else {
+                Path path = directory.resolve((Path) event.context());
+
+                synchronized (this) {
+                    changedPaths.add(path);
+                }
+
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    // Files may have been created before the registration of the new directory: they are listed by the indexer
+                    register(path);
+                }
+            }
+        }
+
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    /**
+     * @return the paths changed since the last call, or null if events have been lost
+     */
+    public synchronized Set<Path> pollChangedPaths() {
+        Set<Path> paths = overflow ? null : new HashSet<>(changedPaths);
+        changedPaths.clear();
+        overflow = false;
+        return paths;
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+    }
+}
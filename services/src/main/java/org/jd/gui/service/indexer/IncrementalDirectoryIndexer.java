@@ -0,0 +1,388 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.indexer;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.api.API;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.api.model.Indexes;
+import org.jd.gui.model.container.GenericContainer;
+import org.jd.gui.service.type.TypeCache;
+import org.jd.gui.util.decompiler.ClassBytesCache;
+import org.jd.gui.util.decompiler.GuiPreferences;
+import org.jd.gui.util.index.CompactIndexes;
+import org.jd.gui.util.index.MapIndexes;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.WATCH_DIRECTORIES;
+
+/**
+ * Indexes of a directory opened from the file system, kept up to date by a {@link DirectoryWatcher}.<br>
+ * <br>
+ * Files are indexed in parallel by {@link ParallelIndexerTask} and the contribution of each file is
+ * kept: when files change, only their contributions are removed from the indexes and the changed
+ * files are indexed again. The owner of the indexer is notified with the listener given to
+ * {@link #index}, and calls {@link #index} again to get the patched indexes.<br>
+ * <br>
+ * The indexes are compacted again only when the keys changed since the last compaction are
+ * numerous: until then, the compacted indexes are published with the values of the changed keys.
+ */
+public class IncrementalDirectoryIndexer implements Closeable {
+    public static final String INDEXES_OUTDATED_PROPERTY = "indexesOutdated";
+
+    protected static final int MINIMUM_RECOMPACTION_KEY_COUNT = 1024;
+    protected static final int RECOMPACTION_KEY_RATIO = 8;
+
+    private final API api;
+    private final Container container;
+    private final Path rootPath;
+    private final int depth;
+    private MapIndexes indexes = new MapIndexes();
+    // Entry path -> indexes of the entry, filled by the indexing threads
+    private Map<String, MapIndexes> entryIndexes = new ConcurrentHashMap<>();
+    private CompactIndexes compactIndexes;
+    private int compactedKeyCount;
+    // Index name -> keys changed since the last compaction
+    private final Map<String, Set<String>> changedKeys = new HashMap<>();
+    private DirectoryWatcher watcher;
+
+    public IncrementalDirectoryIndexer(API api, Container container, Path rootPath) {
+        this.api = api;
+        this.container = container;
+        this.rootPath = rootPath;
+        this.depth = getDepth(api);
+    }
+
+    /**
+     * @return true if 'entry' is a directory of the file system and if directories are watched
+     */
+    public static boolean accept(API api, Container.Entry entry) {
+        URI uri = entry.getUri();
+        return !"false".equals(api.getPreferences().get(WATCH_DIRECTORIES)) && "file".equals(uri.getScheme()) && new File(uri).isDirectory();
+    }
+
+    protected static int getDepth(API api) {
+        try {
+            return Integer.parseInt(api.getPreferences().get(GuiPreferences.MAXIMUM_DEPTH_KEY));
+        } catch (NumberFormatException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            return 15;
+        }
+    }
+
+    /**
+     * Index the directory on the first call, then the files changed since the last call.
+     *
+     * @param changeListener called, on the watching thread, when files have changed
+     */
+    public synchronized Indexes index(DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction, Runnable changeListener) {
+        Set<Path> changedPaths = null;
+        boolean firstCall = watcher == null;
+
+        if (firstCall) {
+            try {
+                // Watch before walking: changes made during the walk are indexed on the next call
+                watcher = new DirectoryWatcher(rootPath, depth, changeListener);
+            } catch (IOException e) {
+                assert ExceptionUtil.printStackTrace(e);
+            }
+        } else {
+            changedPaths = watcher.pollChangedPaths();
+        }
+
+        if (changedPaths == null) {
+            // First call or lost events
+            indexes = new MapIndexes();
+            entryIndexes = new ConcurrentHashMap<>();
+            compactIndexes = null;
+
+            if (!firstCall) {
+                refreshDirectories(container.getRoot(), depth);
+            }
+
+            indexEntries(container.getRoot().getChildren().values(), depth, getProgressFunction, setProgressFunction, isCancelledFunction);
+        } else {
+            update(changedPaths, getProgressFunction, setProgressFunction, isCancelledFunction);
+        }
+
+        if (isCancelledFunction.getAsBoolean()) {
+            // Partial indexes: index the whole directory on the next call
+            close();
+            watcher = null;
+        }
+
+        return publish();
+    }
+
+    /**
+     * @return the compacted indexes, patched with the values of the keys changed since the compaction
+     */
+    protected Indexes publish() {
+        int changedKeyCount = 0;
+
+        for (Set<String> keys : changedKeys.values()) {
+            changedKeyCount += keys.size();
+        }
+
+        if (compactIndexes == null || changedKeyCount > Math.max(MINIMUM_RECOMPACTION_KEY_COUNT, compactedKeyCount / RECOMPACTION_KEY_RATIO)) {
+            compactIndexes = indexes.compact();
+            compactedKeyCount = indexes.getKeyCount();
+            changedKeys.clear();
+            return compactIndexes;
+        }
+
+        if (changedKeyCount == 0) {
+            return compactIndexes;
+        }
+
+        return indexes.patch(compactIndexes, changedKeys);
+    }
+
+    protected void update(Set<Path> changedPaths, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+        Set<String> changedEntryPaths = new HashSet<>();
+
+        for (Path path : changedPaths) {
+            String entryPath = getEntryPath(path);
+            if (!entryPath.isEmpty()) {
+                changedEntryPaths.add(entryPath);
+            }
+        }
+
+        // Remove the contributions of the changed files and of the files of the changed directories
+        Iterator<Map.Entry<String, MapIndexes>> iterator = entryIndexes.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<String, MapIndexes> mapEntry = iterator.next();
+
+            if (isChanged(changedEntryPaths, mapEntry.getKey())) {
+                mapEntry.getValue().removeFrom(indexes);
+                mapEntry.getValue().addKeysTo(changedKeys);
+                iterator.remove();
+            }
+        }
+
+        // Forget the content and the type models of the changed files
+        ClassBytesCache.getInstance().remove(container, entryPath -> isChanged(changedEntryPaths, entryPath));
+
+        Set<String> changedUris = getUris(changedEntryPaths);
+        TypeCache.getInstance().remove(key -> isChangedUri(changedUris, key));
+
+        // Reload the children of the parent directories
+        Set<String> parentPaths = new HashSet<>();
+
+        for (String entryPath : changedEntryPaths) {
+            parentPaths.add(getParentPath(entryPath));
+        }
+
+        for (String parentPath : parentPaths) {
+            Container.Entry parentEntry = getEntry(parentPath);
+            if (parentEntry != null) {
+                refreshChildren(parentEntry);
+            }
+        }
+
+        // Group the created and modified entries by level. The entries of the changed directories are
+        // indexed with their directory.
+        Map<Integer, List<Container.Entry>> changedEntries = new TreeMap<>();
+
+        for (String entryPath : changedEntryPaths) {
+            String parentPath = getParentPath(entryPath);
+
+            if (parentPath.isEmpty() || !isChanged(changedEntryPaths, parentPath)) {
+                Container.Entry entry = getEntry(entryPath);
+                int level = entryPath.split("/").length;
+
+                if (entry != null && level <= depth) {
+                    if (entry.isDirectory()) {
+                        refreshDirectories(entry, depth - level);
+                    }
+                    changedEntries.computeIfAbsent(level, k -> new ArrayList<>()).add(entry);
+                }
+            }
+        }
+
+        // Index the created and modified entries
+        for (Map.Entry<Integer, List<Container.Entry>> mapEntry : changedEntries.entrySet()) {
+            if (isCancelledFunction.getAsBoolean()) {
+                break;
+            }
+            indexEntries(mapEntry.getValue(), depth - mapEntry.getKey() + 1, getProgressFunction, setProgressFunction, isCancelledFunction);
+        }
+
+        for (Map.Entry<String, MapIndexes> mapEntry : entryIndexes.entrySet()) {
+            if (isChanged(changedEntryPaths, mapEntry.getKey())) {
+                mapEntry.getValue().addKeysTo(changedKeys);
+            }
+        }
+    }
+
+    protected static boolean isChanged(Set<String> changedEntryPaths, String entryPath) {
+        String path = entryPath;
+
+        for (;;) {
+            if (changedEntryPaths.contains(path)) {
+                return true;
+            }
+
+            int lastSeparatorIndex = path.lastIndexOf('/');
+
+            if (lastSeparatorIndex == -1) {
+                return false;
+            }
+
+            path = path.substring(0, lastSeparatorIndex);
+        }
+    }
+
+    protected Set<String> getUris(Set<String> entryPaths) {
+        URI rootUri = container.getRoot().getUri();
+        Set<String> uris = new HashSet<>();
+
+        for (String entryPath : entryPaths) {
+            try {
+                uris.add(new URI(rootUri.getScheme(), rootUri.getHost(), rootUri.getPath() + entryPath, null).toString());
+            } catch (URISyntaxException e) {
+                assert ExceptionUtil.printStackTrace(e);
+            }
+        }
+
+        return uris;
+    }
+
+    /**
+     * @param key key of the type cache: the URI of an entry, followed by '#' and a type name, or the
+     *            URI of an entry in a nested container
+     */
+    protected static boolean isChangedUri(Set<String> changedUris, String key) {
+        for (String uri : changedUris) {
+            if (key.startsWith(uri)) {
+                int length = uri.length();
+
+                if (key.length() == length || key.charAt(length) == '#' || key.charAt(length) == '/' || key.startsWith("!/", length)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    protected static String getParentPath(String entryPath) {
+        int lastSeparatorIndex = entryPath.lastIndexOf('/');
+        return lastSeparatorIndex == -1 ? "" : entryPath.substring(0, lastSeparatorIndex);
+    }
+
+    /**
+     * Index 'entries' and the children of the directories up to 'depth' levels, keeping the
+     * contribution of each file.
+     */
+    protected void indexEntries(Collection<Container.Entry> entries, int depth, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+        ParallelIndexerTask.index(api, entries, indexes, (entry, fileIndexes) -> entryIndexes.put(entry.getPath(), fileIndexes),
+                getProgressFunction, setProgressFunction, isCancelledFunction, depth, AbstractIndexerProvider.getParallelism(api));
+    }
+
+    /**
+     * Reload the children of the directories, up to 'depth' levels.
+     */
+    protected void refreshDirectories(Container.Entry entry, int depth) {
+        if (depth-- > 0) {
+            refreshChildren(entry);
+
+            for (Container.Entry e : entry.getChildren().values()) {
+                if (e.isDirectory()) {
+                    refreshDirectories(e, depth);
+                }
+            }
+        }
+    }
+
+    protected void refreshChildren(Container.Entry entry) {
+        if (container instanceof GenericContainer) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+            ((GenericContainer) container).refreshChildren(entry);
+        }
+    }
+
+    protected String getEntryPath(Path path) {
+        StringBuilder sb = new StringBuilder();
+
+        for (Path name : rootPath.relativize(path)) {
+            if (sb.length() > 0) {
+                sb.append('/');
+            }
+            sb.append(name);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @return the entry of the path, or null if the file does not exist anymore
+     */
+    protected Container.Entry getEntry(String entryPath) {
+        Container.Entry entry = container.getRoot();
+
+        if (!entryPath.isEmpty()) {
+            int index = -1;
+
+            do {
+                index = entryPath.indexOf('/', index + 1);
+                String path = index == -1 ? entryPath : entryPath.substring(0, index);
+                Container.Entry child = null;
+
+                for (Container.Entry e : entry.getChildren().values()) {
+                    if (e.getPath().equals(path)) {
+                        child = e;
+                        break;
+                    }
+                }
+
+                if (child == null) {
+                    return null;
+                }
+
+                entry = child;
+            } while (index != -1);
+        }
+
+        return entry;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+}
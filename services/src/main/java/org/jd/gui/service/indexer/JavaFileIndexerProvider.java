@@ -8,8 +8,10 @@ package org.jd.gui.service.indexer;
 
 import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
 import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.FieldAccess;
 import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.MethodInvocation;
 import org.eclipse.jdt.core.dom.PackageDeclaration;
@@ -23,21 +25,28 @@ import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Indexes;
 import org.jd.gui.util.ProgressUtil;
+import org.jd.gui.util.decompiler.ContainerLoader;
 import org.jd.gui.util.parser.jdt.ASTParserFactory;
 import org.jd.gui.util.parser.jdt.core.AbstractJavaListener;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BooleanSupplier;
 import java.util.function.DoubleConsumer;
 import java.util.function.DoubleSupplier;
+import java.util.function.Function;
 
-/** Unsafe thread implementation of java file indexer. */
+/** Java file indexer. A new listener is created for each entry, so the provider can be used concurrently. */
 public class JavaFileIndexerProvider extends AbstractIndexerProvider {
     
     @Override
@@ -46,40 +55,159 @@ public class JavaFileIndexerProvider extends AbstractIndexerProvider {
     }
 
     @Override
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     public void index(API api, Container.Entry entry, Indexes indexes, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
         try {
             Listener listener = new Listener(entry);
             ASTParserFactory.getInstance().newASTParser(entry).createAST(null).accept(listener);
+            addToIndexes(indexes, listener, entry);
+            ProgressUtil.updateProgress(entry, getProgressFunction, setProgressFunction);
+        } catch (IOException e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+    }
 
-            // Append sets to indexes
-            addToIndexes(indexes, "typeDeclarations", listener.getTypeDeclarationSet(), entry);
-            addToIndexes(indexes, "constructorDeclarations", listener.getConstructorDeclarationSet(), entry);
-            addToIndexes(indexes, "methodDeclarations", listener.getMethodDeclarationSet(), entry);
-            addToIndexes(indexes, "fieldDeclarations", listener.getFieldDeclarationSet(), entry);
-            addToIndexes(indexes, "typeReferences", listener.getTypeReferenceSet(), entry);
-            addToIndexes(indexes, "constructorReferences", listener.getConstructorReferenceSet(), entry);
-            addToIndexes(indexes, "methodReferences", listener.getMethodReferenceSet(), entry);
-            addToIndexes(indexes, "fieldReferences", listener.getFieldReferenceSet(), entry);
-            addToIndexes(indexes, "strings", listener.getStringSet(), entry);
-    
-            // Populate map [super type name : [sub type name]]
-            Map<String, Collection> index = indexes.getIndex("subTypeNames");
-    
-            String typeName;
-            for (Map.Entry<String, Set<String>> e : listener.getSuperTypeNamesMap().entrySet()) {
-                typeName = e.getKey();
-    
-                for (String superTypeName : e.getValue()) {
-                    index.get(superTypeName).add(typeName);
+    /**
+     * Index a group of Java files. The files are parsed together with the multi-unit API of JDT, which
+     * reuses one compiler parser for the whole group. Only the files of directory containers are read
+     * from the file system: the files stored in an archive are parsed one by one.
+     */
+    public void index(API api, List<Container.Entry> entries, Indexes indexes, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+        Function<Container.Entry, Indexes> indexesFunction = entry -> indexes;
+        index(api, entries, indexesFunction, getProgressFunction, setProgressFunction, isCancelledFunction);
+    }
+
+    /**
+     * Index a group of Java files, each file into the indexes returned by 'indexesFunction'.
+     */
+    public void index(API api, List<Container.Entry> entries, Function<Container.Entry, Indexes> indexesFunction, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+        Map<String, Container.Entry> fileEntries = new LinkedHashMap<>();
+        // Archive URI -> unit name -> entry
+        Map<URI, Map<String, Container.Entry>> archiveEntries = new LinkedHashMap<>();
+
+        for (Container.Entry entry : entries) {
+            if (isCancelledFunction.getAsBoolean()) {
+                return;
+            }
+
+            File file = getFile(entry);
+
+            if (file == null) {
+                URI jarURI = entry.getContainer().getRoot().getParent().getUri();
+                archiveEntries.computeIfAbsent(jarURI, k -> new LinkedHashMap<>()).put(entry.getPath(), entry);
+            } else {
+                fileEntries.put(file.getPath(), entry);
+            }
+        }
+
+        if (fileEntries.size() == 1) {
+            Container.Entry entry = fileEntries.values().iterator().next();
+            index(api, entry, indexesFunction.apply(entry), getProgressFunction, setProgressFunction, isCancelledFunction);
+        } else if (!fileEntries.isEmpty()) {
+            Container.Entry firstEntry = fileEntries.values().iterator().next();
+            URI jarURI = firstEntry.getContainer().getRoot().getParent().getUri();
+            String[] sourceFilePaths = fileEntries.keySet().toArray(new String[0]);
+            String[] encodings = new String[sourceFilePaths.length];
+
+            Arrays.fill(encodings, StandardCharsets.UTF_8.name());
+
+            ASTParserFactory.getInstance().newASTParser(jarURI).createASTs(sourceFilePaths, encodings, new String[0], new FileASTRequestor() {
+                @Override
+                public void acceptAST(String sourceFilePath, CompilationUnit ast) {
+                    Container.Entry entry = fileEntries.get(sourceFilePath);
+
+                    if (entry != null && !isCancelledFunction.getAsBoolean()) {
+                        index(entry, ast, indexesFunction.apply(entry), getProgressFunction, setProgressFunction);
+                    }
+                }
+            }, null);
+        }
+
+        for (Map.Entry<URI, Map<String, Container.Entry>> archive : archiveEntries.entrySet()) {
+            Map<String, Container.Entry> unitEntries = archive.getValue();
+            Map<String, char[]> sources = new LinkedHashMap<>();
+
+            for (Container.Entry entry : unitEntries.values()) {
+                if (isCancelledFunction.getAsBoolean()) {
+                    return;
+                }
+                try {
+                    sources.put(entry.getPath(), ContainerLoader.loadEntry(entry, StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    assert ExceptionUtil.printStackTrace(e);
                 }
             }
+
+            ASTParserFactory.getInstance().createASTs(archive.getKey(), sources, (unitName, ast) -> {
+                if (!isCancelledFunction.getAsBoolean()) {
+                    Container.Entry entry = unitEntries.get(unitName);
+                    index(entry, ast, indexesFunction.apply(entry), getProgressFunction, setProgressFunction);
+                }
+            });
+        }
+    }
+
+    protected static void index(Container.Entry entry, CompilationUnit ast, Indexes indexes, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction) {
+        try {
+            Listener listener = new Listener(entry);
+            ast.accept(listener);
+            addToIndexes(indexes, listener, entry);
             ProgressUtil.updateProgress(entry, getProgressFunction, setProgressFunction);
         } catch (IOException e) {
             assert ExceptionUtil.printStackTrace(e);
         }
     }
 
+    /**
+     * @return the file of an entry of a directory container, or null if the entry is stored in an archive
+     */
+    protected static File getFile(Container.Entry entry) {
+        Container.Entry root = entry.getContainer().getRoot();
+
+        if (root != null && root.getParent() != null) {
+            URI uri = root.getParent().getUri();
+
+            if ("file".equals(uri.getScheme())) {
+                File directory = new File(uri);
+
+                if (directory.isDirectory()) {
+                    File file = new File(directory, entry.getPath());
+
+                    if (file.isFile()) {
+                        return file;
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    protected static void addToIndexes(Indexes indexes, Listener listener, Container.Entry entry) {
+        // Append sets to indexes
+        addToIndexes(indexes, "typeDeclarations", listener.getTypeDeclarationSet(), entry);
+        addToIndexes(indexes, "constructorDeclarations", listener.getConstructorDeclarationSet(), entry);
+        addToIndexes(indexes, "methodDeclarations", listener.getMethodDeclarationSet(), entry);
+        addToIndexes(indexes, "fieldDeclarations", listener.getFieldDeclarationSet(), entry);
+        addToIndexes(indexes, "typeReferences", listener.getTypeReferenceSet(), entry);
+        addToIndexes(indexes, "constructorReferences", listener.getConstructorReferenceSet(), entry);
+        addToIndexes(indexes, "methodReferences", listener.getMethodReferenceSet(), entry);
+        addToIndexes(indexes, "fieldReferences", listener.getFieldReferenceSet(), entry);
+        addToIndexes(indexes, "strings", listener.getStringSet(), entry);
+
+        // Populate map [super type name : [sub type name]]
+        Map<String, Collection> index = indexes.getIndex("subTypeNames");
+
+        String typeName;
+        for (Map.Entry<String, Set<String>> e : listener.getSuperTypeNamesMap().entrySet()) {
+            typeName = e.getKey();
+
+            for (String superTypeName : e.getValue()) {
+                index.get(superTypeName).add(typeName);
+            }
+        }
+    }
+
     protected static class Listener extends AbstractJavaListener {
         private Set<String> typeDeclarationSet = new HashSet<>();
         private Set<String> constructorDeclarationSet = new HashSet<>();
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.indexer;
+
+import org.jd.gui.api.API;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.api.model.Indexes;
+import org.jd.gui.spi.Indexer;
+import org.jd.gui.util.ProgressTracker;
+import org.jd.gui.util.index.MapIndexes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Fork-join indexing of a tree of entries. Each directory is forked into a new
+ * task, large directories are split, and each task indexes its files into its
+ * own {@link MapIndexes} before merging them into the shared indexes.
+ */
+public class ParallelIndexerTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final int MAXIMUM_FILES_PER_TASK = 128;
+
+    private final transient Context context;
+    private final transient Collection<Container.Entry> entries;
+    private final int depth;
+
+    protected ParallelIndexerTask(Context context, Collection<Container.Entry> entries, int depth) {
+        this.context = context;
+        this.entries = entries;
+        this.depth = depth;
+    }
+
+    /**
+     * Index the children of 'entry' up to 'depth' levels, using at most
+     * 'parallelism' threads. When called from an indexing task (nested archive),
+     * the work is executed in the current pool.
+     */
+    public static void index(API api, Container.Entry entry, Indexes indexes, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction, int depth, int parallelism) {
+        index(api, entry.getChildren().values(), indexes, null, getProgressFunction, setProgressFunction, isCancelledFunction, depth, parallelism);
+    }
+
+    /**
+     * Index 'entries', and the children of the directories up to 'depth' levels.
+     *
+     * @param entryIndexesConsumer called, by the indexing threads, with each indexed file and its own
+     *                             indexes, before they are merged into 'indexes'. Null if the
+     *                             contributions of the files are not needed.
+     */
+    public static void index(API api, Collection<Container.Entry> entries, Indexes indexes, BiConsumer<Container.Entry, MapIndexes> entryIndexesConsumer,
+            DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction, int depth, int parallelism) {
+        Context context = new Context(api, indexes, entryIndexesConsumer, getProgressFunction, setProgressFunction, isCancelledFunction);
+        ParallelIndexerTask task = new ParallelIndexerTask(context, entries, depth);
+
+        if (ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(task);
+            } finally {
+                pool.shutdown();
+            }
+            context.progressTracker.flush();
+        }
+    }
+
+    @Override
+    protected void compute() {
+        if (depth <= 0 || context.isCancelled()) {
+            return;
+        }
+
+        List<ParallelIndexerTask> subtasks = new ArrayList<>();
+        List<Container.Entry> files = new ArrayList<>();
+
+        for (Container.Entry e : entries) {
+            if (e.isDirectory()) {
+                subtasks.add(new ParallelIndexerTask(context, e.getChildren().values(), depth - 1));
+            } else {
+                files.add(e);
+            }
+        }
+
+        // Split large directories
+        int size = files.size();
+
+        while (size > MAXIMUM_FILES_PER_TASK) {
+            List<Container.Entry> tail = files.subList(size - MAXIMUM_FILES_PER_TASK, size);
+            subtasks.add(new ParallelIndexerTask(context, new ArrayList<>(tail), depth));
+            tail.clear();
+            size = files.size();
+        }
+
+        for (ParallelIndexerTask subtask : subtasks) {
+            subtask.fork();
+        }
+
+        indexFiles(files);
+
+        for (ParallelIndexerTask subtask : subtasks) {
+            subtask.join();
+        }
+    }
+
+    protected void indexFiles(List<Container.Entry> files) {
+        MapIndexes localIndexes = new MapIndexes();
+        // Indexes of each file, if the contributions of the files are recorded
+        Map<Container.Entry, MapIndexes> fileIndexes = context.entryIndexesConsumer == null ? null : new LinkedHashMap<>();
+        Function<Container.Entry, Indexes> indexesFunction = fileIndexes == null ? file -> localIndexes : file -> fileIndexes.computeIfAbsent(file, k -> new MapIndexes());
+        JavaFileIndexerProvider javaFileIndexer = null;
+        List<Container.Entry> javaFiles = new ArrayList<>();
+
+        for (Container.Entry file : files) {
+            if (context.isCancelled()) {
+                break;
+            }
+
+            Indexer indexer = context.api.getIndexer(file);
+
+            if (indexer instanceof JavaFileIndexerProvider) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                // Java files are parsed in batch
+                javaFileIndexer = (JavaFileIndexerProvider) indexer;
+                javaFiles.add(file);
+            } else if (indexer != null) {
+                indexer.index(context.api, file, indexesFunction.apply(file), context.progressTracker, context.progressTracker, context::isCancelled);
+            }
+        }
+
+        if (javaFileIndexer != null && !context.isCancelled()) {
+            javaFileIndexer.index(context.api, javaFiles, indexesFunction, context.progressTracker, context.progressTracker, context::isCancelled);
+        }
+
+        if (fileIndexes != null) {
+            for (Map.Entry<Container.Entry, MapIndexes> e : fileIndexes.entrySet()) {
+                MapIndexes indexes = e.getValue();
+
+                if (!indexes.isEmpty()) {
+                    context.entryIndexesConsumer.accept(e.getKey(), indexes);
+                    indexes.mergeInto(localIndexes);
+                }
+            }
+        }
+
+        if (!localIndexes.isEmpty()) {
+            context.merge(localIndexes);
+        }
+    }
+
+    /**
+     * State shared by all the tasks of an indexing.
+     */
+    protected static class Context {
+        private final API api;
+        private final Indexes indexes;
+        private final BiConsumer<Container.Entry, MapIndexes> entryIndexesConsumer;
+        // Progress added by the tasks without lock
+        private final ProgressTracker progressTracker;
+        private final BooleanSupplier isCancelledFunction;
+
+        public Context(API api, Indexes indexes, BiConsumer<Container.Entry, MapIndexes> entryIndexesConsumer, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+            this.api = api;
+            this.indexes = indexes;
+            this.entryIndexesConsumer = entryIndexesConsumer;
+            this.progressTracker = ProgressTracker.of(getProgressFunction, setProgressFunction);
+            this.isCancelledFunction = isCancelledFunction;
+        }
+
+        public boolean isCancelled() {
+            return isCancelledFunction.getAsBoolean();
+        }
+
+        public void merge(MapIndexes localIndexes) {
+            synchronized (indexes) {
+                localIndexes.mergeInto(indexes);
+            }
+        }
+    }
+}
@@ -27,12 +27,11 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
 public class XmlBasedFileIndexerProvider extends AbstractIndexerProvider {
-    private XMLInputFactory factory;
-
-    public XmlBasedFileIndexerProvider() {
-        factory = XMLInputFactory.newInstance();
+    private final ThreadLocal<XMLInputFactory> factories = ThreadLocal.withInitial(() -> {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
         factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
-    }
+        return factory;
+    });
 
     @Override
     public String[] getSelectors() {
@@ -46,7 +45,7 @@ public class XmlBasedFileIndexerProvider extends AbstractIndexerProvider {
 
         try (InputStream inputStream = entry.getInputStream()) {
 
-            reader = factory.createXMLStreamReader(inputStream);
+            reader = factories.get().createXMLStreamReader(inputStream);
 
             stringSet.add(reader.getVersion());
             stringSet.add(reader.getEncoding());
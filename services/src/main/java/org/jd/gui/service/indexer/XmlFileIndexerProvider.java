@@ -29,12 +29,11 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
 public class XmlFileIndexerProvider extends AbstractIndexerProvider {
-    protected XMLInputFactory factory;
-
-    public XmlFileIndexerProvider() {
-        factory = XMLInputFactory.newInstance();
+    protected final ThreadLocal<XMLInputFactory> factories = ThreadLocal.withInitial(() -> {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
         factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
-    }
+        return factory;
+    });
 
     @Override
     public String[] getSelectors() {
@@ -49,7 +48,7 @@ public class XmlFileIndexerProvider extends AbstractIndexerProvider {
 
         try (InputStream inputStream = entry.getInputStream()) {
 
-            reader = factory.createXMLStreamReader(inputStream);
+            reader = factories.get().createXMLStreamReader(inputStream);
 
             stringSet.add(reader.getVersion());
             stringSet.add(reader.getEncoding());
@@ -23,9 +23,19 @@ public class ZipFileIndexerProvider extends AbstractIndexerProvider {
 
     @Override
     public void index(API api, Container.Entry entry, Indexes indexes, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+        int parallelism = getParallelism(api);
+
+        if (parallelism > 1) {
+            ParallelIndexerTask.index(api, entry, indexes, getProgressFunction, setProgressFunction, isCancelledFunction, Integer.MAX_VALUE, parallelism);
+        } else {
+            indexSequentially(api, entry, indexes, getProgressFunction, setProgressFunction, isCancelledFunction);
+        }
+    }
+
+    protected void indexSequentially(API api, Container.Entry entry, Indexes indexes, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
         for (Container.Entry e : entry.getChildren().values()) {
             if (e.isDirectory()) {
-                index(api, e, indexes, getProgressFunction, setProgressFunction, isCancelledFunction);
+                indexSequentially(api, e, indexes, getProgressFunction, setProgressFunction, isCancelledFunction);
             } else {
                 Indexer indexer = api.getIndexer(e);
 
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.preferencespanel;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.spi.PreferencesPanel;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.util.Map;
+
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+/**
+ * Panel of a preference holding an integer between a minimum and a maximum.
+ */
+public abstract class AbstractIntegerPreferencesProvider extends JPanel implements PreferencesPanel, DocumentListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String key;
+    private final int minimum;
+    private final int maximum;
+    private final String defaultValue;
+
+    protected transient PreferencesPanel.PreferencesPanelChangeListener listener;
+    protected JTextField valueTextField;
+    protected Color errorBackgroundColor = Color.RED;
+    protected Color defaultBackgroundColor;
+
+    /**
+     * @param label label of the field, followed by the bounds
+     * @param hint  meaning of a particular value, displayed after the bounds, or null
+     */
+    protected AbstractIntegerPreferencesProvider(String label, String hint, String key, int minimum, int maximum, String defaultValue) {
+        super(new BorderLayout());
+
+        this.key = key;
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.defaultValue = defaultValue;
+
+        add(new JLabel(label + " (" + minimum + ".." + maximum + (hint == null ? "" : ", " + hint) + "): "), BorderLayout.WEST);
+
+        valueTextField = new JTextField();
+        valueTextField.getDocument().addDocumentListener(this);
+        add(valueTextField, BorderLayout.CENTER);
+
+        defaultBackgroundColor = valueTextField.getBackground();
+    }
+
+    // --- PreferencesPanel --- //
+    @Override
+    public JComponent getPanel() { return this; }
+
+    @Override
+    public void init(Color errorBackgroundColor) {
+        this.errorBackgroundColor = errorBackgroundColor;
+    }
+
+    @Override
+    public boolean isActivated() { return true; }
+
+    @Override
+    public void loadPreferences(Map<String, String> preferences) {
+        String preference = preferences.get(key);
+
+        valueTextField.setText(preference != null ? preference : defaultValue);
+        valueTextField.setCaretPosition(valueTextField.getText().length());
+    }
+
+    @Override
+    public void savePreferences(Map<String, String> preferences) {
+        preferences.put(key, valueTextField.getText());
+    }
+
+    @Override
+    public boolean arePreferencesValid() {
+        try {
+            String value = valueTextField.getText();
+            if (value != null && value.matches("\\d+")) {
+                int i = Integer.parseInt(value);
+                return i >= minimum && i <= maximum;
+            }
+        } catch (NumberFormatException e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+        return false;
+    }
+
+    @Override
+    public void addPreferencesChangeListener(PreferencesPanel.PreferencesPanelChangeListener listener) {
+        this.listener = listener;
+    }
+
+    // --- DocumentListener --- //
+    @Override
+    public void insertUpdate(DocumentEvent e) { onTextChange(); }
+    @Override
+    public void removeUpdate(DocumentEvent e) { onTextChange(); }
+    @Override
+    public void changedUpdate(DocumentEvent e) { onTextChange(); }
+
+    public void onTextChange() {
+        valueTextField.setBackground(arePreferencesValid() ? defaultBackgroundColor : errorBackgroundColor);
+
+        if (listener != null) {
+            listener.preferencesPanelChanged(this);
+        }
+    }
+
+    @Override
+    public void restoreDefaults() {
+        valueTextField.setText(defaultValue);
+    }
+
+    /**
+     * @return the number of threads of a parallelism preference, the number of processors if not set, 1 for a sequential processing
+     */
+    public static int getParallelism(Map<String, String> preferences, String key) {
+        String preference = preferences.get(key);
+
+        if (preference != null) {
+            try {
+                return Math.max(1, Integer.parseInt(preference.trim()));
+            } catch (NumberFormatException e) {
+                assert ExceptionUtil.printStackTrace(e);
+            }
+        }
+
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
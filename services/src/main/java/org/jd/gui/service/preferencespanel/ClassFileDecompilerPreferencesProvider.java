@@ -9,9 +9,12 @@ package org.jd.gui.service.preferencespanel;
 
 import org.jd.gui.spi.PreferencesPanel;
 import org.jd.gui.util.ImageUtil;
+import org.jd.gui.util.decompiler.DecompilationCache;
+import org.jd.gui.util.decompiler.DecompilationRace;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Font;
 import java.awt.GridLayout;
 import java.util.HashMap;
 import java.util.Map;
@@ -25,8 +28,11 @@ import javax.swing.JComboBox;
 import javax.swing.JComponent;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.JTextField;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingUtilities;
 
@@ -39,6 +45,8 @@ import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompile
 import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_PROCYON;
 import static org.jd.gui.util.decompiler.GuiPreferences.ADVANCED_CLASS_LOOKUP;
 import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_ENGINE;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_RACE;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_RACE_ENGINES;
 import static org.jd.gui.util.decompiler.GuiPreferences.REMOVE_UNNECESSARY_CASTS;
 import static org.jd.gui.util.decompiler.GuiPreferences.SHOW_COMPILER_ERRORS;
 import static org.jd.gui.util.decompiler.GuiPreferences.SHOW_COMPILER_INFO;
@@ -53,9 +61,13 @@ public class ClassFileDecompilerPreferencesProvider extends JPanel implements Pr
     protected JCheckBox showCompilerInfoCheckBox;
     protected JCheckBox advancedClassLookupCheckBox;
     protected JCheckBox removeUnnecessaryCastsCheckBox;
+    protected JCheckBox raceCheckBox;
     protected JLabel selectDecompiler;
     protected JComboBox<String> decompileEngine;
     protected JButton configureDecompiler;
+    protected JButton raceStatistics;
+    protected JLabel selectRaceEngines;
+    protected JTextField raceEngines;
 
     private static final String[] DECOMPILERS = { ENGINE_JD_CORE_V1, ENGINE_JD_CORE_V0, ENGINE_CFR, ENGINE_PROCYON, ENGINE_FERNFLOWER, ENGINE_VINEFLOWER, ENGINE_JADX };
 
@@ -73,6 +85,11 @@ public class ClassFileDecompilerPreferencesProvider extends JPanel implements Pr
         decompileEngine = new JComboBox<>(DECOMPILERS);
         configureDecompiler = new JButton("Configure", new ImageIcon(ImageUtil.getImage("/org/jd/gui/images/preferences.png")));
         configureDecompiler.addActionListener(e -> configureDecompiler());
+        raceCheckBox = new JCheckBox("Race the selected engine against other engines");
+        raceStatistics = new JButton("Race and patch statistics");
+        raceStatistics.addActionListener(e -> showRaceStatistics());
+        selectRaceEngines = new JLabel("Race engines (comma separated): ");
+        raceEngines = new JTextField(DecompilationRace.DEFAULT_ENGINES);
 
         add(advancedClassLookupCheckBox);
         add(showCompilerErrorsCheckBox);
@@ -82,6 +99,10 @@ public class ClassFileDecompilerPreferencesProvider extends JPanel implements Pr
         add(showCompilerInfoCheckBox);
         add(decompileEngine);
         add(configureDecompiler);
+        add(raceCheckBox);
+        add(raceStatistics);
+        add(selectRaceEngines);
+        add(raceEngines);
 
         JDCoreDecompilerPreferencesProvider jdCoreDecompilerPreferencesProvider = new JDCoreDecompilerPreferencesProvider(decompileEngine);
         decompilerPreferencesProviders.put(ENGINE_JD_CORE_V0, jdCoreDecompilerPreferencesProvider);
@@ -126,6 +147,22 @@ public class ClassFileDecompilerPreferencesProvider extends JPanel implements Pr
         optionDialog.setVisible(true);
     }
 
+    public void showRaceStatistics() {
+        StringBuilder sb = new StringBuilder();
+        DecompilationRace.getInstance().getStatistics().forEach((engineName, engineStatistics) ->
+            sb.append(engineName).append(": ").append(engineStatistics).append('\n'));
+        if (sb.length() == 0) {
+            sb.append("No race yet\n");
+        }
+        DecompilationCache.PatchTimings patchTimings = DecompilationCache.getInstance().getTotalPatchTimings();
+        sb.append('\n').append("Patched with JD-Core v0: ");
+        sb.append(patchTimings.classCount() == 0 ? "no class yet" : patchTimings.toString());
+        JTextArea textArea = new JTextArea(sb.toString());
+        textArea.setEditable(false);
+        textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, textArea.getFont().getSize()));
+        JOptionPane.showMessageDialog(this, textArea, "Race and Patch Statistics", JOptionPane.INFORMATION_MESSAGE);
+    }
+
     // --- PreferencesPanel --- //
     @Override
     public String getPreferencesGroupTitle() {
@@ -159,6 +196,8 @@ public class ClassFileDecompilerPreferencesProvider extends JPanel implements Pr
         advancedClassLookupCheckBox.setSelected("true".equals(preferences.get(ADVANCED_CLASS_LOOKUP)));
         removeUnnecessaryCastsCheckBox.setSelected("true".equals(preferences.get(REMOVE_UNNECESSARY_CASTS)));
         decompileEngine.setSelectedItem(preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1));
+        raceCheckBox.setSelected("true".equals(preferences.get(DECOMPILE_RACE)));
+        raceEngines.setText(preferences.getOrDefault(DECOMPILE_RACE_ENGINES, DecompilationRace.DEFAULT_ENGINES));
         for (PreferencesPanel preferencesPanel : decompilerPreferencesProviders.values()) {
             preferencesPanel.loadPreferences(preferences);
         }
@@ -172,6 +211,8 @@ public class ClassFileDecompilerPreferencesProvider extends JPanel implements Pr
         preferences.put(ADVANCED_CLASS_LOOKUP, Boolean.toString(advancedClassLookupCheckBox.isSelected()));
         preferences.put(REMOVE_UNNECESSARY_CASTS, Boolean.toString(removeUnnecessaryCastsCheckBox.isSelected()));
         preferences.put(DECOMPILE_ENGINE, decompileEngine.getSelectedItem().toString());
+        preferences.put(DECOMPILE_RACE, Boolean.toString(raceCheckBox.isSelected()));
+        preferences.put(DECOMPILE_RACE_ENGINES, raceEngines.getText().trim());
         for (PreferencesPanel preferencesPanel : decompilerPreferencesProviders.values()) {
             preferencesPanel.savePreferences(preferences);
         }
@@ -194,5 +235,7 @@ public class ClassFileDecompilerPreferencesProvider extends JPanel implements Pr
         advancedClassLookupCheckBox.setSelected(false);
         removeUnnecessaryCastsCheckBox.setSelected(false);
         decompileEngine.setSelectedItem(ENGINE_JD_CORE_V1);
+        raceCheckBox.setSelected(false);
+        raceEngines.setText(DecompilationRace.DEFAULT_ENGINES);
     }
 }
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.preferencespanel;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.spi.PreferencesPanel;
+import org.jd.gui.util.decompiler.DecompilationCache;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.util.Map;
+
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILATION_CACHE_DISK;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILATION_CACHE_SIZE;
+
+public class DecompilationCachePreferencesProvider extends JPanel implements PreferencesPanel, DocumentListener {
+
+    private static final long serialVersionUID = 1L;
+    protected static final int MAX_VALUE = 4096;
+    protected static final String DEFAULT_VALUE = String.valueOf(DecompilationCache.DEFAULT_MAXIMUM_SIZE);
+
+    protected transient PreferencesPanel.PreferencesPanelChangeListener listener;
+    protected JTextField maximumSizeTextField;
+    protected JCheckBox spillToDiskCheckBox;
+    protected Color errorBackgroundColor = Color.RED;
+    protected Color defaultBackgroundColor;
+
+    public DecompilationCachePreferencesProvider() {
+        super(new BorderLayout());
+
+        add(new JLabel("Maximum size of the decompiled sources in memory (0.." + MAX_VALUE + " MB, 0 = disabled): "), BorderLayout.WEST);
+
+        maximumSizeTextField = new JTextField();
+        maximumSizeTextField.getDocument().addDocumentListener(this);
+        add(maximumSizeTextField, BorderLayout.CENTER);
+
+        spillToDiskCheckBox = new JCheckBox("Store evicted sources on disk to save them again without decompiling");
+        add(spillToDiskCheckBox, BorderLayout.SOUTH);
+
+        defaultBackgroundColor = maximumSizeTextField.getBackground();
+    }
+
+    // --- PreferencesPanel --- //
+    @Override
+    public String getPreferencesGroupTitle() { return "Decompiler"; }
+    @Override
+    public String getPreferencesPanelTitle() { return "Decompilation cache"; }
+    @Override
+    public JComponent getPanel() { return this; }
+
+    @Override
+    public void init(Color errorBackgroundColor) {
+        this.errorBackgroundColor = errorBackgroundColor;
+    }
+
+    @Override
+    public boolean isActivated() { return true; }
+
+    @Override
+    public void loadPreferences(Map<String, String> preferences) {
+        String preference = preferences.get(DECOMPILATION_CACHE_SIZE);
+
+        maximumSizeTextField.setText(preference != null ? preference : DEFAULT_VALUE);
+        maximumSizeTextField.setCaretPosition(maximumSizeTextField.getText().length());
+        spillToDiskCheckBox.setSelected("true".equals(preferences.get(DECOMPILATION_CACHE_DISK)));
+    }
+
+    @Override
+    public void savePreferences(Map<String, String> preferences) {
+        preferences.put(DECOMPILATION_CACHE_SIZE, maximumSizeTextField.getText());
+        preferences.put(DECOMPILATION_CACHE_DISK, Boolean.toString(spillToDiskCheckBox.isSelected()));
+    }
+
+    @Override
+    public boolean arePreferencesValid() {
+        try {
+            String maximumSize = maximumSizeTextField.getText();
+            if (maximumSize != null && maximumSize.matches("\\d+")) {
+                int i = Integer.parseInt(maximumSize);
+                return i >= 0 && i <= MAX_VALUE;
+            }
+        } catch (NumberFormatException e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+        return false;
+    }
+
+    @Override
+    public void addPreferencesChangeListener(PreferencesPanel.PreferencesPanelChangeListener listener) {
+        this.listener = listener;
+    }
+
+    // --- DocumentListener --- //
+    @Override
+    public void insertUpdate(DocumentEvent e) { onTextChange(); }
+    @Override
+    public void removeUpdate(DocumentEvent e) { onTextChange(); }
+    @Override
+    public void changedUpdate(DocumentEvent e) { onTextChange(); }
+
+    public void onTextChange() {
+        maximumSizeTextField.setBackground(arePreferencesValid() ? defaultBackgroundColor : errorBackgroundColor);
+
+        if (listener != null) {
+            listener.preferencesPanelChanged(this);
+        }
+    }
+
+    @Override
+    public void restoreDefaults() {
+        maximumSizeTextField.setText(DEFAULT_VALUE);
+        spillToDiskCheckBox.setSelected(false);
+    }
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.preferencespanel;
+
+import org.jd.gui.spi.PreferencesPanel;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.util.Map;
+
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.WATCH_DIRECTORIES;
+
+public class DirectoryWatcherPreferencesProvider extends JPanel implements PreferencesPanel {
+
+    private static final long serialVersionUID = 1L;
+
+    protected JCheckBox enableCheckBox;
+
+    public DirectoryWatcherPreferencesProvider() {
+        super(new BorderLayout());
+
+        enableCheckBox = new JCheckBox("Watch opened directories and re-index the changed files");
+        add(enableCheckBox, BorderLayout.NORTH);
+    }
+
+    // --- PreferencesPanel --- //
+    @Override
+    public String getPreferencesGroupTitle() { return "Indexer"; }
+    @Override
+    public String getPreferencesPanelTitle() { return "Directory watcher"; }
+    @Override
+    public JComponent getPanel() { return this; }
+
+    @Override
+    public void init(Color errorBackgroundColor) {
+    }
+
+    @Override
+    public boolean isActivated() { return true; }
+
+    @Override
+    public void loadPreferences(Map<String, String> preferences) {
+        enableCheckBox.setSelected(!"false".equals(preferences.get(WATCH_DIRECTORIES)));
+    }
+
+    @Override
+    public void savePreferences(Map<String, String> preferences) {
+        preferences.put(WATCH_DIRECTORIES, Boolean.toString(enableCheckBox.isSelected()));
+    }
+
+    @Override
+    public boolean arePreferencesValid() { return true; }
+
+    @Override
+    public void addPreferencesChangeListener(PreferencesPanel.PreferencesPanelChangeListener listener) {
+    }
+
+    @Override
+    public void restoreDefaults() {
+        enableCheckBox.setSelected(true);
+    }
+}
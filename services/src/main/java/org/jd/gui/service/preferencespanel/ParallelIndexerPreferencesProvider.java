@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.preferencespanel;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.INDEXER_PARALLELISM;
+
+public class ParallelIndexerPreferencesProvider extends AbstractIntegerPreferencesProvider {
+
+    private static final long serialVersionUID = 1L;
+
+    public ParallelIndexerPreferencesProvider() {
+        super("Maximum number of indexing threads", "1 = sequential", INDEXER_PARALLELISM, 1, 256, String.valueOf(Runtime.getRuntime().availableProcessors()));
+    }
+
+    // --- PreferencesPanel --- //
+    @Override
+    public String getPreferencesGroupTitle() { return "Indexer"; }
+    @Override
+    public String getPreferencesPanelTitle() { return "Parallel indexing"; }
+}
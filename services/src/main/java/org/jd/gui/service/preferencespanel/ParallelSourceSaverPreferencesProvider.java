@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.preferencespanel;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.SOURCE_SAVER_PARALLELISM;
+
+public class ParallelSourceSaverPreferencesProvider extends AbstractIntegerPreferencesProvider {
+
+    private static final long serialVersionUID = 1L;
+
+    public ParallelSourceSaverPreferencesProvider() {
+        super("Number of decompiling threads", "1 = sequential", SOURCE_SAVER_PARALLELISM, 1, 256, String.valueOf(Runtime.getRuntime().availableProcessors()));
+    }
+
+    // --- PreferencesPanel --- //
+    @Override
+    public String getPreferencesGroupTitle() { return "Source saver"; }
+    @Override
+    public String getPreferencesPanelTitle() { return "Parallel saving"; }
+}
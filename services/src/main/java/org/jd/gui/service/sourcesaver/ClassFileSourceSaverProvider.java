@@ -7,44 +7,29 @@
 
 package org.jd.gui.service.sourcesaver;
 
-import org.jd.core.v1.printer.LineNumberStringBuilderPrinter;
-import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ByteCodeWriter;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
 import org.jd.core.v1.util.StringConstants;
 import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
-import org.jd.gui.util.MethodPatcher;
 import org.jd.gui.util.ProgressUtil;
 import org.jd.gui.util.decompiler.ContainerLoader;
-import org.jd.gui.util.loader.LoaderUtils;
-
-import com.heliosdecompiler.transformerapi.StandardTransformers;
-import com.heliosdecompiler.transformerapi.common.Loader;
+import org.jd.gui.util.decompiler.DecompilationCache;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Map;
 import java.util.function.BooleanSupplier;
 import java.util.function.DoubleConsumer;
 import java.util.function.DoubleSupplier;
 
-import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V0;
-import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V1;
-import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_ENGINE;
-
 import jd.core.ClassUtil;
-import jd.core.DecompilationResult;
 
 public class ClassFileSourceSaverProvider extends AbstractSourceSaverProvider {
 
     private static final String INTERNAL_ERROR = "// INTERNAL ERROR //";
 
-    protected ContainerLoader loader = new ContainerLoader();
-    protected LineNumberStringBuilderPrinter printer = new LineNumberStringBuilderPrinter();
-
     @Override
     public String[] getSelectors() { return appendSelectors("*:file:*.class"); }
 
@@ -74,34 +59,32 @@ public class ClassFileSourceSaverProvider extends AbstractSourceSaverProvider {
 
     @Override
     public void saveContent(API api, Path rootPath, Path path, Container.Entry entry, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+        ParallelSourceSaver parallelSourceSaver = ParallelSourceSaver.getCurrent();
+
+        if (parallelSourceSaver == null) {
+            writeCodeToFile(path, decompile(api, entry));
+            updateProgress(entry, getProgressFunction, setProgressFunction);
+        } else {
+            parallelSourceSaver.submit(() -> decompile(api, entry), sourceCode -> {
+                writeCodeToFile(path, sourceCode);
+                updateProgress(entry, getProgressFunction, setProgressFunction);
+            });
+        }
+    }
 
-        DecompilationResult decompiledResult = new DecompilationResult();
-        
+    protected String decompile(API api, Container.Entry entry) {
         try {
-            // Init preferences
-            Map<String, String> preferences = api.getPreferences();
-
             // Init loader
-            loader.setEntry(entry);
-
-            // Format internal name
-            String entryInternalName = ClassUtil.getInternalName(entry.getPath());
-            
-            String decompileEngine = preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1);
-            Loader apiLoader = LoaderUtils.createLoader(preferences, loader, entry);
-            decompiledResult = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, decompileEngine);
-            if (decompiledResult.getDecompiledOutput().contains(ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE)) {
-                DecompilationResult sourceCodeV0 = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, ENGINE_JD_CORE_V0);
-                decompiledResult.setDecompiledOutput(MethodPatcher.patchCode(decompiledResult.getDecompiledOutput(), sourceCodeV0.getDecompiledOutput(), entry));
-            }
+            ContainerLoader loader = new ContainerLoader(api, entry);
 
+            return DecompilationCache.getInstance().getSource(api.getPreferences(), loader, entry);
         } catch (Exception t) {
-            decompiledResult.setDecompiledOutput(INTERNAL_ERROR);
             assert ExceptionUtil.printStackTrace(t);
+            return INTERNAL_ERROR;
         }
-        
-        writeCodeToFile(path, decompiledResult.getDecompiledOutput());
-        
+    }
+
+    protected static void updateProgress(Container.Entry entry, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction) {
         try {
             ProgressUtil.updateProgress(entry, getProgressFunction, setProgressFunction);
             // update progress of inner classes that were filtered by PackageSourceSaverProvider
@@ -70,7 +70,18 @@ public class DirectorySourceSaverProvider extends AbstractSourceSaverProvider {
 
     @Override
     public void saveContent(API api, Path rootPath, Path path, Container.Entry entry, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
-        for (Container.Entry e : getChildren(entry)) {
+        try (ParallelSourceSaver parallelSourceSaver = ParallelSourceSaver.open(api, getProgressFunction, setProgressFunction, isCancelledFunction)) {
+            if (parallelSourceSaver == null) {
+                saveChildren(api, rootPath, entry, getProgressFunction, setProgressFunction, isCancelledFunction);
+            } else {
+                // Root directory: class files are decompiled by the workers of the pipeline
+                saveChildren(api, rootPath, entry, parallelSourceSaver.getProgressTracker(), parallelSourceSaver.getProgressTracker(), isCancelledFunction);
+            }
+        }
+    }
+
+    protected void saveChildren(API api, Path rootPath, Container.Entry entry, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+        for (Container.Entry e : getChildren(api, entry)) {
             if (isCancelledFunction.getAsBoolean()) {
                 break;
             }
@@ -83,5 +94,5 @@ public class DirectorySourceSaverProvider extends AbstractSourceSaverProvider {
         }
     }
 
-    protected Collection<Container.Entry> getChildren(Container.Entry entry) { return entry.getChildren().values(); }
+    protected Collection<Container.Entry> getChildren(API api, Container.Entry entry) { return entry.getChildren().values(); }
 }
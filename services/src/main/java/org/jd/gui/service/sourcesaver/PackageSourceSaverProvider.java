@@ -7,6 +7,7 @@
 
 package org.jd.gui.service.sourcesaver;
 
+import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Container.Entry;
 import org.jd.gui.util.container.JarContainerEntryUtil;
@@ -19,7 +20,7 @@ public class PackageSourceSaverProvider extends DirectorySourceSaverProvider {
     public String[] getSelectors() { return appendSelectors("jar:dir:*", "war:dir:*", "ear:dir:*"); }
 
     @Override
-    protected Collection<Entry> getChildren(Container.Entry entry) {
-        return JarContainerEntryUtil.removeInnerTypeEntries(entry.getChildren());
+    protected Collection<Entry> getChildren(API api, Container.Entry entry) {
+        return JarContainerEntryUtil.removeInnerTypeEntries(api.getCollectionOfFutureIndexes(), entry.getChildren());
     }
 }
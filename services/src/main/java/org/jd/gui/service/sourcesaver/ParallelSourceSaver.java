@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.sourcesaver;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.api.API;
+import org.jd.gui.service.preferencespanel.AbstractIntegerPreferencesProvider;
+import org.jd.gui.util.ProgressTracker;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.SOURCE_SAVER_PARALLELISM;
+
+/**
+ * Saving pipeline: sources are produced by a pool of workers and written, in completion order,
+ * by a single writer thread. The number of sources produced but not yet written is bounded.<br>
+ * <br>
+ * The pipeline is bound to the thread walking the entries, so that nested savers can find it
+ * with {@link #getCurrent()}.
+ */
+public class ParallelSourceSaver implements AutoCloseable {
+    protected static final ThreadLocal<ParallelSourceSaver> CURRENT = new ThreadLocal<>();
+    protected static final int MAXIMUM_PENDING_TASKS_PER_WORKER = 4;
+
+    // Progress added by the workers without lock
+    private final ProgressTracker progressTracker;
+    private final BooleanSupplier isCancelledFunction;
+    private final ExecutorService workers;
+    private final ExecutorService writer;
+    private final Semaphore pendingTasks;
+    private final int maximumPendingTasks;
+
+    protected ParallelSourceSaver(DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction, int parallelism) {
+        this.progressTracker = ProgressTracker.of(getProgressFunction, setProgressFunction);
+        this.isCancelledFunction = isCancelledFunction;
+        this.workers = Executors.newFixedThreadPool(parallelism, newThreadFactory("jd-gui-source-saver-worker"));
+        this.writer = Executors.newSingleThreadExecutor(newThreadFactory("jd-gui-source-saver-writer"));
+        this.maximumPendingTasks = parallelism * MAXIMUM_PENDING_TASKS_PER_WORKER;
+        this.pendingTasks = new Semaphore(maximumPendingTasks);
+    }
+
+    /**
+     * Open a pipeline for the current thread.
+     *
+     * @return the new pipeline, or null if a pipeline is already open or if saving is sequential
+     */
+    public static ParallelSourceSaver open(API api, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction, BooleanSupplier isCancelledFunction) {
+        int parallelism = AbstractIntegerPreferencesProvider.getParallelism(api.getPreferences(), SOURCE_SAVER_PARALLELISM);
+
+        if (CURRENT.get() != null || parallelism <= 1) {
+            return null;
+        }
+
+        ParallelSourceSaver parallelSourceSaver = new ParallelSourceSaver(getProgressFunction, setProgressFunction, isCancelledFunction, parallelism);
+        CURRENT.set(parallelSourceSaver);
+        return parallelSourceSaver;
+    }
+
+    public static ParallelSourceSaver getCurrent() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Wait for the sources submitted by the current thread to be written, before closing a target file system.
+     */
+    public static void flushCurrent() {
+        ParallelSourceSaver parallelSourceSaver = CURRENT.get();
+
+        if (parallelSourceSaver != null) {
+            parallelSourceSaver.flush();
+        }
+    }
+
+    /**
+     * Produce a source with a worker, then consume it with the writer. Blocks while too many sources are pending.
+     */
+    public <T> void submit(Supplier<T> producer, Consumer<T> consumer) {
+        pendingTasks.acquireUninterruptibly();
+
+        try {
+            workers.execute(() -> produce(producer, consumer));
+        } catch (RuntimeException e) {
+            pendingTasks.release();
+            throw e;
+        }
+    }
+
+    protected <T> void produce(Supplier<T> producer, Consumer<T> consumer) {
+        boolean released = false;
+
+        try {
+            if (!isCancelledFunction.getAsBoolean()) {
+                T result = producer.get();
+                writer.execute(() -> consume(consumer, result));
+                released = true;
+            }
+        } catch (Exception e) {
+            assert ExceptionUtil.printStackTrace(e);
+        } finally {
+            if (!released) {
+                pendingTasks.release();
+            }
+        }
+    }
+
+    protected <T> void consume(Consumer<T> consumer, T result) {
+        try {
+            if (!isCancelledFunction.getAsBoolean()) {
+                consumer.accept(result);
+            }
+        } catch (Exception e) {
+            assert ExceptionUtil.printStackTrace(e);
+        } finally {
+            pendingTasks.release();
+        }
+    }
+
+    public void flush() {
+        pendingTasks.acquireUninterruptibly(maximumPendingTasks);
+        pendingTasks.release(maximumPendingTasks);
+    }
+
+    public ProgressTracker getProgressTracker() {
+        return progressTracker;
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+            progressTracker.flush();
+        } finally {
+            CURRENT.remove();
+            workers.shutdown();
+            writer.shutdown();
+        }
+    }
+
+    protected static ThreadFactory newThreadFactory(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
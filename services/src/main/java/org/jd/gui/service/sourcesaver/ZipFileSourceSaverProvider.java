@@ -58,6 +58,8 @@ public class ZipFileSourceSaverProvider extends DirectorySourceSaverProvider {
                 try (FileSystem tmpArchiveFs = FileSystems.newFileSystem(tmpArchiveUri, env)) {
                     Path tmpArchiveRootPath = tmpArchiveFs.getPath("/");
                     saveContent(api, tmpArchiveRootPath, tmpArchiveRootPath, entry, getProgressFunction, setProgressFunction, isCancelledFunction);
+                    // Wait for the pending sources of the nested archive before closing it
+                    ParallelSourceSaver.flushCurrent();
                 }
 
                 Files.move(tmpFile.toPath(), path);
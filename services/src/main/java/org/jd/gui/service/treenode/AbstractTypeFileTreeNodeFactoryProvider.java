@@ -9,6 +9,7 @@ package org.jd.gui.service.treenode;
 
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
 import org.jd.gui.api.API;
+import org.jd.gui.api.feature.AsyncTreeNodeExpandable;
 import org.jd.gui.api.feature.ContainerEntryGettable;
 import org.jd.gui.api.feature.PageCreator;
 import org.jd.gui.api.feature.TreeNodeExpandable;
@@ -28,6 +29,7 @@ import java.util.List;
 import javax.swing.Icon;
 import javax.swing.JComponent;
 import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.MutableTreeNode;
 
 public abstract class AbstractTypeFileTreeNodeFactoryProvider extends AbstractTreeNodeFactoryProvider {
 
@@ -76,7 +78,7 @@ public abstract class AbstractTypeFileTreeNodeFactoryProvider extends AbstractTr
         }
     }
 
-    protected static class FileTreeNode extends BaseTreeNode implements TreeNodeExpandable {
+    protected static class FileTreeNode extends BaseTreeNode implements AsyncTreeNodeExpandable {
 
         private static final long serialVersionUID = 1L;
         protected boolean initialized;
@@ -92,24 +94,38 @@ public abstract class AbstractTypeFileTreeNodeFactoryProvider extends AbstractTr
             add(new DefaultMutableTreeNode());
         }
 
-        // --- TreeNodeExpandable --- //
+        // --- AsyncTreeNodeExpandable --- //
         @Override
-        public void populateTreeNode(API api) {
-            if (!initialized) {
-                removeAllChildren();
-                // Create type node
-                TypeFactory typeFactory = api.getTypeFactory(entry);
+        public boolean isPopulated() {
+            return initialized;
+        }
 
-                if (typeFactory != null) {
-                    Collection<Type> types = typeFactory.make(api, entry);
+        @Override
+        public List<MutableTreeNode> createChildNodes(API api) {
+            List<MutableTreeNode> childNodes = new ArrayList<>();
+            // Create type node
+            TypeFactory typeFactory = api.getTypeFactory(entry);
 
-                    for (Type type : types) {
-                        add(new TypeTreeNode(entry, type, new TreeNodeBean(type.getDisplayTypeName(), type.getIcon()), factory));
-                    }
-                }
+            if (typeFactory != null) {
+                Collection<Type> types = typeFactory.make(api, entry);
 
-                initialized = true;
+                for (Type type : types) {
+                    childNodes.add(createTypeNode(type));
+                }
             }
+
+            return childNodes;
+        }
+
+        protected MutableTreeNode createTypeNode(Type type) {
+            return new TypeTreeNode(entry, type, new TreeNodeBean(type.getDisplayTypeName(), type.getIcon()), factory);
+        }
+
+        @Override
+        public void setChildNodes(List<MutableTreeNode> childNodes) {
+            removeAllChildren();
+            childNodes.forEach(this::add);
+            initialized = true;
         }
     }
 
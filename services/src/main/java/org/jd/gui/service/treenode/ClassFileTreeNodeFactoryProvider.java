@@ -60,7 +60,7 @@ public class ClassFileTreeNodeFactoryProvider extends AbstractTypeFileTreeNodeFa
         String label = entry.getPath().substring(lastSlashIndex + 1);
         ClassFileTreeNodeBean treeNodeBean = new ClassFileTreeNodeBean(api, label, entry);
         FileTreeNode fileTreeNode = new FileTreeNode(entry, treeNodeBean, FACTORY);
-        treeNodeBean.getWorker().execute();
+        treeNodeBean.computeState();
         return (T) fileTreeNode;
     }
 
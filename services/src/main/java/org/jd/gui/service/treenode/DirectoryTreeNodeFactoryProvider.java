@@ -9,7 +9,7 @@ package org.jd.gui.service.treenode;
 
 import org.jd.gui.api.API;
 import org.jd.gui.api.feature.ContainerEntryGettable;
-import org.jd.gui.api.feature.TreeNodeExpandable;
+import org.jd.gui.api.feature.AsyncTreeNodeExpandable;
 import org.jd.gui.api.feature.UriGettable;
 import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Container.Entry;
@@ -19,10 +19,13 @@ import org.jd.gui.view.data.TreeNodeBean;
 
 import java.io.File;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import javax.swing.ImageIcon;
 import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.MutableTreeNode;
 
 public class DirectoryTreeNodeFactoryProvider extends AbstractTreeNodeFactoryProvider {
 
@@ -70,7 +73,7 @@ public class DirectoryTreeNodeFactoryProvider extends AbstractTreeNodeFactoryPro
         return OPEN_ICON;
     }
 
-    protected class TreeNode extends DefaultMutableTreeNode implements ContainerEntryGettable, UriGettable, TreeNodeExpandable {
+    protected class TreeNode extends DefaultMutableTreeNode implements ContainerEntryGettable, UriGettable, AsyncTreeNodeExpandable {
 
         private static final long serialVersionUID = 1L;
 
@@ -95,34 +98,44 @@ public class DirectoryTreeNodeFactoryProvider extends AbstractTreeNodeFactoryPro
             return entry.getUri();
         }
 
-        // --- TreeNodeExpandable --- //
+        // --- AsyncTreeNodeExpandable --- //
         @Override
-        public void populateTreeNode(API api) {
-            if (!initialized) {
-                removeAllChildren();
-
-                Collection<Container.Entry> entries = getChildren();
-
-                while (entries.size() == 1) {
-                    Entry child = entries.iterator().next();
-                    if (!child.isDirectory() || api.getTreeNodeFactory(child) != DirectoryTreeNodeFactoryProvider.this) {
-                        break;
-                    }
-                    entries = child.getChildren().values();
-                }
+        public boolean isPopulated() {
+            return initialized;
+        }
+
+        @Override
+        public List<MutableTreeNode> createChildNodes(API api) {
+            Collection<Container.Entry> entries = getChildren(api);
 
-                for (Entry nextEntry : entries) {
-                    TreeNodeFactory factory = api.getTreeNodeFactory(nextEntry);
-                    if (factory != null) {
-                        add(factory.make(api, nextEntry));
-                    }
+            while (entries.size() == 1) {
+                Entry child = entries.iterator().next();
+                if (!child.isDirectory() || api.getTreeNodeFactory(child) != DirectoryTreeNodeFactoryProvider.this) {
+                    break;
                 }
+                entries = child.getChildren().values();
+            }
+
+            List<MutableTreeNode> childNodes = new ArrayList<>(entries.size());
 
-                initialized = true;
+            for (Entry nextEntry : entries) {
+                TreeNodeFactory factory = api.getTreeNodeFactory(nextEntry);
+                if (factory != null) {
+                    childNodes.add(factory.make(api, nextEntry));
+                }
             }
+
+            return childNodes;
+        }
+
+        @Override
+        public void setChildNodes(List<MutableTreeNode> childNodes) {
+            removeAllChildren();
+            childNodes.forEach(this::add);
+            initialized = true;
         }
 
-        public Collection<Container.Entry> getChildren() {
+        public Collection<Container.Entry> getChildren(API api) {
             return entry.getChildren().values();
         }
     }
@@ -70,8 +70,8 @@ public class JarFileTreeNodeFactoryProvider extends ZipFileTreeNodeFactoryProvid
         }
 
         @Override
-        public Collection<Container.Entry> getChildren() {
-            return JarContainerEntryUtil.removeInnerTypeEntries(entry.getChildren());
+        public Collection<Container.Entry> getChildren(API api) {
+            return JarContainerEntryUtil.removeInnerTypeEntries(api.getCollectionOfFutureIndexes(), entry.getChildren());
         }
     }
 }
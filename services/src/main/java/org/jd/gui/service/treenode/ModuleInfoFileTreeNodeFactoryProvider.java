@@ -12,18 +12,17 @@ import org.jd.gui.api.feature.ContainerEntryGettable;
 import org.jd.gui.api.feature.UriGettable;
 import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Type;
-import org.jd.gui.spi.TypeFactory;
 import org.jd.gui.util.ImageUtil;
 import org.jd.gui.view.data.TreeNodeBean;
 import org.jd.gui.view.component.ModuleInfoFilePage;
 
 import java.io.File;
-import java.util.Collection;
 import java.util.regex.Pattern;
 
 import javax.swing.ImageIcon;
 import javax.swing.JComponent;
 import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.MutableTreeNode;
 
 public class ModuleInfoFileTreeNodeFactoryProvider extends ClassFileTreeNodeFactoryProvider {
 
@@ -56,24 +55,9 @@ public class ModuleInfoFileTreeNodeFactoryProvider extends ClassFileTreeNodeFact
             super(entry, null, userObject, pageAndTipFactory);
         }
 
-        // --- TreeNodeExpandable --- //
         @Override
-        public void populateTreeNode(API api) {
-            if (!initialized) {
-                removeAllChildren();
-                // Create type node
-                TypeFactory typeFactory = api.getTypeFactory(entry);
-
-                if (typeFactory != null) {
-                    Collection<Type> types = typeFactory.make(api, entry);
-
-                    for (Type type : types) {
-                        add(new BaseTreeNode(entry, type.getName(), new TreeNodeBean(type.getDisplayTypeName(), MODULE_FILE_ICON), factory));
-                    }
-                }
-
-                initialized = true;
-            }
+        protected MutableTreeNode createTypeNode(Type type) {
+            return new BaseTreeNode(entry, type.getName(), new TreeNodeBean(type.getDisplayTypeName(), MODULE_FILE_ICON), factory);
         }
     }
 
@@ -86,8 +86,8 @@ public class PackageTreeNodeFactoryProvider extends DirectoryTreeNodeFactoryProv
         }
 
         @Override
-        public Collection<Container.Entry> getChildren() {
-            return JarContainerEntryUtil.removeInnerTypeEntries(entry.getChildren());
+        public Collection<Container.Entry> getChildren(API api) {
+            return JarContainerEntryUtil.removeInnerTypeEntries(api.getCollectionOfFutureIndexes(), entry.getChildren());
         }
     }
 }
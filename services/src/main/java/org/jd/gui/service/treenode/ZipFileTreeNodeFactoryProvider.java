@@ -16,9 +16,13 @@ import org.jd.gui.util.ImageUtil;
 import org.jd.gui.view.data.TreeNodeBean;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 import javax.swing.ImageIcon;
 import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.MutableTreeNode;
 
 public class ZipFileTreeNodeFactoryProvider extends DirectoryTreeNodeFactoryProvider {
 
@@ -49,21 +53,20 @@ public class ZipFileTreeNodeFactoryProvider extends DirectoryTreeNodeFactoryProv
             super(entry, userObject);
         }
 
-        // --- TreeNodeExpandable --- //
+        // --- AsyncTreeNodeExpandable --- //
         @Override
-        public void populateTreeNode(API api) {
-            if (!initialized) {
-                removeAllChildren();
+        public List<MutableTreeNode> createChildNodes(API api) {
+            Collection<Container.Entry> entries = getChildren(api);
+            List<MutableTreeNode> childNodes = new ArrayList<>(entries.size());
 
-                for (Container.Entry e : getChildren()) {
-                    TreeNodeFactory factory = api.getTreeNodeFactory(e);
-                    if (factory != null) {
-                        add(factory.make(api, e));
-                    }
+            for (Container.Entry e : entries) {
+                TreeNodeFactory factory = api.getTreeNodeFactory(e);
+                if (factory != null) {
+                    childNodes.add(factory.make(api, e));
                 }
-
-                initialized = true;
             }
+
+            return childNodes;
         }
     }
 }
@@ -13,7 +13,6 @@ import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Type;
 import org.jd.gui.model.container.entry.path.FileEntryPath;
-import org.jd.util.LRUCache;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
@@ -22,7 +21,6 @@ import org.objectweb.asm.Opcodes;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -32,9 +30,6 @@ import javax.swing.Icon;
 
 public class ClassFileTypeFactoryProvider extends AbstractTypeFactoryProvider {
 
-    // Create cache
-    protected LRUCache<URI, JavaType> cache = new LRUCache<>();
-
     @Override
     public String[] getSelectors() { return appendSelectors("*:file:*.class"); }
 
@@ -45,24 +40,32 @@ public class ClassFileTypeFactoryProvider extends AbstractTypeFactoryProvider {
 
     @Override
     public Type make(API api, Container.Entry entry, String fragment) {
-        URI key = entry.getUri();
+        String typeName = null;
+
+        if (fragment != null && !fragment.isEmpty()) {
+            // Search type name in fragment. URI format : see jd.gui.api.feature.UriOpener
+            int index = fragment.indexOf('-');
+            // Keep type name only
+            typeName = index == -1 ? fragment : fragment.substring(0, index);
+        }
 
-        if (cache.containsKey(key)) {
-            return cache.get(key);
+        // The model of an inner type may be searched from the entry of its outer type
+        String key = entry.getUri().toString();
+        if (typeName != null && !entry.getPath().endsWith(typeName + StringConstants.CLASS_FILE_SUFFIX)) {
+            key += '#' + typeName;
         }
+
+        String finalTypeName = typeName;
+        return TypeCache.getInstance().get(key, entry.length(), () -> load(entry, finalTypeName));
+    }
+
+    protected JavaType load(Container.Entry entry, String fragment) {
         JavaType type;
 
         try (InputStream is = entry.getInputStream()) {
             ClassReader classReader = new ClassReader(is);
 
-            if (fragment != null && !fragment.isEmpty()) {
-                // Search type name in fragment. URI format : see jd.gui.api.feature.UriOpener
-                int index = fragment.indexOf('-');
-                if (index != -1) {
-                    // Keep type name only
-                    fragment = fragment.substring(0, index);
-                }
-
+            if (fragment != null) {
                 if (!classReader.getClassName().equals(fragment)) {
                     // Search entry for type name
                     String entryTypePath = classReader.getClassName() + StringConstants.CLASS_FILE_SUFFIX;
@@ -108,7 +111,6 @@ public class ClassFileTypeFactoryProvider extends AbstractTypeFactoryProvider {
             type = null;
         }
 
-        cache.put(key, type);
         return type;
     }
 
@@ -20,10 +20,8 @@ import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Type;
 import org.jd.gui.util.parser.jdt.ASTParserFactory;
 import org.jd.gui.util.parser.jdt.core.AbstractJavaListener;
-import org.jd.util.LRUCache;
 
 import java.io.IOException;
-import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -38,9 +36,6 @@ import static org.apache.bcel.Const.ACC_STATIC;
 
 public class JavaFileTypeFactoryProvider extends AbstractTypeFactoryProvider {
 
-    // Create cache
-    protected LRUCache<URI, Listener> cache = new LRUCache<>();
-
     @Override
     public String[] getSelectors() {
         return appendSelectors("*:file:*.java");
@@ -78,11 +73,10 @@ public class JavaFileTypeFactoryProvider extends AbstractTypeFactoryProvider {
     }
 
     protected Listener getListener(Container.Entry entry) {
-        URI key = entry.getUri();
+        return TypeCache.getInstance().get(entry.getUri().toString(), entry.length(), () -> load(entry));
+    }
 
-        if (cache.containsKey(key)) {
-            return cache.get(key);
-        }
+    protected Listener load(Container.Entry entry) {
         Listener listener;
 
         try {
@@ -93,7 +87,6 @@ public class JavaFileTypeFactoryProvider extends AbstractTypeFactoryProvider {
             listener = null;
         }
 
-        cache.put(key, listener);
         return listener;
     }
 
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.type;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the type models, shared by the class file and Java file type factories.<br>
+ * <br>
+ * Models are keyed by the URI of their entry. The memory used by the models is estimated from
+ * the size of their entries, and the least recently used models are evicted first. Models are
+ * built outside of the lock, so that the type factories can be called concurrently.
+ */
+public final class TypeCache {
+    /** Estimated memory used by a model, in addition to the size of its entry. */
+    protected static final long MODEL_WEIGHT = 256;
+    protected static final long DEFAULT_MAXIMUM_WEIGHT = Math.max(8L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 32);
+
+    private static final TypeCache TYPE_CACHE = new TypeCache(DEFAULT_MAXIMUM_WEIGHT);
+
+    private final LinkedHashMap<String, CachedModel> models = new LinkedHashMap<>(16, 0.75F, true);
+    private final long maximumWeight;
+    private long weight;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    protected TypeCache(long maximumWeight) {
+        this.maximumWeight = maximumWeight;
+    }
+
+    public static TypeCache getInstance() { return TYPE_CACHE; }
+
+    /**
+     * @param key         the URI of the entry, followed by the type name if the model depends on it
+     * @param entryLength the size of the entry, to estimate the memory used by the model
+     * @param factory     the builder of the model, called outside of the lock. A null model is cached too.
+     * @return the cached or the new model
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, long entryLength, Supplier<T> factory) {
+        synchronized (this) {
+            CachedModel cachedModel = models.get(key);
+
+            if (cachedModel != null) {
+                hitCount.incrementAndGet();
+                return (T) cachedModel.model();
+            }
+        }
+
+        missCount.incrementAndGet();
+
+        T model = factory.get();
+        CachedModel cachedModel = new CachedModel(model, MODEL_WEIGHT + Math.max(0, entryLength));
+
+        synchronized (this) {
+            CachedModel previous = models.put(key, cachedModel);
+
+            weight += cachedModel.weight();
+            if (previous != null) {
+                weight -= previous.weight();
+            }
+
+            Iterator<CachedModel> iterator = models.values().iterator();
+
+            while (weight > maximumWeight && iterator.hasNext()) {
+                weight -= iterator.next().weight();
+                iterator.remove();
+                evictionCount.incrementAndGet();
+            }
+        }
+
+        return model;
+    }
+
+    /**
+     * Evict the models of the closed containers.
+     *
+     * @param openedURIs URIs of the opened containers, the models of their nested containers are kept
+     */
+    public synchronized void retain(Collection<URI> openedURIs) {
+        Iterator<Map.Entry<String, CachedModel>> iterator = models.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<String, CachedModel> entry = iterator.next();
+
+            if (!isOpened(entry.getKey(), openedURIs)) {
+                weight -= entry.getValue().weight();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Evict the models of the changed entries.
+     *
+     * @param keyPredicate true for the keys of the changed entries
+     */
+    public synchronized void remove(Predicate<String> keyPredicate) {
+        Iterator<Map.Entry<String, CachedModel>> iterator = models.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<String, CachedModel> entry = iterator.next();
+
+            if (keyPredicate.test(entry.getKey())) {
+                weight -= entry.getValue().weight();
+                iterator.remove();
+            }
+        }
+    }
+
+    private static boolean isOpened(String key, Collection<URI> openedURIs) {
+        for (URI openedURI : openedURIs) {
+            if (key.startsWith(openedURI.toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void clear() {
+        models.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() { return models.size(); }
+    public synchronized long getWeight() { return weight; }
+    public long getMaximumWeight() { return maximumWeight; }
+    public long getHitCount() { return hitCount.get(); }
+    public long getMissCount() { return missCount.get(); }
+    public long getEvictionCount() { return evictionCount.get(); }
+
+    @Override
+    public String toString() {
+        return "TypeCache{size=" + size() + ", weight=" + getWeight() + "/" + maximumWeight
+                + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "}";
+    }
+
+    private record CachedModel(Object model, long weight) {}
+}
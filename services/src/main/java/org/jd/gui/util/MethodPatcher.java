@@ -1,97 +1,326 @@
 package org.jd.gui.util;
 
+import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.ArrayType;
 import org.eclipse.jdt.core.dom.CompilationUnit;
-import org.eclipse.jdt.core.dom.IMethodBinding;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
-import org.eclipse.jdt.core.dom.rewrite.ASTRewrite;
-import org.eclipse.jface.text.BadLocationException;
-import org.eclipse.jface.text.Document;
-import org.eclipse.text.edits.InsertEdit;
-import org.eclipse.text.edits.MalformedTreeException;
-import org.eclipse.text.edits.ReplaceEdit;
-import org.eclipse.text.edits.TextEdit;
+import org.eclipse.jdt.core.dom.NameQualifiedType;
+import org.eclipse.jdt.core.dom.ParameterizedType;
+import org.eclipse.jdt.core.dom.QualifiedType;
+import org.eclipse.jdt.core.dom.SimpleType;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
+import org.eclipse.jdt.core.dom.Type;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ByteCodeWriter;
-import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
-import org.jd.gui.api.model.Container;
 import org.jd.gui.util.parser.jdt.ASTParserFactory;
 import org.jd.util.Range;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Patch the methods that JD-Core v1 failed to decompile with the methods decompiled by JD-Core v0.<br>
+ * <br>
+ * Methods are matched by signature: the key of a method is the path of its declaring type, its name and
+ * the simple names of its parameter types ("Outer$Inner#method(int,String[])"). Sources are parsed without
+ * binding resolution. A method declared in an anonymous or a local class is patched with its enclosing
+ * method.
+ */
 public final class MethodPatcher {
 
+    public static final String PATCHED_COMMENT = "/* Patched from JD-Core V0 */";
+
+    private static final String CONSTRUCTOR_NAME = "<init>";
+
     private MethodPatcher() {
         super();
     }
 
-    public static String patchCode(String sourceCodeV1, String sourceCodeV0, Container.Entry entry) {
-        Map<String, Range> methodKeyPositionRanges = new HashMap<>();
-        URI jarURI = entry.getContainer().getRoot().getParent().getUri();
-        String unitName = entry.getPath();
-        ASTParserFactory astParserFactory = ASTParserFactory.getInstanceWithBindings();
-        CompilationUnit compilationUnit = (CompilationUnit) astParserFactory.newASTParser(sourceCodeV1.toCharArray(), unitName, jarURI).createAST(null); 
-        ASTRewrite rewriter = ASTRewrite.create(compilationUnit.getAST());
-        Document document = new Document(sourceCodeV1);
-        TextEdit textEdit = rewriter.rewriteAST(document, null);
-        compilationUnit.accept(new ASTVisitor() {
+    /**
+     * @return the ranges of the bodies of the methods JD-Core v1 failed to decompile, by key of method
+     */
+    public static Map<String, Range> findFailedMethods(String sourceCodeV1, String unitName, URI jarURI) {
+        Map<String, Range> failedMethods = new LinkedHashMap<>();
+
+        if (sourceCodeV1.contains(ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE)) {
+            for (Map.Entry<String, MethodDeclaration> entry : getMethodDeclarations(sourceCodeV1, unitName, jarURI).entrySet()) {
+                Range range = getBodyRange(entry.getValue());
+                if (sourceCodeV1.substring(range.minimum(), range.maximum()).contains(ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE)) {
+                    failedMethods.put(entry.getKey(), range);
+                }
+            }
+        }
+
+        return failedMethods;
+    }
+
+    /**
+     * @param methodKeys   keys of the methods to decompile again
+     * @param internalName internal name of the decompiled class
+     * @return the names of the methods to decompile again, by internal name of the declaring class
+     */
+    public static Map<String, Set<String>> getMethodNames(Collection<String> methodKeys, String internalName) {
+        Map<String, Set<String>> methodNames = new HashMap<>();
+        int lastSeparatorIndex = internalName.lastIndexOf('/');
+        String packagePrefix = internalName.substring(0, lastSeparatorIndex + 1);
+
+        for (String methodKey : methodKeys) {
+            int sharpIndex = methodKey.indexOf('#');
+            String typeInternalName = packagePrefix + methodKey.substring(0, sharpIndex);
+            String methodName = methodKey.substring(sharpIndex + 1, methodKey.indexOf('(', sharpIndex));
+            methodNames.computeIfAbsent(typeInternalName, k -> new HashSet<>()).add(methodName);
+        }
+
+        return methodNames;
+    }
+
+    /**
+     * @param outerInternalName internal name of the decompiled class
+     * @param internalName      internal name of a class loaded by the decompiler
+     * @return true if the class is the decompiled class or one of its named member classes, whose
+     *         methods can be filtered (the anonymous and the local classes are kept)
+     */
+    public static boolean isNamedMember(String outerInternalName, String internalName) {
+        if (!internalName.startsWith(outerInternalName)) {
+            return false;
+        }
+
+        int length = outerInternalName.length();
+
+        if (internalName.length() == length) {
+            return true;
+        }
+        if (internalName.charAt(length) != '$') {
+            return false;
+        }
+
+        for (String segment : internalName.substring(length + 1).split("\\$")) {
+            if (segment.isEmpty() || Character.isDigit(segment.charAt(0))) {
+                return false;
+            }
+        }
 
+        return true;
+    }
+
+    /**
+     * @param methodNames names of the methods to keep, the synthetic methods (lambdas, accessors) are kept too
+     * @return the class without the other methods
+     */
+    public static byte[] filterMethods(byte[] classBytes, Set<String> methodNames) {
+        ClassReader classReader = new ClassReader(classBytes);
+        ClassWriter classWriter = new ClassWriter(classReader, 0);
+
+        classReader.accept(new ClassVisitor(Opcodes.ASM9, classWriter) {
             @Override
-            public boolean visit(MethodDeclaration node) {
-                if (node.getBody() != null) {
-                    int methodStart = node.getBody().getStartPosition();
-                    int methodEnd = methodStart + node.getBody().getLength();
-                    String methodSource = sourceCodeV1.substring(methodStart, methodEnd);
-                    if (methodSource.contains(ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE)) {
-                        IMethodBinding methodBinding = node.resolveBinding();
-                        if (methodBinding != null) {
-                            String methodKey = methodBinding.getKey();
-                            methodKeyPositionRanges.put(methodKey, Range.between(methodStart, methodEnd));
-                        }
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                if ((access & Opcodes.ACC_SYNTHETIC) != 0 || methodNames.contains(name)) {
+                    return super.visitMethod(access, name, descriptor, signature, exceptions);
+                }
+                return null;
+            }
+        }, 0);
+
+        return classWriter.toByteArray();
+    }
+
+    /**
+     * Replace the bodies of the failed methods with the bodies decompiled by JD-Core v0.
+     *
+     * @param failedMethods failed methods returned by {@link #findFailedMethods(String, String, URI)}
+     * @return the patched source
+     */
+    public static String patchCode(String sourceCodeV1, Map<String, Range> failedMethods, String sourceCodeV0, String unitName, URI jarURI) {
+        Map<String, MethodDeclaration> methodDeclarationsV0 = getMethodDeclarations(sourceCodeV0, unitName, jarURI);
+        List<Map.Entry<Range, String>> replacements = new ArrayList<>();
+
+        for (Map.Entry<String, Range> failedMethod : failedMethods.entrySet()) {
+            MethodDeclaration methodDeclarationV0 = findMethodDeclaration(methodDeclarationsV0, failedMethod.getKey());
+
+            if (methodDeclarationV0 != null) {
+                Range rangeV0 = getBodyRange(methodDeclarationV0);
+                Range rangeV1 = failedMethod.getValue();
+                String methodV0 = sourceCodeV0.substring(rangeV0.minimum(), rangeV0.maximum());
+                String methodV1 = sourceCodeV1.substring(rangeV1.minimum(), rangeV1.maximum());
+                int methodV0LineCount = (int) methodV0.lines().count();
+                int methodV1LineCount = (int) methodV1.lines().count();
+                StringBuilder newMethod = new StringBuilder(PATCHED_COMMENT).append(methodV0);
+                for (int i = 0; i < methodV1LineCount - methodV0LineCount; i++) {
+                    newMethod.append(System.lineSeparator());
+                }
+                replacements.add(Map.entry(rangeV1, newMethod.toString()));
+            }
+        }
+
+        // Replace from the end of the source, to keep the positions of the other methods
+        replacements.sort((r1, r2) -> Integer.compare(r2.getKey().minimum(), r1.getKey().minimum()));
+
+        StringBuilder sb = new StringBuilder(sourceCodeV1);
+
+        for (Map.Entry<Range, String> replacement : replacements) {
+            sb.replace(replacement.getKey().minimum(), replacement.getKey().maximum(), replacement.getValue());
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @return the method with the same key, or the only method with the same name and parameter count
+     */
+    protected static MethodDeclaration findMethodDeclaration(Map<String, MethodDeclaration> methodDeclarations, String methodKey) {
+        MethodDeclaration methodDeclaration = methodDeclarations.get(methodKey);
+
+        if (methodDeclaration == null) {
+            String prefix = methodKey.substring(0, methodKey.indexOf('(') + 1);
+            int parameterCount = getParameterCount(methodKey);
+
+            for (Map.Entry<String, MethodDeclaration> entry : methodDeclarations.entrySet()) {
+                if (entry.getKey().startsWith(prefix) && getParameterCount(entry.getKey()) == parameterCount) {
+                    if (methodDeclaration != null) {
+                        // Ambiguous
+                        return null;
                     }
+                    methodDeclaration = entry.getValue();
                 }
-                return super.visit(node);
             }
-        });
-        astParserFactory.newASTParser(sourceCodeV0.toCharArray(), unitName, jarURI).createAST(null).accept(new ASTVisitor() {
+        }
+
+        return methodDeclaration;
+    }
+
+    protected static int getParameterCount(String methodKey) {
+        int openIndex = methodKey.indexOf('(');
+        int closeIndex = methodKey.lastIndexOf(')');
+
+        if (closeIndex == openIndex + 1) {
+            return 0;
+        }
+
+        int count = 1;
+
+        for (int i = openIndex + 1; i < closeIndex; i++) {
+            if (methodKey.charAt(i) == ',') {
+                count++;
+            }
+        }
 
+        return count;
+    }
+
+    /**
+     * @return the methods with a body declared by the named member types, by key of method
+     */
+    protected static Map<String, MethodDeclaration> getMethodDeclarations(String source, String unitName, URI jarURI) {
+        Map<String, MethodDeclaration> methodDeclarations = new HashMap<>();
+        CompilationUnit compilationUnit = (CompilationUnit) ASTParserFactory.getInstance().newASTParser(source.toCharArray(), unitName, jarURI).createAST(null);
+
+        compilationUnit.accept(new ASTVisitor() {
             @Override
             public boolean visit(MethodDeclaration node) {
                 if (node.getBody() != null) {
-                    int methodStart = node.getBody().getStartPosition();
-                    int methodEnd = methodStart + node.getBody().getLength();
-                    String methodV0 = sourceCodeV0.substring(methodStart, methodEnd);
-                    IMethodBinding methodBinding = node.resolveBinding();
-                    if (methodBinding != null) {
-                        String methodKey = methodBinding.getKey();
-                        Range rangeV1 = methodKeyPositionRanges.get(methodKey);
-                        if (rangeV1 == null) {
-                            methodKey = methodKey.replaceAll("L(\\w+/)*+", "L");
-                            rangeV1 = methodKeyPositionRanges.get(methodKey);
-                        }
-                        if (rangeV1 != null) {
-                            String methodV1 = sourceCodeV1.substring(rangeV1.minimum(), rangeV1.maximum());
-                            int methodV0LineCount = (int) methodV0.lines().count();
-                            int methodV1LineCount = (int) methodV1.lines().count();
-                            StringBuilder newMethod = new StringBuilder(methodV0);
-                            for (int i = 0; i < methodV1LineCount - methodV0LineCount; i++) {
-                                newMethod.append(System.lineSeparator());
-                            }
-                            textEdit.addChild(new ReplaceEdit(rangeV1.minimum(), rangeV1.length(), newMethod.toString()));
-                            textEdit.addChild(new InsertEdit(rangeV1.minimum(), "/* Patched from JD-Core V0 */"));
-                        }
+                    String typePath = getTypePath(node.getParent());
+                    if (typePath != null) {
+                        methodDeclarations.put(getMethodKey(typePath, node), node);
                     }
                 }
-                return super.visit(node);
+                // Methods of the anonymous and local classes are patched with the enclosing method
+                return false;
             }
         });
-        try {
-            textEdit.apply(document);
-        } catch (MalformedTreeException | BadLocationException e) {
-            assert ExceptionUtil.printStackTrace(e);
+
+        return methodDeclarations;
+    }
+
+    /**
+     * @return the path of a named member type ("Outer$Inner"), or null for an anonymous or a local type
+     */
+    protected static String getTypePath(ASTNode node) {
+        if (node instanceof AbstractTypeDeclaration) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+            AbstractTypeDeclaration typeDeclaration = (AbstractTypeDeclaration) node;
+            String name = typeDeclaration.getName().getIdentifier();
+            ASTNode parent = node.getParent();
+
+            if (parent instanceof CompilationUnit) {
+                return name;
+            }
+
+            String parentPath = getTypePath(parent);
+            return parentPath == null ? null : parentPath + '$' + name;
+        }
+
+        return null;
+    }
+
+    protected static String getMethodKey(String typePath, MethodDeclaration methodDeclaration) {
+        StringBuilder sb = new StringBuilder(typePath).append('#');
+
+        sb.append(methodDeclaration.isConstructor() ? CONSTRUCTOR_NAME : methodDeclaration.getName().getIdentifier()).append('(');
+
+        List<?> parameters = methodDeclaration.parameters();
+
+        for (int i = 0; i < parameters.size(); i++) {
+            SingleVariableDeclaration parameter = (SingleVariableDeclaration) parameters.get(i);
+
+            if (i > 0) {
+                sb.append(',');
+            }
+
+            sb.append(getSimpleName(parameter.getType()));
+
+            for (int j = parameter.getExtraDimensions(); j > 0; j--) {
+                sb.append("[]");
+            }
+            if (parameter.isVarargs()) {
+                sb.append("[]");
+            }
         }
-        return document.get();
+
+        return sb.append(')').toString();
+    }
+
+    /**
+     * @return the erased simple name of a type ("Map.Entry<K, V>" -> "Entry")
+     */
+    protected static String getSimpleName(Type type) {
+        if (type instanceof ArrayType) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+            ArrayType arrayType = (ArrayType) type;
+            StringBuilder sb = new StringBuilder(getSimpleName(arrayType.getElementType()));
+            for (int i = arrayType.getDimensions(); i > 0; i--) {
+                sb.append("[]");
+            }
+            return sb.toString();
+        }
+        if (type instanceof ParameterizedType) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+            return getSimpleName(((ParameterizedType) type).getType());
+        }
+        if (type instanceof SimpleType) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+            String name = ((SimpleType) type).getName().getFullyQualifiedName();
+            return name.substring(name.lastIndexOf('.') + 1);
+        }
+        if (type instanceof QualifiedType) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+            return ((QualifiedType) type).getName().getIdentifier();
+        }
+        if (type instanceof NameQualifiedType) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+            return ((NameQualifiedType) type).getName().getIdentifier();
+        }
+        return type.toString();
+    }
+
+    protected static Range getBodyRange(MethodDeclaration methodDeclaration) {
+        int start = methodDeclaration.getBody().getStartPosition();
+        return Range.between(start, start + methodDeclaration.getBody().getLength());
     }
 }
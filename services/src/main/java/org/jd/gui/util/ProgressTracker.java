@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Progress, in percent, accumulated by any number of threads without lock and published at most
+ * once every {@link #PUBLISH_INTERVAL} milliseconds.<br>
+ * <br>
+ * A tracker is both the progress getter and the progress setter given to indexers and source
+ * savers: {@link ProgressUtil} adds the progress of each entry with {@link #add(double)}.
+ */
+public class ProgressTracker implements DoubleSupplier, DoubleConsumer {
+    protected static final long PUBLISH_INTERVAL = 100;
+
+    private final DoubleConsumer publishFunction;
+    private final DoubleAdder progress = new DoubleAdder();
+    private final AtomicLong lastPublishTime = new AtomicLong();
+
+    /**
+     * @param publishFunction called with the progress, from the thread that adds progress
+     */
+    public ProgressTracker(DoubleConsumer publishFunction) {
+        this.publishFunction = publishFunction;
+    }
+
+    /**
+     * @return the tracker if the setter is a tracker, a new tracker starting from the progress of the getter otherwise
+     */
+    public static ProgressTracker of(DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction) {
+        if (setProgressFunction instanceof ProgressTracker) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+            return (ProgressTracker) setProgressFunction;
+        }
+
+        ProgressTracker progressTracker = new ProgressTracker(setProgressFunction);
+        progressTracker.progress.add(getProgressFunction.getAsDouble());
+        return progressTracker;
+    }
+
+    @Override
+    public double getAsDouble() {
+        return progress.sum();
+    }
+
+    /**
+     * Set the progress. Concurrent calls may lose progress: prefer {@link #add(double)}.
+     */
+    @Override
+    public void accept(double value) {
+        add(value - progress.sum());
+    }
+
+    public void add(double delta) {
+        progress.add(delta);
+
+        long now = System.currentTimeMillis();
+        long last = lastPublishTime.get();
+
+        if (now - last >= PUBLISH_INTERVAL && lastPublishTime.compareAndSet(last, now)) {
+            publish();
+        }
+    }
+
+    /**
+     * Publish the progress now.
+     */
+    public void flush() {
+        lastPublishTime.set(System.currentTimeMillis());
+        publish();
+    }
+
+    protected void publish() {
+        publishFunction.accept(Math.min(100, progress.sum()));
+    }
+}
@@ -21,26 +21,34 @@ import org.jd.gui.api.model.Container;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.function.DoubleConsumer;
 import java.util.function.DoubleSupplier;
 
 public final class ProgressUtil {
 
+    // Container root parent entry -> size of the archive file
+    private static final Map<Container.Entry, Long> TOTAL_SIZES = Collections.synchronizedMap(new WeakHashMap<>());
+
     private ProgressUtil() {
     }
 
     public static void updateProgress(Container.Entry root, Container.Entry entry, DoubleSupplier getProgressFunction, DoubleConsumer setProgressFunction) throws IOException {
-        File file = new File(root.getUri());
-        if (file.exists()) {
-            double totalSize = Files.size(file.toPath());
-            long entryLength = entry.compressedLength();
-            double progress = 100 * entryLength / totalSize;
-            double cumulativeProgress = getProgressFunction.getAsDouble() + progress;
-            if (cumulativeProgress <= 100) {
-                setProgressFunction.accept(cumulativeProgress);
+        long totalSize = getTotalSize(root);
+
+        if (totalSize > 0) {
+            double progress = 100.0 * entry.compressedLength() / totalSize;
+
+            if (setProgressFunction instanceof ProgressTracker) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                ((ProgressTracker) setProgressFunction).add(progress);
+            } else {
+                double cumulativeProgress = getProgressFunction.getAsDouble() + progress;
+                if (cumulativeProgress <= 100) {
+                    setProgressFunction.accept(cumulativeProgress);
+                }
             }
-        } else {
-            updateProgress(root.getParent(), entry, getProgressFunction, setProgressFunction);
         }
     }
 
@@ -48,4 +56,27 @@ public final class ProgressUtil {
         updateProgress(entry.getContainer().getRoot().getParent(), entry, getProgressFunction, setProgressFunction);
     }
 
+    /**
+     * @return the size of the archive file containing 'root', computed once per container
+     */
+    public static long getTotalSize(Container.Entry root) throws IOException {
+        Long totalSize = TOTAL_SIZES.get(root);
+
+        if (totalSize == null) {
+            totalSize = computeTotalSize(root);
+            TOTAL_SIZES.put(root, totalSize);
+        }
+
+        return totalSize;
+    }
+
+    private static long computeTotalSize(Container.Entry root) throws IOException {
+        for (Container.Entry e = root; e != null; e = e.getParent()) {
+            File file = new File(e.getUri());
+            if (file.exists()) {
+                return Files.size(file.toPath());
+            }
+        }
+        return 0;
+    }
 }
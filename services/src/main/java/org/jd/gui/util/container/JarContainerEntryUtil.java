@@ -10,7 +10,9 @@ package org.jd.gui.util.container;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
 import org.jd.core.v1.util.StringConstants;
 import org.jd.gui.api.model.Container;
+import org.jd.gui.api.model.Indexes;
 import org.jd.gui.model.container.ContainerEntryComparator;
+import org.jd.gui.util.index.IndexesUtil;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Opcodes;
@@ -23,6 +25,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -34,6 +37,44 @@ public final class JarContainerEntryUtil {
         super();
     }
 
+    /**
+     * Remove the entries of the inner types with the "typeDeclarations" and "outerTypeNames" indexes:
+     * class files are read only for the entries not indexed yet.
+     */
+    public static Collection<Container.Entry> removeInnerTypeEntries(Collection<Future<Indexes>> collectionOfFutureIndexes, Map<Container.EntryPath, Container.Entry> entries) {
+        Map<Container.EntryPath, Container.Entry> filteredSubEntries = new TreeMap<>(ContainerEntryComparator.COMPARATOR);
+        boolean notIndexedInnerTypeFound = false;
+
+        for (Map.Entry<Container.EntryPath, Container.Entry> entry : entries.entrySet()) {
+            Container.Entry e = entry.getValue();
+
+            if (isPotentialInnerTypeEntry(e)) {
+                Container.Entry outerEntry = IndexesUtil.findOuterEntry(collectionOfFutureIndexes, e);
+
+                if (outerEntry == null) {
+                    notIndexedInnerTypeFound = true;
+                } else if (outerEntry != e) {
+                    // Inner class found -> Skip
+                    continue;
+                }
+            }
+            filteredSubEntries.put(entry.getKey(), e);
+        }
+
+        // Read the class files only if some entries are not indexed
+        return notIndexedInnerTypeFound ? removeInnerTypeEntries(filteredSubEntries) : filteredSubEntries.values();
+    }
+
+    private static boolean isPotentialInnerTypeEntry(Container.Entry entry) {
+        if (entry.isDirectory()) {
+            return false;
+        }
+
+        String p = entry.getPath();
+
+        return p.toLowerCase().endsWith(StringConstants.CLASS_FILE_SUFFIX) && p.lastIndexOf('$') > p.lastIndexOf('/');
+    }
+
     public static Collection<Container.Entry> removeInnerTypeEntries(Map<Container.EntryPath, Container.Entry> entries) {
         Set<String> potentialOuterTypePaths = new HashSet<>();
         Map<Container.EntryPath, Container.Entry> filteredSubEntries;
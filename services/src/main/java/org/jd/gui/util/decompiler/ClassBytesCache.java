@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.decompiler;
+
+import org.apache.commons.io.IOUtils;
+import org.jd.core.v1.util.StringConstants;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.api.model.Indexes;
+import org.jd.gui.model.container.entry.path.DirectoryEntryPath;
+import org.jd.gui.model.container.entry.path.FileEntryPath;
+import org.jd.gui.util.index.IndexesUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * Cache of the content of the class files loaded by the decompilers, shared by all engines, the class
+ * file pages, the prefetcher and the source savers.<br>
+ * <br>
+ * The memory used by the cached classes is capped for all the containers: the least recently used
+ * classes are evicted first, and the classes of a container are removed when it is closed.
+ */
+public final class ClassBytesCache {
+    public static final long MAXIMUM_WEIGHT = 32L * 1024 * 1024;
+
+    /** Estimated memory used by a cache entry, excluding the content of the class. */
+    protected static final int ENTRY_WEIGHT = 64;
+
+    private static final ClassBytesCache CLASS_BYTES_CACHE = new ClassBytesCache();
+
+    private final LinkedHashMap<Container.Entry, byte[]> classBytes = new LinkedHashMap<>(16, 0.75F, true);
+    private long weight;
+
+    private ClassBytesCache() {
+    }
+
+    public static ClassBytesCache getInstance() { return CLASS_BYTES_CACHE; }
+
+    /**
+     * @return a copy of the content of the entry, read once until it is evicted
+     */
+    public byte[] load(Container.Entry entry) throws IOException {
+        byte[] bytes;
+
+        synchronized (this) {
+            bytes = classBytes.get(entry);
+        }
+
+        if (bytes == null) {
+            // Read outside of the lock
+            try (InputStream inputStream = entry.getInputStream()) {
+                bytes = IOUtils.toByteArray(inputStream);
+            }
+            put(entry, bytes);
+        }
+
+        return bytes.clone();
+    }
+
+    /**
+     * Search the class file declaring a type in the whole container, with the "typeDeclarations" index, or by
+     * walking the directories of the container if the class is not indexed.
+     *
+     * @param internalPath internal name of the type followed by ".class" ("a/b/C.class")
+     * @return the entry of the class file, or null if the container does not declare the type
+     */
+    public static Container.Entry findEntry(Collection<Future<Indexes>> collectionOfFutureIndexes, Container container, String internalPath) {
+        if (collectionOfFutureIndexes != null) {
+            String internalName = internalPath.substring(0, internalPath.length() - StringConstants.CLASS_FILE_SUFFIX.length());
+
+            for (Object o : IndexesUtil.find(collectionOfFutureIndexes, "typeDeclarations", internalName)) {
+                Container.Entry e = (Container.Entry) o;
+                if (e.getContainer() == container && e.getPath().endsWith(StringConstants.CLASS_FILE_SUFFIX)) {
+                    return e;
+                }
+            }
+        }
+
+        Container.Entry directory = container.getRoot();
+
+        for (int index = internalPath.indexOf('/'); index != -1 && directory != null; index = internalPath.indexOf('/', index + 1)) {
+            directory = getChild(directory, new DirectoryEntryPath(internalPath.substring(0, index)));
+        }
+
+        return directory == null ? null : getChild(directory, new FileEntryPath(internalPath));
+    }
+
+    protected static Container.Entry getChild(Container.Entry directory, Container.EntryPath path) {
+        Map<Container.EntryPath, Container.Entry> children = directory.getChildren();
+        return children == null ? null : children.get(path);
+    }
+
+    /**
+     * Remove the classes of the container and of the containers nested in it.
+     */
+    public synchronized void remove(Container container) {
+        Iterator<Map.Entry<Container.Entry, byte[]>> iterator = classBytes.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<Container.Entry, byte[]> next = iterator.next();
+            if (isInContainer(next.getKey(), container)) {
+                weight -= getWeight(next.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove the classes of the container whose files have changed.
+     */
+    public synchronized void remove(Container container, Predicate<String> pathPredicate) {
+        Iterator<Map.Entry<Container.Entry, byte[]>> iterator = classBytes.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<Container.Entry, byte[]> next = iterator.next();
+            Container.Entry entry = next.getKey();
+            if (entry.getContainer() == container && pathPredicate.test(entry.getPath())) {
+                weight -= getWeight(next.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        classBytes.clear();
+        weight = 0;
+    }
+
+    public synchronized long getWeight() { return weight; }
+
+    protected synchronized void put(Container.Entry entry, byte[] bytes) {
+        byte[] previous = classBytes.put(entry, bytes);
+
+        weight += getWeight(bytes);
+        if (previous != null) {
+            weight -= getWeight(previous);
+        }
+
+        Iterator<byte[]> iterator = classBytes.values().iterator();
+
+        while (weight > MAXIMUM_WEIGHT && iterator.hasNext()) {
+            weight -= getWeight(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    protected static long getWeight(byte[] bytes) {
+        return ENTRY_WEIGHT + (long)bytes.length;
+    }
+
+    protected static boolean isInContainer(Container.Entry entry, Container container) {
+        for (Container c = entry.getContainer(); c != null; ) {
+            if (c == container) {
+                return true;
+            }
+
+            Container.Entry containerEntry = c.getRoot() == null ? null : c.getRoot().getParent();
+            c = containerEntry == null ? null : containerEntry.getContainer();
+        }
+        return false;
+    }
+}
@@ -10,23 +10,37 @@ package org.jd.gui.util.decompiler;
 import org.apache.commons.io.IOUtils;
 import org.jd.core.v1.api.loader.Loader;
 import org.jd.core.v1.util.StringConstants;
+import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
+import org.jd.gui.api.model.Indexes;
 import org.jd.gui.model.container.entry.path.FileEntryPath;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 public class ContainerLoader implements Loader {
 
+    private final API api;
     private Container.Entry entry;
+    private Collection<Future<Indexes>> collectionOfFutureIndexes;
 
     public ContainerLoader() {
-        this.entry = null;
+        this(null, null);
     }
 
     public ContainerLoader(Container.Entry entry) {
+        this(null, entry);
+    }
+
+    /**
+     * @param api API used to search the classes of the whole container in the indexes, or null
+     */
+    public ContainerLoader(API api, Container.Entry entry) {
+        this.api = api;
         this.entry = entry;
     }
 
@@ -42,7 +56,19 @@ public class ContainerLoader implements Loader {
             return entry;
         }
         Map<Container.EntryPath, Container.Entry> children = entry.getParent().getChildren();
-        return children.get(new FileEntryPath(internalPath));
+        Container.Entry child = children.get(new FileEntryPath(internalPath));
+        if (child != null) {
+            return child;
+        }
+        // Search in the other directories of the container
+        return ClassBytesCache.findEntry(getCollectionOfFutureIndexes(), entry.getContainer(), internalPath);
+    }
+
+    protected Collection<Future<Indexes>> getCollectionOfFutureIndexes() {
+        if (collectionOfFutureIndexes == null && api != null) {
+            collectionOfFutureIndexes = api.getCollectionOfFutureIndexes();
+        }
+        return collectionOfFutureIndexes;
     }
 
     @Override
@@ -56,9 +82,7 @@ public class ContainerLoader implements Loader {
         if (loadedEntry == null) {
             return null;
         }
-        try (InputStream inputStream = loadedEntry.getInputStream()) {
-            return IOUtils.toByteArray(inputStream);
-        }
+        return ClassBytesCache.getInstance().load(loadedEntry);
     }
 
     public static char[] loadEntry(Container.Entry entry, Charset charset) throws IOException {
@@ -0,0 +1,525 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.decompiler;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ByteCodeWriter;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.util.MethodPatcher;
+import org.jd.gui.util.loader.LoaderUtils;
+import org.jd.util.Range;
+import org.jd.util.SHA1Util;
+
+import com.heliosdecompiler.transformerapi.StandardTransformers;
+import com.heliosdecompiler.transformerapi.TransformationException;
+import com.heliosdecompiler.transformerapi.common.Loader;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V0;
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILATION_CACHE_DISK;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILATION_CACHE_SIZE;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_ENGINE;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_RACE;
+import static org.jd.gui.util.decompiler.GuiPreferences.REMOVE_UNNECESSARY_CASTS;
+import static org.jd.gui.util.decompiler.GuiPreferences.SHOW_COMPILER_ERRORS;
+import static org.jd.gui.util.decompiler.GuiPreferences.SHOW_COMPILER_INFO;
+import static org.jd.gui.util.decompiler.GuiPreferences.SHOW_COMPILER_WARNINGS;
+
+import jd.core.ClassUtil;
+import jd.core.DecompilationResult;
+
+/**
+ * Cache of the decompiled classes, shared by the class file pages and the source savers.<br>
+ * <br>
+ * Results are keyed by the SHA-1 of the archive, the path of the class in the archive,
+ * the decompiler engine and the preferences used by the decompilers. The memory used by
+ * the results is estimated, and the least recently used results are evicted first. When
+ * enabled, evicted sources are written into a directory and served to the source savers
+ * (without the hyperlinks of the decompiler).<br>
+ * <br>
+ * The cached results are shared: callers must not modify them.
+ */
+public final class DecompilationCache {
+    /** To increment each time the content of the cached sources changes. */
+    public static final int VERSION = 1;
+    public static final int DEFAULT_MAXIMUM_SIZE = 64; // MB
+
+    protected static final String FILE_EXTENSION = ".java";
+    protected static final String NESTED_ARCHIVE_SEPARATOR = "!/";
+    protected static final long MAXIMUM_DIRECTORY_SIZE = 256L * 1024 * 1024;
+    protected static final int EVICTION_INTERVAL = 256;
+    /** Estimated memory used by a string, a declaration, a reference, a hyperlink or a line number. */
+    protected static final int DATA_WEIGHT = 128;
+    /** Preferences having no effect on the decompiled sources. The race engines are in the keys of the raced results. */
+    protected static final String[] IGNORED_PREFERENCE_PREFIXES = {
+        "JdGuiPreferences.", "UI", "ViewerPreferences.", "IndexerPreferences.", "DirectoryIndexerPreferences.",
+        "SourceSaverPreferences.", "MavenOrgSourceLoaderPreferences.", "DecompilationCachePreferences.",
+        REMOVE_UNNECESSARY_CASTS, SHOW_COMPILER_ERRORS, SHOW_COMPILER_WARNINGS, SHOW_COMPILER_INFO, DECOMPILE_RACE
+    };
+    /** Separator of the engines of the race, in the keys of the raced results. */
+    protected static final String RACE_KEY_SEPARATOR = "|race=";
+
+    private static final DecompilationCache DECOMPILATION_CACHE = new DecompilationCache();
+
+    private final LinkedHashMap<String, Decompilation> decompilations = new LinkedHashMap<>(16, 0.75F, true);
+    private long weight;
+    private File directory;
+    private int writeCount;
+    private PatchTimings totalPatchTimings = new PatchTimings(0, 0, 0, 0, 0, 0);
+
+    private DecompilationCache() {
+    }
+
+    public static DecompilationCache getInstance() { return DECOMPILATION_CACHE; }
+
+    /**
+     * @param directory directory of the evicted sources, or null to keep the sources in memory only
+     */
+    public synchronized void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Decompile the entry with the selected engine, or return the cached result.
+     */
+    public Decompilation decompile(Map<String, String> preferences, ContainerLoader loader, Container.Entry entry)
+            throws IOException, TransformationException, IllegalAccessException, InvocationTargetException {
+        return decompile(preferences, loader, entry, false);
+    }
+
+    /**
+     * Decompile the entry, or return the cached result. If the selected engine fails to decompile some methods,
+     * JD-Core v0 methods are patched into the source and the result is marked as patched.
+     *
+     * @param race true to race the engines if the race is enabled, for the classes displayed to the user: the
+     *             result of the first engine succeeding is used. Raced results are cached apart, so that the
+     *             other callers get the results of the selected engine.
+     */
+    public Decompilation decompile(Map<String, String> preferences, ContainerLoader loader, Container.Entry entry, boolean race)
+            throws IOException, TransformationException, IllegalAccessException, InvocationTargetException {
+        String key = getKey(preferences, entry);
+        Decompilation decompilation = get(key);
+        boolean raced = race && DecompilationRace.isEnabled(preferences);
+
+        if (raced && key != null && isMissing(decompilation)) {
+            // The result of the selected engine, if any, is preferred
+            key += RACE_KEY_SEPARATOR + String.join(",", DecompilationRace.getEngineNames(preferences));
+            decompilation = get(key);
+        }
+
+        if (isMissing(decompilation)) {
+            long startTime = System.nanoTime();
+            DecompilationResult decompilationResult;
+
+            if (raced) {
+                decompilationResult = DecompilationRace.getInstance().decompile(preferences, loader, entry);
+            } else {
+                String entryInternalName = ClassUtil.getInternalName(entry.getPath());
+                String engineName = preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1);
+                Loader apiLoader = LoaderUtils.createLoader(preferences, loader, entry);
+                decompilationResult = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, engineName);
+            }
+
+            String source = decompilationResult.getDecompiledOutput();
+
+            if (source.contains(ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE)) {
+                decompilation = patch(preferences, loader, entry, decompilationResult, System.nanoTime() - startTime);
+            } else {
+                decompilation = new Decompilation(decompilationResult, source, false);
+            }
+
+            put(preferences, key, decompilation);
+        }
+
+        return decompilation;
+    }
+
+    /**
+     * @return true if the decompilation is not cached, or if only its source is cached
+     */
+    protected static boolean isMissing(Decompilation decompilation) {
+        return decompilation == null || (decompilation.getResult() == null && !decompilation.isPatched());
+    }
+
+    /**
+     * Decompile again the failed methods only, with JD-Core v0: the other methods are removed from the
+     * decompiled class and from its named member classes, then the decompiled methods are patched into
+     * the source by signature.
+     */
+    protected Decompilation patch(Map<String, String> preferences, ContainerLoader loader, Container.Entry entry, DecompilationResult decompilationResult, long decompileTime)
+            throws TransformationException, IOException, IllegalAccessException, InvocationTargetException {
+        String entryInternalName = ClassUtil.getInternalName(entry.getPath());
+        String source = decompilationResult.getDecompiledOutput();
+        URI jarURI = entry.getContainer().getRoot().getParent().getUri();
+        long startTime = System.nanoTime();
+        Map<String, Range> failedMethods = MethodPatcher.findFailedMethods(source, entry.getPath(), jarURI);
+        long findTime = System.nanoTime() - startTime;
+
+        if (failedMethods.isEmpty()) {
+            // Failures outside of the methods
+            return new Decompilation(decompilationResult, source, false);
+        }
+
+        Map<String, Set<String>> methodNames = MethodPatcher.getMethodNames(failedMethods.keySet(), entryInternalName);
+        Loader apiLoader = LoaderUtils.createLoader(preferences, new MethodFilterLoader(loader, entryInternalName, methodNames), jarURI);
+
+        startTime = System.nanoTime();
+        DecompilationResult decompilationResultV0 = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, ENGINE_JD_CORE_V0);
+        long decompileV0Time = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        String patchedSource = MethodPatcher.patchCode(source, failedMethods, decompilationResultV0.getDecompiledOutput(), entry.getPath(), jarURI);
+        long patchTime = System.nanoTime() - startTime;
+
+        PatchTimings patchTimings = new PatchTimings(1, failedMethods.size(), decompileTime, findTime, decompileV0Time, patchTime);
+
+        synchronized (this) {
+            totalPatchTimings = totalPatchTimings.add(patchTimings);
+        }
+
+        return new Decompilation(null, patchedSource, true, patchTimings);
+    }
+
+    /**
+     * @return the sum of the timings of the decompilations patched with JD-Core v0
+     */
+    public synchronized PatchTimings getTotalPatchTimings() { return totalPatchTimings; }
+
+    /**
+     * @return the source of the entry, read from memory, from the directory of the evicted sources, or decompiled
+     */
+    public String getSource(Map<String, String> preferences, ContainerLoader loader, Container.Entry entry)
+            throws IOException, TransformationException, IllegalAccessException, InvocationTargetException {
+        String key = getKey(preferences, entry);
+        Decompilation decompilation = get(key);
+
+        if (decompilation == null) {
+            String source = "true".equals(preferences.get(DECOMPILATION_CACHE_DISK)) ? read(key) : null;
+
+            if (source == null) {
+                return decompile(preferences, loader, entry).getSource();
+            }
+
+            decompilation = new Decompilation(null, source, false);
+            put(preferences, key, decompilation);
+        }
+
+        return decompilation.getSource();
+    }
+
+    public synchronized void clear() {
+        decompilations.clear();
+        weight = 0;
+    }
+
+    public synchronized long getWeight() { return weight; }
+
+    protected synchronized Decompilation get(String key) {
+        return key == null ? null : decompilations.get(key);
+    }
+
+    protected void put(Map<String, String> preferences, String key, Decompilation decompilation) {
+        if (key == null) {
+            return;
+        }
+
+        long maximumWeight = getMaximumWeight(preferences);
+        List<Map.Entry<String, Decompilation>> evicted = new ArrayList<>();
+        File spillDirectory;
+
+        synchronized (this) {
+            Decompilation previous = decompilations.put(key, decompilation);
+
+            weight += decompilation.getWeight();
+            if (previous != null) {
+                weight -= previous.getWeight();
+            }
+
+            Iterator<Map.Entry<String, Decompilation>> iterator = decompilations.entrySet().iterator();
+
+            while (weight > maximumWeight && iterator.hasNext()) {
+                Map.Entry<String, Decompilation> eldest = iterator.next();
+                weight -= eldest.getValue().getWeight();
+                iterator.remove();
+                evicted.add(eldest);
+            }
+
+            spillDirectory = "true".equals(preferences.get(DECOMPILATION_CACHE_DISK)) ? directory : null;
+        }
+
+        if (spillDirectory != null) {
+            // Write evicted sources outside of the lock
+            for (Map.Entry<String, Decompilation> entry : evicted) {
+                // Raced results are not served to the source savers
+                if (!entry.getKey().contains(RACE_KEY_SEPARATOR)) {
+                    write(spillDirectory, entry.getKey(), entry.getValue().getSource());
+                }
+            }
+        }
+    }
+
+    protected String read(String key) {
+        File file;
+
+        synchronized (this) {
+            if (key == null || directory == null) {
+                return null;
+            }
+            file = getFile(directory, key);
+        }
+
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            String source = new String(Files.readAllBytes(file.toPath()), UTF_8);
+            // Keep recently used files on eviction
+            file.setLastModified(System.currentTimeMillis());
+            return source;
+        } catch (IOException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            return null;
+        }
+    }
+
+    protected void write(File directory, String key, String source) {
+        File file = getFile(directory, key);
+
+        if (file.isFile()) {
+            return;
+        }
+
+        File tmpFile = new File(file.getPath() + '.' + Thread.currentThread().getId() + ".tmp");
+
+        try {
+            Files.createDirectories(directory.toPath());
+            Files.write(tmpFile.toPath(), source.getBytes(UTF_8));
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            tmpFile.delete();
+            return;
+        }
+
+        boolean evict;
+
+        synchronized (this) {
+            evict = ++writeCount % EVICTION_INTERVAL == 0;
+        }
+
+        if (evict) {
+            evict(directory);
+        }
+    }
+
+    protected static void evict(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+
+        if (files != null) {
+            long size = 0;
+
+            // Keep the most recently used files
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+
+            for (File file : files) {
+                size += file.length();
+                if (size > MAXIMUM_DIRECTORY_SIZE) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    protected static File getFile(File directory, String key) {
+        return new File(directory, SHA1Util.computeSHA1(key) + FILE_EXTENSION);
+    }
+
+    public static long getMaximumWeight(Map<String, String> preferences) {
+        return getMaximumSize(preferences) * 1024L * 1024L;
+    }
+
+    protected static int getMaximumSize(Map<String, String> preferences) {
+        String preference = preferences.get(DECOMPILATION_CACHE_SIZE);
+
+        if (preference != null) {
+            try {
+                return Math.max(0, Integer.parseInt(preference.trim()));
+            } catch (NumberFormatException e) {
+                assert ExceptionUtil.printStackTrace(e);
+            }
+        }
+
+        return DEFAULT_MAXIMUM_SIZE;
+    }
+
+    /**
+     * @return the key of the entry, or null if the archive of the entry can not be hashed
+     */
+    protected static String getKey(Map<String, String> preferences, Container.Entry entry) {
+        Container.Entry archiveEntry = getArchiveEntry(entry);
+
+        if (archiveEntry == null) {
+            return null;
+        }
+
+        String sha1 = SHA1Util.getSHA1(new File(archiveEntry.getUri()));
+
+        if (sha1.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder(256);
+
+        sb.append(VERSION).append('|').append(sha1).append('|').append(getEntryId(entry, archiveEntry)).append('|');
+        sb.append(preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1));
+
+        for (Map.Entry<String, String> preference : new TreeMap<>(preferences).entrySet()) {
+            if (!isIgnored(preference.getKey())) {
+                sb.append('|').append(preference.getKey()).append('=').append(preference.getValue());
+            }
+        }
+
+        return sb.toString();
+    }
+
+    protected static boolean isIgnored(String preferenceKey) {
+        for (String prefix : IGNORED_PREFERENCE_PREFIXES) {
+            if (preferenceKey.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the entry of the outermost file containing the entry (an archive, or the class file itself if the class
+     * is in a directory), or null if the entry is not stored in a file
+     */
+    protected static Container.Entry getArchiveEntry(Container.Entry entry) {
+        Container.Entry archiveEntry = null;
+
+        for (Container.Entry current = entry; current != null; current = getContainerEntry(current)) {
+            URI uri = current.getUri();
+
+            if ("file".equals(uri.getScheme()) && !uri.isOpaque() && uri.getRawAuthority() == null && uri.getRawQuery() == null
+                    && uri.getRawFragment() == null && new File(uri).isFile()) {
+                archiveEntry = current;
+            }
+        }
+
+        return archiveEntry;
+    }
+
+    /**
+     * @return the path of the entry in the archive, prefixed by the paths of the nested archives ("WEB-INF/lib/a.jar!/a/A.class")
+     */
+    protected static String getEntryId(Container.Entry entry, Container.Entry archiveEntry) {
+        Container.Entry containerEntry = getContainerEntry(entry);
+
+        if (containerEntry == null || containerEntry == archiveEntry || getContainerEntry(containerEntry) == null) {
+            return entry.getPath();
+        }
+
+        return getEntryId(containerEntry, archiveEntry) + NESTED_ARCHIVE_SEPARATOR + entry.getPath();
+    }
+
+    /**
+     * @return the entry of the archive or of the directory containing the entry, or null for the top-level entries
+     */
+    protected static Container.Entry getContainerEntry(Container.Entry entry) {
+        Container container = entry.getContainer();
+        if (container == null || container.getRoot() == null) {
+            return null;
+        }
+        return container.getRoot().getParent();
+    }
+
+    public static class Decompilation {
+        private final DecompilationResult result;
+        private final String source;
+        private final boolean patched;
+        private final PatchTimings patchTimings;
+        private final long weight;
+
+        public Decompilation(DecompilationResult result, String source, boolean patched) {
+            this(result, source, patched, null);
+        }
+
+        public Decompilation(DecompilationResult result, String source, boolean patched, PatchTimings patchTimings) {
+            this.result = result;
+            this.source = source;
+            this.patched = patched;
+            this.patchTimings = patchTimings;
+
+            long dataCount = 0;
+
+            if (result != null) {
+                dataCount = (long)result.getStrings().size() + result.getTypeDeclarations().size() + result.getDeclarations().size()
+                        + result.getReferences().size() + result.getHyperlinks().size() + result.getLineNumbers().size();
+            }
+
+            this.weight = 64 + 2L * source.length() + dataCount * DATA_WEIGHT;
+        }
+
+        /**
+         * @return the result of the decompiler, or null if the source was patched with JD-Core v0 methods or read from disk
+         */
+        public DecompilationResult getResult() { return result; }
+        public String getSource() { return source; }
+        public boolean isPatched() { return patched; }
+        /**
+         * @return the timings of the patch, or null if the source was not patched in this session
+         */
+        public PatchTimings getPatchTimings() { return patchTimings; }
+        public long getWeight() { return weight; }
+    }
+
+    /**
+     * Timings, in nanoseconds, of decompilations patched with JD-Core v0: decompilation by the selected
+     * engine, search of the failed methods, decompilation of the failed methods by JD-Core v0, and patch.
+     */
+    public record PatchTimings(int classCount, int methodCount, long decompileTime, long findTime, long decompileV0Time, long patchTime) {
+        public PatchTimings add(PatchTimings other) {
+            return new PatchTimings(classCount + other.classCount, methodCount + other.methodCount, decompileTime + other.decompileTime,
+                    findTime + other.findTime, decompileV0Time + other.decompileV0Time, patchTime + other.patchTime);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d classes, %d methods, %.1f ms decompiling, %.1f ms finding the failed methods, %.1f ms decompiling with JD-Core v0, %.1f ms patching",
+                    classCount, methodCount, decompileTime / 1_000_000.0, findTime / 1_000_000.0, decompileV0Time / 1_000_000.0, patchTime / 1_000_000.0);
+        }
+    }
+}
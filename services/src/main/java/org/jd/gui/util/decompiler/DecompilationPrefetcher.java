@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.decompiler;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.api.API;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.api.model.Indexes;
+import org.jd.gui.util.index.IndexesUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILATION_PREFETCH_THREADS;
+
+/**
+ * Speculative decompilation of the classes the user is likely to open next (the neighbours of the
+ * selected class, the types referenced by the displayed class) into the {@link DecompilationCache}.<br>
+ * <br>
+ * Prefetching is disabled by default. Classes are decompiled by low priority threads, only while the
+ * prefetched results fit in half of the decompilation cache and while the heap is not nearly full.
+ * Each new request cancels the previous one: queued classes are dropped, running decompilations
+ * complete but the remaining classes are skipped.
+ */
+public final class DecompilationPrefetcher {
+    public static final int MAXIMUM_PREFETCHED_ENTRIES = 32;
+
+    protected static final int NEIGHBOUR_COUNT = 8;
+    protected static final double MAXIMUM_CACHE_RATIO = 0.5;
+    protected static final double MAXIMUM_HEAP_RATIO = 0.75;
+
+    private static final DecompilationPrefetcher DECOMPILATION_PREFETCHER = new DecompilationPrefetcher();
+
+    private final AtomicLong requestCounter = new AtomicLong();
+    private ThreadPoolExecutor executor;
+
+    private DecompilationPrefetcher() {
+    }
+
+    public static DecompilationPrefetcher getInstance() { return DECOMPILATION_PREFETCHER; }
+
+    /**
+     * Cancel the current request and prefetch the given classes.
+     *
+     * @param entriesSupplier supplier of the classes to prefetch, called by a prefetching thread
+     */
+    public void prefetch(API api, Supplier<Collection<Container.Entry>> entriesSupplier) {
+        long requestId = cancel();
+        Map<String, String> preferences = api.getPreferences();
+        ThreadPoolExecutor threadPoolExecutor = getExecutor(getThreadCount(preferences));
+
+        if (threadPoolExecutor != null) {
+            threadPoolExecutor.execute(() -> {
+                if (requestId == requestCounter.get()) {
+                    int count = 0;
+
+                    for (Container.Entry entry : entriesSupplier.get()) {
+                        if (count++ == MAXIMUM_PREFETCHED_ENTRIES) {
+                            break;
+                        }
+                        threadPoolExecutor.execute(() -> decompile(api, preferences, entry, requestId));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Cancel the current request, when the user navigates elsewhere.
+     *
+     * @return the id of the next request
+     */
+    public synchronized long cancel() {
+        if (executor != null) {
+            executor.getQueue().clear();
+        }
+        return requestCounter.incrementAndGet();
+    }
+
+    protected void decompile(API api, Map<String, String> preferences, Container.Entry entry, long requestId) {
+        if (requestId == requestCounter.get() && isUnderBudget(preferences)) {
+            try {
+                DecompilationCache.getInstance().decompile(preferences, new ContainerLoader(api, entry), entry);
+            } catch (Exception e) {
+                assert ExceptionUtil.printStackTrace(e);
+            }
+        }
+    }
+
+    protected static boolean isUnderBudget(Map<String, String> preferences) {
+        Runtime runtime = Runtime.getRuntime();
+        long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+
+        return DecompilationCache.getInstance().getWeight() < DecompilationCache.getMaximumWeight(preferences) * MAXIMUM_CACHE_RATIO
+                && usedMemory < runtime.maxMemory() * MAXIMUM_HEAP_RATIO;
+    }
+
+    /**
+     * @return the executor, resized to the given number of threads, or null if prefetching is disabled
+     */
+    protected synchronized ThreadPoolExecutor getExecutor(int threadCount) {
+        if (threadCount <= 0) {
+            return null;
+        }
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(threadCount, threadCount, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "jd-gui-decompilation-prefetcher");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+        } else if (executor.getMaximumPoolSize() != threadCount) {
+            if (threadCount > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(threadCount);
+                executor.setCorePoolSize(threadCount);
+            } else {
+                executor.setCorePoolSize(threadCount);
+                executor.setMaximumPoolSize(threadCount);
+            }
+        }
+        return executor;
+    }
+
+    protected static int getThreadCount(Map<String, String> preferences) {
+        String preference = preferences.get(DECOMPILATION_PREFETCH_THREADS);
+
+        if (preference != null) {
+            try {
+                return Integer.parseInt(preference.trim());
+            } catch (NumberFormatException e) {
+                assert ExceptionUtil.printStackTrace(e);
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return the top-level classes next to the entry in its directory, the nearest first
+     */
+    public static List<Container.Entry> getNeighbours(Container.Entry entry) {
+        List<Container.Entry> neighbours = new ArrayList<>();
+        Container.Entry parent = entry.getParent();
+
+        if (parent != null) {
+            List<Container.Entry> classes = new ArrayList<>();
+
+            for (Container.Entry child : parent.getChildren().values()) {
+                if (child == entry || isTopLevelClass(child)) {
+                    classes.add(child);
+                }
+            }
+
+            int index = classes.indexOf(entry);
+
+            if (index == -1) {
+                // Directory: prefetch its first classes
+                for (Container.Entry child : entry.isDirectory() ? entry.getChildren().values() : classes) {
+                    if (neighbours.size() == NEIGHBOUR_COUNT) {
+                        break;
+                    }
+                    if (isTopLevelClass(child)) {
+                        neighbours.add(child);
+                    }
+                }
+            } else {
+                for (int i = 1; neighbours.size() < NEIGHBOUR_COUNT && (index - i >= 0 || index + i < classes.size()); i++) {
+                    if (index + i < classes.size()) {
+                        neighbours.add(classes.get(index + i));
+                    }
+                    if (index - i >= 0 && neighbours.size() < NEIGHBOUR_COUNT) {
+                        neighbours.add(classes.get(index - i));
+                    }
+                }
+            }
+        }
+
+        return neighbours;
+    }
+
+    /**
+     * @return the top-level classes declaring the given types, in the container of the entry if possible
+     */
+    public static Collection<Container.Entry> getReferencedEntries(Collection<Future<Indexes>> collectionOfFutureIndexes, Container.Entry entry, Collection<String> typeNames) {
+        Set<Container.Entry> entries = new LinkedHashSet<>();
+
+        for (String typeName : typeNames) {
+            int index = typeName.indexOf('$', typeName.lastIndexOf('/') + 1);
+            String outerTypeName = index == -1 ? typeName : typeName.substring(0, index);
+            Container.Entry referencedEntry = null;
+
+            for (Container.Entry nextEntry : IndexesUtil.findInternalTypeName(collectionOfFutureIndexes, outerTypeName)) {
+                if (referencedEntry == null || nextEntry.getContainer() == entry.getContainer()) {
+                    referencedEntry = nextEntry;
+                }
+            }
+
+            if (referencedEntry != null && referencedEntry != entry && isTopLevelClass(referencedEntry)) {
+                entries.add(referencedEntry);
+            }
+        }
+
+        return entries;
+    }
+
+    protected static boolean isTopLevelClass(Container.Entry entry) {
+        String path = entry.getPath();
+        return !entry.isDirectory() && path.endsWith(".class") && path.indexOf('$', path.lastIndexOf('/') + 1) == -1;
+    }
+}
@@ -0,0 +1,290 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.decompiler;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ByteCodeWriter;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.util.loader.LoaderUtils;
+
+import com.heliosdecompiler.transformerapi.StandardTransformers;
+import com.heliosdecompiler.transformerapi.TransformationException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_CFR;
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V1;
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_PROCYON;
+import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_VINEFLOWER;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_ENGINE;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_RACE;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_RACE_ENGINES;
+
+import jd.core.ClassUtil;
+import jd.core.DecompilationResult;
+
+/**
+ * Decompilation of a class by several engines in parallel: the first output without decompilation
+ * failure wins and the other engines are cancelled.<br>
+ * <br>
+ * The race is disabled by default, and only the classes displayed to the user are raced: the source
+ * savers and the prefetcher use the selected engine. The selected engine always runs, followed by the engines of the
+ * {@link GuiPreferences#DECOMPILE_RACE_ENGINES} preference. If all the engines fail, the output of the
+ * first engine having completed, in this order, is returned. Engines ignoring interruption run
+ * until they complete: their statistics are recorded anyway.
+ */
+public final class DecompilationRace {
+    public static final String DEFAULT_ENGINES = String.join(",", ENGINE_CFR, ENGINE_PROCYON, ENGINE_VINEFLOWER);
+
+    /** Comments written by the engines in place of the methods they fail to decompile. */
+    protected static final String[] FAILURE_MARKERS = {
+        ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE, // JD-Core
+        "This method has failed to decompile", "Exception decompiling", // CFR
+        "This method could not be decompiled", // Procyon
+        "$FF: Couldn't be decompiled", "$VF: Couldn't be decompiled", // Fernflower, Vineflower
+        "Code decompiled incorrectly", "Method dump skipped" // JADX
+    };
+
+    private static final DecompilationRace DECOMPILATION_RACE = new DecompilationRace();
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "jd-gui-decompilation-race");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final Map<String, EngineStatistics> statistics = new ConcurrentHashMap<>();
+
+    private DecompilationRace() {
+    }
+
+    public static DecompilationRace getInstance() { return DECOMPILATION_RACE; }
+
+    public static boolean isEnabled(Map<String, String> preferences) {
+        return "true".equals(preferences.get(DECOMPILE_RACE)) && getEngineNames(preferences).size() > 1;
+    }
+
+    /**
+     * @return the selected engine, then the other engines of the race
+     */
+    public static List<String> getEngineNames(Map<String, String> preferences) {
+        Set<String> engineNames = new LinkedHashSet<>();
+        engineNames.add(preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1));
+
+        for (String engineName : preferences.getOrDefault(DECOMPILE_RACE_ENGINES, DEFAULT_ENGINES).split(",")) {
+            if (!engineName.isBlank()) {
+                engineNames.add(engineName.trim());
+            }
+        }
+
+        return new ArrayList<>(engineNames);
+    }
+
+    public static boolean isFailed(String output) {
+        if (output == null) {
+            return true;
+        }
+        for (String marker : FAILURE_MARKERS) {
+            if (output.contains(marker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decompile the entry with the engines of the race.
+     */
+    public DecompilationResult decompile(Map<String, String> preferences, ContainerLoader loader, Container.Entry entry)
+            throws IOException, TransformationException, IllegalAccessException, InvocationTargetException {
+        String entryInternalName = ClassUtil.getInternalName(entry.getPath());
+
+        try {
+            return race(getEngineNames(preferences),
+                    engineName -> StandardTransformers.decompile(LoaderUtils.createLoader(preferences, loader, entry), entryInternalName, preferences, engineName),
+                    DecompilationResult::getDecompiledOutput);
+        } catch (InterruptedException e) {
+            // Restore interrupted state...
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(entryInternalName);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                throw (IOException) cause;
+            }
+            if (cause instanceof TransformationException) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                throw (TransformationException) cause;
+            }
+            if (cause instanceof IllegalAccessException) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                throw (IllegalAccessException) cause;
+            }
+            if (cause instanceof InvocationTargetException) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                throw (InvocationTargetException) cause;
+            }
+            if (cause instanceof RuntimeException) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Run the engines in parallel.
+     *
+     * @param engineNames    the engines, in order of preference
+     * @param decompiler     the decompilation by an engine, called by the threads of the race
+     * @param outputFunction the source of a result
+     * @return the first result without failure, or the first completed result in the order of the engines
+     * @throws ExecutionException if all the engines throw an exception: the exception of the first engine
+     */
+    <R> R race(List<String> engineNames, EngineDecompiler<R> decompiler, Function<R, String> outputFunction) throws InterruptedException, ExecutionException {
+        CompletionService<R> completionService = new ExecutorCompletionService<>(EXECUTOR);
+        List<Future<R>> futures = new ArrayList<>(engineNames.size());
+
+        try {
+            for (String engineName : engineNames) {
+                EngineStatistics engineStatistics = getStatistics(engineName);
+                futures.add(completionService.submit(() -> {
+                    long startTime = System.nanoTime();
+                    boolean failed = true;
+
+                    try {
+                        R result = decompiler.decompile(engineName);
+                        failed = isFailed(outputFunction.apply(result));
+                        return result;
+                    } finally {
+                        engineStatistics.addRun(System.nanoTime() - startTime, failed);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < engineNames.size(); i++) {
+                Future<R> future = completionService.take();
+
+                if (!future.isCancelled()) {
+                    try {
+                        R result = future.get();
+
+                        if (!isFailed(outputFunction.apply(result))) {
+                            getStatistics(engineNames.get(futures.indexOf(future))).wins.increment();
+                            return result;
+                        }
+                    } catch (ExecutionException e) {
+                        // Failure of one engine: wait for the others
+                    }
+                }
+            }
+
+            // All the engines failed: take the first completed result in the order of the engines
+            ExecutionException firstException = null;
+
+            for (Future<R> future : futures) {
+                try {
+                    return future.get();
+                } catch (ExecutionException e) {
+                    if (firstException == null) {
+                        firstException = e;
+                    }
+                }
+            }
+
+            throw firstException;
+        } finally {
+            for (int i = 0; i < futures.size(); i++) {
+                if (futures.get(i).cancel(true)) {
+                    getStatistics(engineNames.get(i)).cancellations.increment();
+                }
+            }
+        }
+    }
+
+    protected EngineStatistics getStatistics(String engineName) {
+        return statistics.computeIfAbsent(engineName, k -> new EngineStatistics());
+    }
+
+    /**
+     * @return the statistics of the engines, by engine name
+     */
+    public Map<String, EngineStatistics> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    public void clearStatistics() {
+        statistics.clear();
+    }
+
+    @FunctionalInterface
+    interface EngineDecompiler<R> {
+        R decompile(String engineName) throws Exception;
+    }
+
+    /**
+     * Counters of an engine. Latencies are the times of the completed runs, won or not.
+     */
+    public static final class EngineStatistics {
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder wins = new LongAdder();
+        private final LongAdder cancellations = new LongAdder();
+        private final LongAdder totalTime = new LongAdder();
+
+        void addRun(long time, boolean failed) {
+            runs.increment();
+            totalTime.add(time);
+            if (failed) {
+                failures.increment();
+            }
+        }
+
+        public long getRunCount() { return runs.sum(); }
+        public long getFailureCount() { return failures.sum(); }
+        public long getWinCount() { return wins.sum(); }
+        public long getCancellationCount() { return cancellations.sum(); }
+
+        /**
+         * @return the average latency in milliseconds, or 0 if no run is completed
+         */
+        public double getAverageTime() {
+            long runCount = runs.sum();
+            return runCount == 0 ? 0 : totalTime.sum() / 1_000_000.0 / runCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d wins, %d runs, %d failures, %d cancellations, %.1f ms on average",
+                    getWinCount(), getRunCount(), getFailureCount(), getCancellationCount(), getAverageTime());
+        }
+    }
+}
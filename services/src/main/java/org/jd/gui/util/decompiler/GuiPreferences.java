@@ -10,6 +10,13 @@ package org.jd.gui.util.decompiler;
 public final class GuiPreferences {
 
     public static final String MAXIMUM_DEPTH_KEY        = "DirectoryIndexerPreferences.maximumDepth";
+    public static final String INDEXER_PARALLELISM      = "IndexerPreferences.parallelism";
+    public static final String INDEXES_CACHE            = "IndexerPreferences.indexesCache";
+    public static final String WATCH_DIRECTORIES        = "IndexerPreferences.watchDirectories";
+    public static final String SOURCE_SAVER_PARALLELISM = "SourceSaverPreferences.parallelism";
+    public static final String DECOMPILATION_CACHE_SIZE = "DecompilationCachePreferences.maximumSize";
+    public static final String DECOMPILATION_CACHE_DISK = "DecompilationCachePreferences.spillToDisk";
+    public static final String DECOMPILATION_PREFETCH_THREADS = "DecompilationCachePreferences.prefetchThreads";
     public static final String FONT_SIZE_KEY            = "ViewerPreferences.fontSize";
     public static final String ERROR_BACKGROUND_COLOR   = "JdGuiPreferences.errorBackgroundColor";
     public static final String DECOMPILE_ENGINE         = "ClassFileDecompilerPreferences.decompileEngine";
@@ -18,6 +25,8 @@ public final class GuiPreferences {
     public static final String SHOW_COMPILER_INFO       = "ClassFileDecompilerPreferences.showCompilerInfo";
     public static final String ADVANCED_CLASS_LOOKUP    = "ClassFileDecompilerPreferences.advancedClassLookup";
     public static final String REMOVE_UNNECESSARY_CASTS = "ClassFileDecompilerPreferences.removeUnnecessaryCasts";
+    public static final String DECOMPILE_RACE           = "ClassFileDecompilerPreferences.race";
+    public static final String DECOMPILE_RACE_ENGINES   = "ClassFileDecompilerPreferences.raceEngines";
 
     private GuiPreferences() {
     }
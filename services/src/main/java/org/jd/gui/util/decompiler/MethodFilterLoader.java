@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.decompiler;
+
+import org.jd.core.v1.api.loader.Loader;
+import org.jd.core.v1.util.StringConstants;
+import org.jd.gui.util.MethodPatcher;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loader serving the decompiled class and its named member classes with some methods only: a
+ * decompiler then decompiles these methods only. Other classes are served unchanged.
+ */
+public class MethodFilterLoader implements Loader {
+
+    private final Loader loader;
+    private final String internalName;
+    private final Map<String, Set<String>> methodNames;
+
+    /**
+     * @param internalName internal name of the decompiled class
+     * @param methodNames  names of the methods to keep, by internal name of the declaring class
+     */
+    public MethodFilterLoader(Loader loader, String internalName, Map<String, Set<String>> methodNames) {
+        this.loader = loader;
+        this.internalName = internalName;
+        this.methodNames = methodNames;
+    }
+
+    @Override
+    public boolean canLoad(String internalPath) {
+        return loader.canLoad(internalPath);
+    }
+
+    @Override
+    public byte[] load(String internalPath) throws IOException {
+        byte[] bytes = loader.load(internalPath);
+        String name = internalPath.endsWith(StringConstants.CLASS_FILE_SUFFIX)
+                ? internalPath.substring(0, internalPath.length() - StringConstants.CLASS_FILE_SUFFIX.length())
+                : internalPath;
+
+        if (bytes != null && MethodPatcher.isNamedMember(internalName, name)) {
+            return MethodPatcher.filterMethods(bytes, methodNames.getOrDefault(name, Collections.emptySet()));
+        }
+
+        return bytes;
+    }
+}
@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import org.jd.gui.api.model.Indexes;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only indexes with a compact memory layout.<br>
+ * <br>
+ * For each index:
+ * <ul>
+ *     <li>keys are interned in the JVM string table and stored in a sorted array,</li>
+ *     <li>values (entries or type names) are stored once in a table and referenced by id,</li>
+ *     <li>the ids of each key are sorted and delta-encoded as variable-length integers
+ *     in a single byte array.</li>
+ * </ul>
+ * Collections returned by the maps are decoded on lookup and are unmodifiable. The last collections
+ * decoded by {@link CompactIndex#get(Object)} are kept in a small direct-mapped cache, so that repeated
+ * lookups of hot keys do not allocate.
+ */
+public class CompactIndexes implements Indexes {
+    @SuppressWarnings("rawtypes")
+    private final Map<String, Map<String, Collection>> indexes;
+
+    @SuppressWarnings("rawtypes")
+    protected CompactIndexes(Map<String, Map<String, Collection>> indexes) {
+        this.indexes = indexes;
+    }
+
+    @SuppressWarnings("rawtypes")
+    public static CompactIndexes compact(Map<String, Map<String, Collection>> map) {
+        Map<String, Map<String, Collection>> indexes = new HashMap<>(map.size() * 4 / 3 + 1);
+
+        for (Map.Entry<String, Map<String, Collection>> e : map.entrySet()) {
+            indexes.put(e.getKey().intern(), CompactIndex.compact(e.getValue()));
+        }
+
+        return new CompactIndexes(indexes);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Map<String, Collection> getIndex(String name) {
+        return indexes.get(name);
+    }
+
+    @SuppressWarnings("rawtypes")
+    public static class CompactIndex extends AbstractMap<String, Collection> {
+        protected static final int DECODED_CACHE_SIZE = 64;
+
+        private final String[] keys;
+        private final int[] offsets;
+        private final byte[] postings;
+        private final Object[] values;
+        // Decoded collections, by key index modulo the cache size
+        private final Decoded[] decoded = new Decoded[DECODED_CACHE_SIZE];
+
+        protected CompactIndex(String[] keys, int[] offsets, byte[] postings, Object[] values) {
+            this.keys = keys;
+            this.offsets = offsets;
+            this.postings = postings;
+            this.values = values;
+        }
+
+        public static CompactIndex compact(Map<String, Collection> map) {
+            if (map instanceof CompactIndex) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                return (CompactIndex) map;
+            }
+
+            String[] keys = new String[map.size()];
+            int i = 0;
+
+            for (String key : map.keySet()) {
+                keys[i++] = key.intern();
+            }
+
+            Arrays.sort(keys);
+
+            Map<Object, Integer> valueIds = new HashMap<>();
+            List<Object> values = new ArrayList<>();
+            int[] offsets = new int[keys.length + 1];
+            ByteArray postings = new ByteArray(keys.length * 2);
+
+            for (i = 0; i < keys.length; i++) {
+                Collection collection = map.get(keys[i]);
+                int[] ids = new int[collection.size()];
+                int length = 0;
+
+                for (Object value : collection) {
+                    if (value instanceof String) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                        value = ((String) value).intern();
+                    }
+                    ids[length++] = valueIds.computeIfAbsent(value, v -> {
+                        values.add(v);
+                        return values.size() - 1;
+                    });
+                }
+
+                Arrays.sort(ids, 0, length);
+                offsets[i] = postings.size();
+
+                int previous = -1;
+
+                for (int j = 0; j < length; j++) {
+                    int id = ids[j];
+                    if (id != previous) {
+                        // Delta from previous id, 0 for the first one
+                        postings.writeVarInt(previous == -1 ? id : id - previous - 1);
+                        previous = id;
+                    }
+                }
+            }
+
+            offsets[keys.length] = postings.size();
+
+            return new CompactIndex(keys, offsets, postings.toByteArray(), values.toArray());
+        }
+
+        @Override
+        public Collection get(Object key) {
+            int index = indexOf(key);
+
+            if (index < 0) {
+                return null;
+            }
+
+            int slot = index & (DECODED_CACHE_SIZE - 1);
+            Decoded d = decoded[slot];
+
+            if (d == null || d.index() != index) {
+                d = new Decoded(index, decode(index));
+                decoded[slot] = d;
+            }
+
+            return d.values();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<String> iterator() {
+                    return Collections.unmodifiableList(Arrays.asList(keys)).iterator();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return indexOf(o) >= 0;
+                }
+
+                @Override
+                public int size() {
+                    return keys.length;
+                }
+            };
+        }
+
+        @Override
+        public Set<Map.Entry<String, Collection>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<String, Collection>> iterator() {
+                    return new Iterator<>() {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < keys.length;
+                        }
+
+                        @Override
+                        public Map.Entry<String, Collection> next() {
+                            if (index >= keys.length) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<String, Collection> entry = new SimpleImmutableEntry<>(keys[index], decode(index));
+                            index++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return keys.length;
+                }
+            };
+        }
+
+        protected int indexOf(Object key) {
+            return key instanceof String ? Arrays.binarySearch(keys, key) : -1;
+        }
+
+        protected Collection decode(int index) {
+            int position = offsets[index];
+            int end = offsets[index + 1];
+            List<Object> list = new ArrayList<>();
+            int id = -1;
+
+            while (position < end) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+
+                do {
+                    b = postings[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+
+                id = id == -1 ? delta : id + delta + 1;
+                list.add(values[id]);
+            }
+
+            return Collections.unmodifiableList(list);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    /**
+     * Decoded collection of a key. Immutable, to be shared between threads without synchronization.
+     */
+    @SuppressWarnings("rawtypes")
+    private record Decoded(int index, Collection values) {}
+
+    protected static class ByteArray {
+        private byte[] bytes;
+        private int size;
+
+        public ByteArray(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        public void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((byte) value);
+        }
+
+        private void write(byte b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = b;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
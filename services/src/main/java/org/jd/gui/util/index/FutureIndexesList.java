@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import org.jd.gui.api.model.Indexes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Future;
+
+/**
+ * Indexes of the opened containers, stamped with the generation of the indexes.<br>
+ * <br>
+ * The generation is incremented each time a container is opened, closed or indexed: comparing
+ * generations detects a change without waiting for the indexes nor hashing them.
+ */
+public class FutureIndexesList extends ArrayList<Future<Indexes>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long generation;
+
+    public FutureIndexesList(long generation, int initialCapacity) {
+        super(initialCapacity);
+        this.generation = generation;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the generation of the indexes, or the hash code of the collection if it is not stamped
+     */
+    public static long getGeneration(Collection<Future<Indexes>> collectionOfFutureIndexes) {
+        if (collectionOfFutureIndexes instanceof FutureIndexesList) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+            return ((FutureIndexesList) collectionOfFutureIndexes).getGeneration();
+        }
+        return collectionOfFutureIndexes.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Long.hashCode(generation);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || o.getClass() != this.getClass()) {
+            return false;
+        }
+        return generation == ((FutureIndexesList) o).generation && super.equals(o);
+    }
+}
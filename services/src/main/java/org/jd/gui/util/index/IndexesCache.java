@@ -0,0 +1,374 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.api.model.Container;
+import org.jd.gui.api.model.Indexes;
+import org.jd.gui.model.container.entry.path.SimpleEntryPath;
+import org.jd.util.SHA1Util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Persistent store of the indexes of an archive, keyed by the SHA-1 of the
+ * archive content and by {@link #VERSION}.<br>
+ * <br>
+ * File format:
+ * <pre>
+ * int MAGIC, int VERSION
+ * index sections: int keyCount, { string key, int valueCount, { byte tag, int entryId | string value } }
+ * entry table: int entryCount, { string entryId }
+ * index table: int indexCount, { string indexName, long sectionOffset }
+ * long entryTableOffset, long indexTableOffset
+ * </pre>
+ * Entries are stored by their path, prefixed by the paths of the nested
+ * archives containing them ("WEB-INF/lib/a.jar!/a/A.class").<br>
+ * Files are memory-mapped on load and index sections are decoded on first access
+ * into {@link CompactIndexes.CompactIndex}.
+ */
+public final class IndexesCache {
+    /** To increment each time the content of the indexes changes. */
+    public static final int VERSION = 3;
+
+    protected static final int MAGIC = 0x4A444958; // "JDIX"
+    protected static final int MAXIMUM_FILE_COUNT = 500;
+    protected static final String FILE_EXTENSION = ".idx";
+    protected static final String NESTED_ARCHIVE_SEPARATOR = "!/";
+
+    private static final byte ENTRY_TAG = 0;
+    private static final byte STRING_TAG = 1;
+
+    private final File directory;
+
+    public IndexesCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the cache file of the archive, or null if the entry is not an archive file
+     */
+    public File getCacheFile(Container.Entry entry) {
+        if (!"file".equals(entry.getUri().getScheme())) {
+            return null;
+        }
+        File archive = new File(entry.getUri());
+        if (!archive.isFile()) {
+            return null;
+        }
+        String sha1 = SHA1Util.getSHA1(archive);
+        if (sha1.isEmpty()) {
+            return null;
+        }
+        return new File(directory, sha1 + '-' + VERSION + FILE_EXTENSION);
+    }
+
+    /**
+     * @return cached indexes, or null if the cache file is missing or invalid
+     */
+    public Indexes load(File cacheFile, Container.Entry entry) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                return null;
+            }
+            Indexes indexes = new MappedIndexes(buffer, entry);
+            // Keep recently used files on eviction
+            cacheFile.setLastModified(System.currentTimeMillis());
+            return indexes;
+        } catch (IOException | RuntimeException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            delete(cacheFile);
+            return null;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    public void save(File cacheFile, Map<String, Map<String, Collection>> indexes, Container container) {
+        File tmpFile = new File(cacheFile.getPath() + ".tmp");
+
+        try {
+            Files.createDirectories(directory.toPath());
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile.toPath())))) {
+                write(out, indexes, container);
+            }
+
+            Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evict();
+        } catch (IOException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            delete(tmpFile);
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static void write(DataOutputStream out, Map<String, Map<String, Collection>> indexes, Container container) throws IOException {
+        Map<Container.Entry, Integer> entryIds = new IdentityHashMap<>();
+        List<String> entryTable = new ArrayList<>();
+        Map<String, Long> sectionOffsets = new HashMap<>();
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        for (Map.Entry<String, Map<String, Collection>> index : indexes.entrySet()) {
+            sectionOffsets.put(index.getKey(), (long) out.size());
+            out.writeInt(index.getValue().size());
+
+            for (Map.Entry<String, Collection> e : index.getValue().entrySet()) {
+                writeString(out, e.getKey());
+                out.writeInt(e.getValue().size());
+
+                for (Object value : e.getValue()) {
+                    if (value instanceof Container.Entry) { // to convert to jdk16 pattern matching only when spotbugs #1617 and eclipse #577987 are solved
+                        Container.Entry entry = (Container.Entry) value;
+                        Integer id = entryIds.computeIfAbsent(entry, k -> {
+                            entryTable.add(toEntryId(k, container));
+                            return entryTable.size() - 1;
+                        });
+                        out.writeByte(ENTRY_TAG);
+                        out.writeInt(id);
+                    } else {
+                        out.writeByte(STRING_TAG);
+                        writeString(out, String.valueOf(value));
+                    }
+                }
+            }
+        }
+
+        long entryTableOffset = out.size();
+        out.writeInt(entryTable.size());
+        for (String entryId : entryTable) {
+            writeString(out, entryId);
+        }
+
+        long indexTableOffset = out.size();
+        out.writeInt(sectionOffsets.size());
+        for (Map.Entry<String, Long> e : sectionOffsets.entrySet()) {
+            writeString(out, e.getKey());
+            out.writeLong(e.getValue());
+        }
+
+        out.writeLong(entryTableOffset);
+        out.writeLong(indexTableOffset);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    protected static String toEntryId(Container.Entry entry, Container container) {
+        Container entryContainer = entry.getContainer();
+        if (entryContainer == container || entryContainer.getRoot() == null) {
+            return entry.getPath();
+        }
+        // Nested archive
+        return toEntryId(entryContainer.getRoot().getParent(), container) + NESTED_ARCHIVE_SEPARATOR + entry.getPath();
+    }
+
+    protected static Container.Entry toEntry(String entryId, Container.Entry entry) {
+        Container.Entry current = entry;
+        int start = 0;
+
+        do {
+            int end = entryId.indexOf(NESTED_ARCHIVE_SEPARATOR, start);
+            String path = end == -1 ? entryId.substring(start) : entryId.substring(start, end);
+
+            current = toEntry(current.getChildren(), path);
+            if (current == null) {
+                return null;
+            }
+
+            start = end == -1 ? -1 : end + NESTED_ARCHIVE_SEPARATOR.length();
+        } while (start != -1);
+
+        return current;
+    }
+
+    private static Container.Entry toEntry(Map<Container.EntryPath, Container.Entry> children, String path) {
+        int index = path.indexOf('/');
+
+        // Walk down directories
+        while (index != -1 && children != null) {
+            Container.Entry directory = children.get(new SimpleEntryPath(path.substring(0, index), true));
+            if (directory == null) {
+                break;
+            }
+            children = directory.getChildren();
+            index = path.indexOf('/', index + 1);
+        }
+
+        if (children == null) {
+            return null;
+        }
+
+        Container.Entry result = children.get(new SimpleEntryPath(path, false));
+        return result != null ? result : children.get(new SimpleEntryPath(path, true));
+    }
+
+    protected void evict() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+
+        if (files != null && files.length > MAXIMUM_FILE_COUNT) {
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (int i = files.length - MAXIMUM_FILE_COUNT - 1; i >= 0; i--) {
+                delete(files[i]);
+            }
+        }
+    }
+
+    private static void delete(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+    }
+
+    /**
+     * Read-only indexes decoding sections of a mapped cache file on first access.
+     */
+    @SuppressWarnings("rawtypes")
+    protected static class MappedIndexes implements Indexes {
+        private final ByteBuffer buffer;
+        private final Container.Entry entry;
+        private final Map<String, Long> sectionOffsets = new HashMap<>();
+        private final Map<String, Map<String, Collection>> decodedIndexes = new HashMap<>();
+        private final long entryTableOffset;
+        private Container.Entry[] entries;
+        private String[] entryIds;
+
+        public MappedIndexes(ByteBuffer buffer, Container.Entry entry) {
+            this.buffer = buffer;
+            this.entry = entry;
+
+            int limit = buffer.limit();
+            this.entryTableOffset = buffer.getLong(limit - 16);
+            long indexTableOffset = buffer.getLong(limit - 8);
+
+            ByteBuffer b = buffer.duplicate();
+            b.position((int) indexTableOffset);
+            for (int i = b.getInt(); i > 0; i--) {
+                String name = readString(b);
+                sectionOffsets.put(name, b.getLong());
+            }
+        }
+
+        @Override
+        public synchronized Map<String, Collection> getIndex(String name) {
+            Map<String, Collection> index = decodedIndexes.get(name);
+
+            if (index == null) {
+                Long offset = sectionOffsets.get(name);
+                if (offset == null) {
+                    return null;
+                }
+                try {
+                    index = decode(offset);
+                } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                    assert ExceptionUtil.printStackTrace(e);
+                    index = new HashMap<>();
+                }
+                decodedIndexes.put(name, index);
+            }
+
+            return index;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, Collection> decode(long offset) {
+            ByteBuffer b = buffer.duplicate();
+            b.position((int) offset);
+
+            int keyCount = b.getInt();
+            Map<String, Collection> index = new HashMap<>(keyCount * 4 / 3 + 1);
+
+            for (int i = 0; i < keyCount; i++) {
+                String key = readString(b);
+                int valueCount = b.getInt();
+                List values = new ArrayList<>(valueCount);
+
+                for (int j = 0; j < valueCount; j++) {
+                    if (b.get() == ENTRY_TAG) {
+                        Container.Entry e = getEntry(b.getInt());
+                        if (e != null) {
+                            values.add(e);
+                        }
+                    } else {
+                        values.add(readString(b));
+                    }
+                }
+
+                index.put(key, values);
+            }
+
+            return CompactIndexes.CompactIndex.compact(index);
+        }
+
+        private Container.Entry getEntry(int id) {
+            if (entries == null) {
+                ByteBuffer b = buffer.duplicate();
+                b.position((int) entryTableOffset);
+                int entryCount = b.getInt();
+                entryIds = new String[entryCount];
+                for (int i = 0; i < entryCount; i++) {
+                    entryIds[i] = readString(b);
+                }
+                entries = new Container.Entry[entryCount];
+            }
+
+            Container.Entry e = entries[id];
+
+            if (e == null) {
+                e = entries[id] = toEntry(entryIds[id], entry);
+            }
+
+            return e;
+        }
+    }
+}
@@ -16,9 +16,6 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
-import java.util.zip.ZipEntry;
-
-import static java.nio.charset.StandardCharsets.UTF_8;
 
 public final class IndexesUtil {
 
@@ -34,14 +31,36 @@ public final class IndexesUtil {
         return find(collectionOfFutureIndexes, "typeDeclarations", internalTypeName);
     }
 
-    @SuppressWarnings("rawtypes")
     public static boolean contains(Collection<Future<Indexes>> collectionOfFutureIndexes, String indexName, String key) {
+        return !SymbolTable.getInstance().getIndexes(collectionOfFutureIndexes, indexName, key).isEmpty();
+    }
+
+    public static <T> List<T> find(Collection<Future<Indexes>> collectionOfFutureIndexes, String indexName, String key) {
+        List<T> entries = new ArrayList<>();
+
+        for (Indexes indexes : SymbolTable.getInstance().getIndexes(collectionOfFutureIndexes, indexName, key)) {
+            @SuppressWarnings({ "rawtypes", "unchecked" })
+            Collection<T> collection = (Collection) indexes.getIndex(indexName).get(key);
+            if (collection != null) {
+                entries.addAll(collection);
+            }
+        }
+
+        return entries;
+    }
+    
+    /**
+     * Search the entry declaring the outermost type of the types declared by 'entry', in the containers.
+     *
+     * @return the outer entry, 'entry' itself for a top-level type, or null if 'entry' is not indexed
+     */
+    public static Container.Entry findOuterEntry(Collection<Future<Indexes>> collectionOfFutureIndexes, Container.Entry entry) {
         try {
             for (Future<Indexes> futureIndexes : collectionOfFutureIndexes) {
                 if (futureIndexes.isDone()) {
-                    Map<String, Collection> index = futureIndexes.get().getIndex(indexName);
-                    if (index != null && index.get(key) != null) {
-                        return true;
+                    Container.Entry outerEntry = findOuterEntry(futureIndexes.get(), entry);
+                    if (outerEntry != null) {
+                        return outerEntry;
                     }
                 }
             }
@@ -53,56 +72,91 @@ public final class IndexesUtil {
             assert ExceptionUtil.printStackTrace(e);
         }
 
-        return false;
+        return null;
     }
 
-    @SuppressWarnings({ "rawtypes" })
-    public static List<Container.Entry> find(Collection<Future<Indexes>> collectionOfFutureIndexes, String indexName, String key) {
-        List<Container.Entry> entries = new ArrayList<>();
+    /**
+     * Search the entry declaring the outermost type of the types declared by 'entry', with the
+     * "typeDeclarations" and "outerTypeNames" indexes : no class file is read.
+     *
+     * @return the outer entry, 'entry' itself for a top-level type, or null if 'entry' is not indexed
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public static Container.Entry findOuterEntry(Indexes indexes, Container.Entry entry) {
+        Map<String, Collection> typeDeclarations = indexes.getIndex("typeDeclarations");
+
+        if (typeDeclarations == null) {
+            return null;
+        }
 
-        try {
-            for (Future<Indexes> futureIndexes : collectionOfFutureIndexes) {
-                if (futureIndexes.isDone()) {
-                    Map<String, Collection> index = futureIndexes.get().getIndex(indexName);
-                    if (index != null) {
-                        @SuppressWarnings("unchecked")
-                        Collection<Container.Entry> collection = index.get(key);
-                        if (collection != null) {
-                            entries.addAll(collection);
-                        }
-                    }
+        String typeName = getTypeName(typeDeclarations, entry);
+
+        if (typeName == null) {
+            return null;
+        }
+
+        Map<String, Collection> outerTypeNames = indexes.getIndex("outerTypeNames");
+        String outerTypeName = typeName;
+
+        if (outerTypeNames != null) {
+            Collection<String> collection = outerTypeNames.get(outerTypeName);
+
+            while (collection != null && !collection.isEmpty()) {
+                outerTypeName = collection.iterator().next();
+                if (outerTypeName.equals(typeName)) {
+                    // Cycle
+                    break;
                 }
+                collection = outerTypeNames.get(outerTypeName);
             }
-        } catch (InterruptedException e) {
-            assert ExceptionUtil.printStackTrace(e);
-            // Restore interrupted state...
-            Thread.currentThread().interrupt();
-        } catch (Exception e) {
-            assert ExceptionUtil.printStackTrace(e);
         }
 
-        return entries;
+        if (outerTypeName.equals(typeName)) {
+            return entry;
+        }
+
+        Collection<Container.Entry> outerEntries = typeDeclarations.get(outerTypeName);
+        Container.Entry outerEntry = null;
+
+        if (outerEntries != null) {
+            for (Container.Entry e : outerEntries) {
+                if (e.getParent() == entry.getParent()) {
+                    return e;
+                }
+                if (outerEntry == null && e.getContainer() == entry.getContainer()) {
+                    outerEntry = e;
+                }
+            }
+        }
+
+        return outerEntry;
     }
-    
-    /*
-     * https://jakewharton.com/calculating-zip-file-entry-true-impact/
+
+    /**
+     * @return the name of the type declared by 'entry', searched by removing the leading directories
+     * of the entry path ("BOOT-INF/classes/a/B.class" -> "a/B")
      */
-    public static long entryImpactBytes(ZipEntry entry) {
-        int nameSize = entry.getName().getBytes(UTF_8).length;
-        int extraSize = entry.getExtra() != null
-            ? entry.getExtra().length
-            : 0;
-        int commentSize = entry.getComment() != null
-            ? entry.getComment().getBytes(UTF_8).length
-            : 0;
-
-        // Calculate the actual compressed size impact in the zip, not just compressed data size.
-        // See https://en.wikipedia.org/wiki/Zip_(file_format)#File_headers for details.
-        return entry.getCompressedSize()
-            // Local file header. There is no way of knowing whether a trailing data descriptor
-            // was present since the general flags field is not exposed, but it's unlikely.
-            + 30 + nameSize + extraSize
-            // Central directory file header.
-            + 46 + nameSize + extraSize + commentSize;
-      }
+    @SuppressWarnings("rawtypes")
+    protected static String getTypeName(Map<String, Collection> typeDeclarations, Container.Entry entry) {
+        String path = entry.getPath();
+        int lastSeparatorIndex = path.lastIndexOf('/');
+        int extensionIndex = path.lastIndexOf('.');
+        String typeName = extensionIndex > lastSeparatorIndex ? path.substring(0, extensionIndex) : path;
+
+        for (;;) {
+            Collection collection = typeDeclarations.get(typeName);
+
+            if (collection != null && collection.contains(entry)) {
+                return typeName;
+            }
+
+            int index = typeName.indexOf('/');
+
+            if (index == -1) {
+                return null;
+            }
+
+            typeName = typeName.substring(index + 1);
+        }
+    }
 }
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import org.jd.gui.api.model.Indexes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Unsafe thread indexes populating values automatically, used to collect the
+ * results of one indexing task before merging them into shared indexes.
+ */
+@SuppressWarnings("rawtypes")
+public class MapIndexes implements Indexes {
+    private final Map<String, Map<String, Collection>> indexes = new HashMap<>();
+
+    @Override
+    public Map<String, Collection> getIndex(String name) {
+        return indexes.computeIfAbsent(name, k -> new MapWithDefault());
+    }
+
+    public boolean isEmpty() {
+        return indexes.isEmpty();
+    }
+
+    /**
+     * Append all values to the target indexes. Callers are responsible for
+     * the synchronization of the target.
+     */
+    @SuppressWarnings("unchecked")
+    public void mergeInto(Indexes target) {
+        for (Map.Entry<String, Map<String, Collection>> index : indexes.entrySet()) {
+            Map<String, Collection> targetIndex = target.getIndex(index.getKey());
+
+            for (Map.Entry<String, Collection> e : index.getValue().entrySet()) {
+                targetIndex.get(e.getKey()).addAll(e.getValue());
+            }
+        }
+    }
+
+    /**
+     * Remove one occurrence of each value from the target indexes, and the keys left without value.
+     * Callers are responsible for the synchronization of the target.
+     */
+    public void removeFrom(MapIndexes target) {
+        for (Map.Entry<String, Map<String, Collection>> index : indexes.entrySet()) {
+            Map<String, Collection> targetIndex = target.indexes.get(index.getKey());
+
+            if (targetIndex != null) {
+                for (Map.Entry<String, Collection> e : index.getValue().entrySet()) {
+                    Collection targetValues = targetIndex.getOrDefault(e.getKey(), null);
+
+                    if (targetValues != null) {
+                        for (Object value : e.getValue()) {
+                            targetValues.remove(value);
+                        }
+                        if (targetValues.isEmpty()) {
+                            targetIndex.remove(e.getKey());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the keys of each index to 'keys'.
+     */
+    public void addKeysTo(Map<String, Set<String>> keys) {
+        for (Map.Entry<String, Map<String, Collection>> index : indexes.entrySet()) {
+            keys.computeIfAbsent(index.getKey(), k -> new HashSet<>()).addAll(index.getValue().keySet());
+        }
+    }
+
+    public int getKeyCount() {
+        int count = 0;
+
+        for (Map<String, Collection> index : indexes.values()) {
+            count += index.size();
+        }
+
+        return count;
+    }
+
+    public CompactIndexes compact() {
+        return CompactIndexes.compact(indexes);
+    }
+
+    /**
+     * @param compactIndexes the indexes compacted before the changes of 'changedKeys'
+     * @param changedKeys    index name -> keys changed since the compaction
+     * @return read-only indexes returning the current values of 'changedKeys', and the values of
+     *         'compactIndexes' for the other keys
+     */
+    @SuppressWarnings("unchecked")
+    public PatchedIndexes patch(CompactIndexes compactIndexes, Map<String, Set<String>> changedKeys) {
+        Map<String, Map<String, Collection>> patches = new HashMap<>();
+
+        for (Map.Entry<String, Set<String>> e : changedKeys.entrySet()) {
+            Map<String, Collection> index = indexes.get(e.getKey());
+            Map<String, Collection> patch = new HashMap<>();
+
+            for (String key : e.getValue()) {
+                Collection values = index == null ? null : index.getOrDefault(key, null);
+                // Null for the removed keys
+                patch.put(key, values == null || values.isEmpty() ? null : Collections.unmodifiableList(new ArrayList<>(new LinkedHashSet<>(values))));
+            }
+
+            patches.put(e.getKey(), patch);
+        }
+
+        return new PatchedIndexes(compactIndexes, patches);
+    }
+
+    protected static class MapWithDefault extends HashMap<String, Collection> {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Collection get(Object o) {
+            return computeIfAbsent(o.toString(), k -> new ArrayList<>());
+        }
+    }
+}
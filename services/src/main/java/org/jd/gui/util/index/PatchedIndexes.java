@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import org.jd.gui.api.model.Indexes;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Read-only indexes made of compact indexes and of the values of the keys changed since their
+ * compaction, so that a few changes are published without compacting all the indexes again.
+ */
+@SuppressWarnings("rawtypes")
+public class PatchedIndexes implements Indexes {
+    private final Map<String, Map<String, Collection>> indexes = new HashMap<>();
+    private final CompactIndexes compactIndexes;
+
+    /**
+     * @param patches index name -> changed key -> values, null for the removed keys
+     */
+    protected PatchedIndexes(CompactIndexes compactIndexes, Map<String, Map<String, Collection>> patches) {
+        this.compactIndexes = compactIndexes;
+
+        for (Map.Entry<String, Map<String, Collection>> e : patches.entrySet()) {
+            Map<String, Collection> index = compactIndexes.getIndex(e.getKey());
+            indexes.put(e.getKey(), new PatchedIndex(index == null ? Collections.emptyMap() : index, e.getValue()));
+        }
+    }
+
+    @Override
+    public Map<String, Collection> getIndex(String name) {
+        Map<String, Collection> index = indexes.get(name);
+        return index == null ? compactIndexes.getIndex(name) : index;
+    }
+
+    protected static class PatchedIndex extends AbstractMap<String, Collection> {
+        private final Map<String, Collection> index;
+        private final Map<String, Collection> patch;
+        private final int size;
+
+        protected PatchedIndex(Map<String, Collection> index, Map<String, Collection> patch) {
+            this.index = index;
+            this.patch = patch;
+
+            int count = index.size();
+
+            for (Map.Entry<String, Collection> e : patch.entrySet()) {
+                boolean indexed = index.containsKey(e.getKey());
+
+                if (indexed && e.getValue() == null) {
+                    count--;
+                } else if (!indexed && e.getValue() != null) {
+                    count++;
+                }
+            }
+
+            this.size = count;
+        }
+
+        @Override
+        public Collection get(Object key) {
+            return patch.containsKey(key) ? patch.get(key) : index.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return patch.containsKey(key) ? patch.get(key) != null : index.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<String> iterator() {
+                    // Keys of the index not decoding the values
+                    return Stream.concat(
+                            index.keySet().stream().filter(key -> !patch.containsKey(key)),
+                            patch.entrySet().stream().filter(e -> e.getValue() != null).map(Map.Entry::getKey)).iterator();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsKey(o);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        @Override
+        public Set<Map.Entry<String, Collection>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<String, Collection>> iterator() {
+                    return Stream.concat(
+                            index.entrySet().stream().filter(e -> !patch.containsKey(e.getKey())),
+                            patch.entrySet().stream().filter(e -> e.getValue() != null)).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+}
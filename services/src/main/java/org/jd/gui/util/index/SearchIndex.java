@@ -0,0 +1,387 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Secondary index on the keys of an index, used to search keys with simple
+ * patterns ('*' matches 0 or N characters, '?' matches 1 character, the
+ * pattern matching the beginning of the key).<br>
+ * <br>
+ * The searched terms (the keys, or a part of the keys, like simple type names)
+ * are:
+ * <ul>
+ *     <li>sorted, to find the terms starting with the literal prefix of the pattern,</li>
+ *     <li>split into trigrams, to find the terms containing the literal parts of the pattern.</li>
+ * </ul>
+ * Only the candidate terms are checked with the predicate given to {@link #search(String, Predicate)}.
+ */
+public final class SearchIndex {
+    protected static final int TRIGRAM_LENGTH = 3;
+    /** Longer terms are not split into trigrams, and are always checked. */
+    protected static final int MAXIMUM_INDEXED_LENGTH = 256;
+
+    private final String[] keys;
+    private final String[] terms;
+    /** Term ids, sorted by term */
+    private final int[] sortedIds;
+    private final TrigramTable trigrams;
+    private final int[] trigramOffsets;
+    private final byte[] trigramPostings;
+    private final int[] unindexedIds;
+
+    private SearchIndex(String[] keys, String[] terms, int[] sortedIds, TrigramTable trigrams, int[] trigramOffsets, byte[] trigramPostings, int[] unindexedIds) {
+        this.keys = keys;
+        this.terms = terms;
+        this.sortedIds = sortedIds;
+        this.trigrams = trigrams;
+        this.trigramOffsets = trigramOffsets;
+        this.trigramPostings = trigramPostings;
+        this.unindexedIds = unindexedIds;
+    }
+
+    /**
+     * @param keys         keys of an index
+     * @param termFunction function returning the searched part of a key
+     */
+    public static SearchIndex build(Collection<String> keys, UnaryOperator<String> termFunction) {
+        String[] keyArray = keys.toArray(new String[keys.size()]);
+        int length = keyArray.length;
+        String[] terms = new String[length];
+        boolean sorted = true;
+
+        for (int i = 0; i < length; i++) {
+            terms[i] = termFunction.apply(keyArray[i]);
+            if (sorted && i > 0 && terms[i - 1].compareTo(terms[i]) > 0) {
+                sorted = false;
+            }
+        }
+
+        int[] sortedIds;
+
+        if (sorted) {
+            sortedIds = IntStream.range(0, length).toArray();
+        } else {
+            sortedIds = IntStream.range(0, length).boxed().sorted(Comparator.comparing(i -> terms[i])).mapToInt(Integer::intValue).toArray();
+        }
+
+        // Build trigram postings : term ids are added in increasing order, and delta-encoded
+        TrigramTable trigrams = new TrigramTable();
+        List<CompactIndexes.ByteArray> postings = new ArrayList<>();
+        int[] lastIds = new int[64];
+        List<Integer> unindexedIds = new ArrayList<>();
+
+        for (int id = 0; id < length; id++) {
+            String term = terms[id];
+
+            if (term.length() > MAXIMUM_INDEXED_LENGTH) {
+                unindexedIds.add(id);
+                continue;
+            }
+
+            for (int i = 0, end = term.length() - TRIGRAM_LENGTH; i <= end; i++) {
+                int trigramId = trigrams.add(trigram(term, i));
+
+                if (trigramId == postings.size()) {
+                    postings.add(new CompactIndexes.ByteArray(4));
+                    if (trigramId == lastIds.length) {
+                        lastIds = Arrays.copyOf(lastIds, trigramId * 2);
+                    }
+                    lastIds[trigramId] = -1;
+                }
+                if (lastIds[trigramId] != id) {
+                    postings.get(trigramId).writeVarInt(id - lastIds[trigramId] - 1);
+                    lastIds[trigramId] = id;
+                }
+            }
+        }
+
+        int trigramCount = postings.size();
+        int[] trigramOffsets = new int[trigramCount + 1];
+        int size = 0;
+
+        for (int i = 0; i < trigramCount; i++) {
+            trigramOffsets[i] = size;
+            size += postings.get(i).size();
+        }
+
+        trigramOffsets[trigramCount] = size;
+
+        byte[] trigramPostings = new byte[size];
+
+        for (int i = 0; i < trigramCount; i++) {
+            byte[] bytes = postings.get(i).toByteArray();
+            System.arraycopy(bytes, 0, trigramPostings, trigramOffsets[i], bytes.length);
+        }
+
+        return new SearchIndex(keyArray, terms, sortedIds, trigrams, trigramOffsets, trigramPostings, unindexedIds.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Search the keys of the terms matching the pattern.
+     *
+     * @param pattern   pattern containing '*' and '?' wildcards
+     * @param predicate predicate used to check the candidate terms
+     * @return the matching keys, or null if the pattern is too vague to use the index
+     */
+    public List<String> search(String pattern, Predicate<String> predicate) {
+        List<String> matchingKeys = new ArrayList<>();
+        int prefixLength = 0;
+
+        while (prefixLength < pattern.length() && !isWildcard(pattern.charAt(prefixLength))) {
+            prefixLength++;
+        }
+
+        if (prefixLength > 0) {
+            // Search terms starting with prefix
+            String prefix = pattern.substring(0, prefixLength);
+
+            for (int i = lowerBound(prefix), length = sortedIds.length; i < length; i++) {
+                int id = sortedIds[i];
+                String term = terms[id];
+
+                if (!term.startsWith(prefix)) {
+                    break;
+                }
+                if (predicate.test(term)) {
+                    matchingKeys.add(keys[id]);
+                }
+            }
+        } else {
+            int[] candidateIds = searchTrigrams(pattern);
+
+            if (candidateIds == null) {
+                return null;
+            }
+
+            for (int id : candidateIds) {
+                if (predicate.test(terms[id])) {
+                    matchingKeys.add(keys[id]);
+                }
+            }
+            for (int id : unindexedIds) {
+                if (predicate.test(terms[id])) {
+                    matchingKeys.add(keys[id]);
+                }
+            }
+        }
+
+        return matchingKeys;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @return the sorted ids of the terms containing all the trigrams of the literal parts of the pattern,
+     * or null if the pattern does not contain any trigram
+     */
+    protected int[] searchTrigrams(String pattern) {
+        List<int[]> lists = new ArrayList<>();
+        int start = 0;
+        int length = pattern.length();
+
+        while (start < length) {
+            int end = start;
+
+            while (end < length && !isWildcard(pattern.charAt(end))) {
+                end++;
+            }
+
+            for (int i = start, last = end - TRIGRAM_LENGTH; i <= last; i++) {
+                int trigramId = trigrams.get(trigram(pattern, i));
+
+                if (trigramId == -1) {
+                    return new int[0];
+                }
+
+                lists.add(decode(trigramId));
+            }
+
+            start = end + 1;
+        }
+
+        if (lists.isEmpty()) {
+            return null;
+        }
+
+        // Intersect, starting with the shortest list
+        lists.sort(Comparator.comparingInt(list -> list.length));
+
+        int[] result = lists.get(0);
+
+        for (int i = 1, size = lists.size(); i < size && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+
+        return result;
+    }
+
+    protected int[] decode(int trigramId) {
+        int position = trigramOffsets[trigramId];
+        int end = trigramOffsets[trigramId + 1];
+        int[] ids = new int[end - position];
+        int length = 0;
+        int id = -1;
+
+        while (position < end) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+
+            do {
+                b = trigramPostings[position++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            id += delta + 1;
+            ids[length++] = id;
+        }
+
+        return Arrays.copyOf(ids, length);
+    }
+
+    protected static int[] intersect(int[] ids1, int[] ids2) {
+        int[] result = new int[Math.min(ids1.length, ids2.length)];
+        int length = 0;
+
+        for (int i = 0, j = 0; i < ids1.length && j < ids2.length; ) {
+            if (ids1[i] < ids2[j]) {
+                i++;
+            } else if (ids1[i] > ids2[j]) {
+                j++;
+            } else {
+                result[length++] = ids1[i];
+                i++;
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(result, length);
+    }
+
+    protected int lowerBound(String prefix) {
+        int low = 0;
+        int high = sortedIds.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (terms[sortedIds[middle]].compareTo(prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    protected static boolean isWildcard(char c) {
+        return c == '*' || c == '?';
+    }
+
+    protected static long trigram(String s, int index) {
+        return ((long)s.charAt(index) << 32) | ((long)s.charAt(index + 1) << 16) | s.charAt(index + 2);
+    }
+
+    /**
+     * Open addressing hash table of trigram ids.
+     */
+    protected static class TrigramTable {
+        private long[] trigrams = new long[1024];
+        private int[] ids = new int[1024];
+        private int size;
+
+        public TrigramTable() {
+            Arrays.fill(ids, -1);
+        }
+
+        public int get(long trigram) {
+            int mask = trigrams.length - 1;
+
+            for (int i = hash(trigram) & mask; ; i = (i + 1) & mask) {
+                if (ids[i] == -1) {
+                    return -1;
+                }
+                if (trigrams[i] == trigram) {
+                    return ids[i];
+                }
+            }
+        }
+
+        /**
+         * @return the id of the trigram, a new id being allocated if the trigram is unknown
+         */
+        public int add(long trigram) {
+            int mask = trigrams.length - 1;
+            int i = hash(trigram) & mask;
+
+            while (ids[i] != -1) {
+                if (trigrams[i] == trigram) {
+                    return ids[i];
+                }
+                i = (i + 1) & mask;
+            }
+
+            trigrams[i] = trigram;
+            ids[i] = size++;
+
+            if (size * 2 > trigrams.length) {
+                resize();
+            }
+
+            return size - 1;
+        }
+
+        protected void resize() {
+            long[] oldTrigrams = trigrams;
+            int[] oldIds = ids;
+            int mask = oldTrigrams.length * 2 - 1;
+
+            trigrams = new long[oldTrigrams.length * 2];
+            ids = new int[oldIds.length * 2];
+            Arrays.fill(ids, -1);
+
+            for (int j = 0; j < oldIds.length; j++) {
+                if (oldIds[j] != -1) {
+                    int i = hash(oldTrigrams[j]) & mask;
+                    while (ids[i] != -1) {
+                        i = (i + 1) & mask;
+                    }
+                    trigrams[i] = oldTrigrams[j];
+                    ids[i] = oldIds[j];
+                }
+            }
+        }
+
+        protected static int hash(long trigram) {
+            long h = trigram * 0x9E3779B97F4A7C15L;
+            return (int)(h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
+import org.jd.gui.api.model.Indexes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Symbol table shared by all the opened containers.<br>
+ * <br>
+ * The indexes of a container are registered when its indexation completes and unregistered when
+ * the container is closed. For each index name, a merged map gives the registered indexes having a
+ * key, so that a lookup costs one hash lookup instead of one lookup per container. Merged maps are
+ * built on first use and maintained on registration.<br>
+ * <br>
+ * Lookups are restricted to the done indexes of the collection given by the caller: indexes not
+ * registered yet are searched directly.
+ */
+public class SymbolTable {
+    protected static final SymbolTable SYMBOL_TABLE = new SymbolTable();
+
+    private static final Indexes[] EMPTY_INDEXES = new Indexes[0];
+
+    // Registered indexes, in registration order
+    private final Set<Indexes> registeredIndexes = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<Indexes> registrationOrder = new ArrayList<>();
+    // Index name -> (key -> Indexes[])
+    private final Map<String, Map<String, Indexes[]>> mergedIndexes = new HashMap<>();
+
+    protected SymbolTable() {}
+
+    public static SymbolTable getInstance() { return SYMBOL_TABLE; }
+
+    public synchronized void register(Indexes indexes) {
+        if (registeredIndexes.add(indexes)) {
+            registrationOrder.add(indexes);
+
+            for (Map.Entry<String, Map<String, Indexes[]>> mapEntry : mergedIndexes.entrySet()) {
+                merge(mapEntry.getValue(), mapEntry.getKey(), indexes);
+            }
+        }
+    }
+
+    public synchronized void unregister(Indexes indexes) {
+        if (registeredIndexes.remove(indexes)) {
+            registrationOrder.remove(indexes);
+
+            for (Map.Entry<String, Map<String, Indexes[]>> mapEntry : mergedIndexes.entrySet()) {
+                unmerge(mapEntry.getValue(), mapEntry.getKey(), indexes);
+            }
+        }
+    }
+
+    /**
+     * Unregister the indexes of the closed containers.
+     */
+    public synchronized void retain(Collection<Indexes> openedIndexes) {
+        Set<Indexes> retainedIndexes = Collections.newSetFromMap(new IdentityHashMap<>());
+        retainedIndexes.addAll(openedIndexes);
+
+        for (Indexes indexes : new ArrayList<>(registrationOrder)) {
+            if (!retainedIndexes.contains(indexes)) {
+                unregister(indexes);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return registrationOrder.size();
+    }
+
+    /**
+     * @return the done indexes of the collection having the key in the index, in the order of the collection
+     */
+    @SuppressWarnings("rawtypes")
+    public List<Indexes> getIndexes(Collection<Future<Indexes>> collectionOfFutureIndexes, String indexName, String key) {
+        List<Indexes> doneIndexes = getDoneIndexes(collectionOfFutureIndexes);
+        List<Indexes> result = new ArrayList<>();
+
+        if (doneIndexes.isEmpty()) {
+            return result;
+        }
+
+        Indexes[] candidates;
+        boolean[] registered = new boolean[doneIndexes.size()];
+
+        synchronized (this) {
+            candidates = getMergedIndex(indexName).getOrDefault(key, EMPTY_INDEXES);
+
+            for (int i = 0; i < registered.length; i++) {
+                registered[i] = registeredIndexes.contains(doneIndexes.get(i));
+            }
+        }
+
+        for (int i = 0; i < registered.length; i++) {
+            Indexes indexes = doneIndexes.get(i);
+
+            if (registered[i]) {
+                if (contains(candidates, indexes)) {
+                    result.add(indexes);
+                }
+            } else {
+                // Not registered yet -> Search the index
+                Map<String, Collection> index = indexes.getIndex(indexName);
+                if (index != null && index.get(key) != null) {
+                    result.add(indexes);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    protected static boolean contains(Indexes[] array, Indexes indexes) {
+        for (Indexes i : array) {
+            if (i == indexes) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected static List<Indexes> getDoneIndexes(Collection<Future<Indexes>> collectionOfFutureIndexes) {
+        List<Indexes> doneIndexes = new ArrayList<>(collectionOfFutureIndexes.size());
+
+        try {
+            for (Future<Indexes> futureIndexes : collectionOfFutureIndexes) {
+                if (futureIndexes.isDone() && !futureIndexes.isCancelled()) {
+                    doneIndexes.add(futureIndexes.get());
+                }
+            }
+        } catch (InterruptedException e) {
+            assert ExceptionUtil.printStackTrace(e);
+            // Restore interrupted state...
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+
+        return doneIndexes;
+    }
+
+    protected Map<String, Indexes[]> getMergedIndex(String indexName) {
+        return mergedIndexes.computeIfAbsent(indexName, k -> {
+            Map<String, Indexes[]> mergedIndex = new HashMap<>();
+            for (Indexes indexes : registrationOrder) {
+                merge(mergedIndex, indexName, indexes);
+            }
+            return mergedIndex;
+        });
+    }
+
+    @SuppressWarnings("rawtypes")
+    protected static void merge(Map<String, Indexes[]> mergedIndex, String indexName, Indexes indexes) {
+        Map<String, Collection> index = indexes.getIndex(indexName);
+
+        if (index != null) {
+            for (String key : index.keySet()) {
+                Indexes[] array = mergedIndex.get(key);
+
+                if (array == null) {
+                    mergedIndex.put(key, new Indexes[] { indexes });
+                } else {
+                    Indexes[] newArray = new Indexes[array.length + 1];
+                    System.arraycopy(array, 0, newArray, 0, array.length);
+                    newArray[array.length] = indexes;
+                    mergedIndex.put(key, newArray);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    protected static void unmerge(Map<String, Indexes[]> mergedIndex, String indexName, Indexes indexes) {
+        Map<String, Collection> index = indexes.getIndex(indexName);
+
+        if (index != null) {
+            for (String key : index.keySet()) {
+                Indexes[] array = mergedIndex.get(key);
+
+                if (array != null) {
+                    int length = 0;
+                    Indexes[] newArray = new Indexes[array.length];
+
+                    for (Indexes i : array) {
+                        if (i != indexes) {
+                            newArray[length++] = i;
+                        }
+                    }
+
+                    if (length == 0) {
+                        mergedIndex.remove(key);
+                    } else if (length < array.length) {
+                        Indexes[] trimmedArray = new Indexes[length];
+                        System.arraycopy(newArray, 0, trimmedArray, 0, length);
+                        mergedIndex.put(key, trimmedArray);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.jd.gui.util.parser.jdt;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
 import org.jd.core.v1.util.StringConstants;
 import org.jd.gui.api.model.Container;
@@ -14,9 +15,12 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
@@ -42,7 +46,8 @@ public final class ASTParserFactory {
         return BINDING_INSTANCE;
     }
 
-    private static final Map<URI, String> jarTojdkVersion = new ConcurrentHashMap<>();
+    /** Parser environments of the opened archives, reused across parses. */
+    private static final Map<URI, Environment> environments = new ConcurrentHashMap<>();
 
     private final boolean resolveBindings;
     private final boolean bindingRecovery;
@@ -56,36 +61,98 @@ public final class ASTParserFactory {
     }
 
     public ASTParser newASTParser(char[] source, String unitName, URI jarURI) {
-        ASTParser parser = ASTParser.newParser(AST.getJLSLatest());
-        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        Environment environment = getEnvironment(jarURI);
+        ASTParser parser = newASTParser(environment);
         parser.setSource(source);
-        parser.setResolveBindings(resolveBindings);
-        parser.setBindingsRecovery(bindingRecovery);
-        parser.setStatementsRecovery(statementRecovery);
-        List<String> jdkClasspath = ClasspathUtil.getJDKClasspath();
-        String[] classpathEntries = ClasspathUtil.createClasspathEntries(jarURI, jdkClasspath);
-        boolean includeRunningVMBootclasspath = jdkClasspath.isEmpty();
         if (unitName.endsWith(".java")) {
-            String[] sourcepathEntries = { jarURI.getPath() };
-            String[] encodings = { StandardCharsets.UTF_8.name() };
-            parser.setEnvironment(classpathEntries, sourcepathEntries, encodings, includeRunningVMBootclasspath);
+            parser.setEnvironment(environment.classpathEntries(), environment.sourcepathEntries(), environment.encodings(), environment.includeRunningVMBootclasspath());
             parser.setUnitName(unitName);
         }
         if (unitName.endsWith(StringConstants.CLASS_FILE_SUFFIX)) {
-            parser.setEnvironment(classpathEntries, null, null, includeRunningVMBootclasspath);
+            parser.setEnvironment(environment.classpathEntries(), null, null, environment.includeRunningVMBootclasspath());
             parser.setUnitName(unitName.replace(StringConstants.CLASS_FILE_SUFFIX, ".java"));
         }
+        return parser;
+    }
 
+    /**
+     * @return a parser of the source files of a directory, for {@link ASTParser#createASTs(String[], String[], String[], org.eclipse.jdt.core.dom.FileASTRequestor, org.eclipse.core.runtime.IProgressMonitor)}
+     */
+    public ASTParser newASTParser(URI jarURI) {
+        Environment environment = getEnvironment(jarURI);
+        ASTParser parser = newASTParser(environment);
+        parser.setEnvironment(environment.classpathEntries(), environment.sourcepathEntries(), environment.encodings(), environment.includeRunningVMBootclasspath());
+        return parser;
+    }
+
+    /**
+     * Parse sources of an archive, with the classpath and the compiler options of the archive. Each source is
+     * parsed on its own: JDT only parses groups of sources read from the file system.
+     *
+     * @param sources   unit names (paths of '.java' or '.class' entries) and their sources
+     * @param requestor called with the unit name and the AST of each source
+     */
+    public void createASTs(URI jarURI, Map<String, char[]> sources, BiConsumer<String, CompilationUnit> requestor) {
+        for (Map.Entry<String, char[]> e : sources.entrySet()) {
+            requestor.accept(e.getKey(), (CompilationUnit) newASTParser(e.getValue(), e.getKey(), jarURI).createAST(null));
+        }
+    }
+
+    private ASTParser newASTParser(Environment environment) {
+        ASTParser parser = ASTParser.newParser(AST.getJLSLatest());
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setResolveBindings(resolveBindings);
+        parser.setBindingsRecovery(bindingRecovery);
+        parser.setStatementsRecovery(statementRecovery);
+        parser.setCompilerOptions(environment.options());
+        return parser;
+    }
+
+    private static Environment getEnvironment(URI jarURI) {
+        return environments.computeIfAbsent(jarURI, ASTParserFactory::createEnvironment);
+    }
+
+    private static Environment createEnvironment(URI jarURI) {
+        List<String> jdkClasspath = JDKClasspathHolder.JDK_CLASSPATH;
+        String[] classpathEntries = ClasspathUtil.createClasspathEntries(jarURI, jdkClasspath);
+        String[] sourcepathEntries = { jarURI.getPath() };
+        String[] encodings = { StandardCharsets.UTF_8.name() };
         Map<String, String> options = getDefaultOptions();
-        String majorVersion = jarTojdkVersion.computeIfAbsent(jarURI, ASTParserFactory::resolveJDKVersion);
+        String majorVersion = resolveJDKVersion(jarURI);
         options.put(JavaCore.COMPILER_COMPLIANCE, majorVersion);
         options.put(JavaCore.COMPILER_SOURCE, majorVersion);
         options.put(JavaCore.COMPILER_PB_MAX_PER_UNIT, String.valueOf(Integer.MAX_VALUE));
         options.put(JavaCore.COMPILER_PB_UNNECESSARY_TYPE_CHECK, "warning");
-        parser.setCompilerOptions(options);
-        return parser;
+        return new Environment(classpathEntries, sourcepathEntries, encodings, jdkClasspath.isEmpty(), Collections.unmodifiableMap(options));
+    }
+
+    /**
+     * Evict the environments of the closed archives.
+     *
+     * @param openedURIs URIs of the opened archives, the environments of their nested archives are kept
+     */
+    public static void retainEnvironments(Collection<URI> openedURIs) {
+        environments.keySet().removeIf(jarURI -> {
+            String jarPath = jarURI.toString();
+            for (URI openedURI : openedURIs) {
+                if (jarPath.startsWith(openedURI.toString())) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    /** The JDK classpath is resolved once, and shared by the environments of all archives. */
+    private static final class JDKClasspathHolder {
+        private static final List<String> JDK_CLASSPATH = ClasspathUtil.getJDKClasspath();
     }
 
+    /**
+     * Classpath and compiler options of an archive. Arrays are shared between parsers: JDT does not modify them.
+     */
+    private record Environment(String[] classpathEntries, String[] sourcepathEntries, String[] encodings, boolean includeRunningVMBootclasspath, Map<String, String> options) {}
+
     private static String resolveJDKVersion(URI jarURI) {
         File file = new File(jarURI);
         String majorVersion = DEFAULT_JDK_VERSION;
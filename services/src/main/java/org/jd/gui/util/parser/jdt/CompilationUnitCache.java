@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.parser.jdt;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.jd.gui.api.model.Container;
+
+import java.lang.ref.SoftReference;
+import java.net.URI;
+
+/**
+ * Last compilation unit of a page, parsed with bindings.<br>
+ * <br>
+ * The declaration listener, the reference listener and the error strip parser of a page visit the
+ * same source: it is parsed once and the AST is shared as long as the source is unchanged. The AST is
+ * softly referenced, as an AST with bindings retains the lookup environment of the whole classpath.<br>
+ * <br>
+ * The shared AST is parsed with statement recovery. The declaration pass did not recover statements:
+ * if some statements are recovered, the declarations are read from another AST parsed without recovery.
+ */
+public class CompilationUnitCache {
+
+    protected final Container.Entry entry;
+
+    private String text;
+    private SoftReference<ASTNode> astNodeReference = new SoftReference<>(null);
+
+    public CompilationUnitCache(Container.Entry entry) {
+        this.entry = entry;
+    }
+
+    /**
+     * @return the AST of the source, parsed with bindings if the source has changed. Thread safe: the
+     *         source is parsed outside of the lock.
+     */
+    public ASTNode getAST(String source) {
+        synchronized (this) {
+            ASTNode astNode = astNodeReference.get();
+            if (astNode != null && source.equals(text)) {
+                return astNode;
+            }
+        }
+
+        URI jarURI = entry.getContainer().getRoot().getParent().getUri();
+        ASTNode astNode = ASTParserFactory.getInstanceWithBindings().newASTParser(source.toCharArray(), entry.getPath(), jarURI).createAST(null);
+
+        synchronized (this) {
+            text = source;
+            astNodeReference = new SoftReference<>(astNode);
+        }
+
+        return astNode;
+    }
+
+    /**
+     * @return the AST of the source if no statement is recovered, an AST parsed without bindings and
+     *         without statement recovery otherwise
+     */
+    public ASTNode getDeclarationAST(String source) {
+        ASTNode astNode = getAST(source);
+
+        if (!isRecovered(astNode)) {
+            return astNode;
+        }
+
+        URI jarURI = entry.getContainer().getRoot().getParent().getUri();
+        return ASTParserFactory.getInstance().newASTParser(source.toCharArray(), entry.getPath(), jarURI).createAST(null);
+    }
+
+    protected static boolean isRecovered(ASTNode astNode) {
+        boolean[] recovered = new boolean[1];
+
+        astNode.accept(new ASTVisitor() {
+            @Override
+            public boolean preVisit2(ASTNode node) {
+                recovered[0] |= (node.getFlags() & (ASTNode.RECOVERED | ASTNode.MALFORMED)) != 0;
+                return !recovered[0];
+            }
+        });
+
+        return recovered[0];
+    }
+}
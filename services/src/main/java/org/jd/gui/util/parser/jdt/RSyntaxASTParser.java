@@ -15,18 +15,22 @@ import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Container.Entry;
 import org.jd.gui.util.decompiler.GuiPreferences;
 
-import java.net.URI;
-
 import javax.swing.text.BadLocationException;
 
 public class RSyntaxASTParser extends AbstractParser {
 
     protected final API api;
     protected final Container.Entry entry;
+    protected final CompilationUnitCache compilationUnitCache;
 
     public RSyntaxASTParser(Entry entry, API api) {
+        this(entry, api, new CompilationUnitCache(entry));
+    }
+
+    public RSyntaxASTParser(Entry entry, API api, CompilationUnitCache compilationUnitCache) {
         this.api = api;
         this.entry = entry;
+        this.compilationUnitCache = compilationUnitCache;
     }
 
     @Override
@@ -37,9 +41,7 @@ public class RSyntaxASTParser extends AbstractParser {
         DefaultParseResult result = new DefaultParseResult(this);
         try {
             String text = doc.getText(0, doc.getLength());
-            String unitName = entry.getPath();
-            URI jarURI = entry.getContainer().getRoot().getParent().getUri();
-            ASTNode ast = ASTParserFactory.getInstanceWithBindings().newASTParser(text.toCharArray(), unitName, jarURI).createAST(null);
+            ASTNode ast = compilationUnitCache.getAST(text);
             if (ast instanceof CompilationUnit) {
                 CompilationUnit cu = (CompilationUnit) ast;
                 IProblem[] problems = cu.getProblems();
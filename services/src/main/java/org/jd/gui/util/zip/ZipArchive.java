@@ -0,0 +1,717 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.zip;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Read-only zip archive read from its central directory.<br>
+ * <br>
+ * The archive is read through a {@link Source}: a file, a memory buffer or a slice of another
+ * source. A stored (uncompressed) entry can be opened as an archive without copy, through a slice
+ * of the source of the outer archive. A deflated entry is inflated into memory, or into a temporary
+ * file deleted on close when it is larger than {@link #MAX_BUFFERED_SIZE}.<br>
+ * <br>
+ * The central directory is read once, mapped in memory when the source is a file, and indexed by a
+ * table of header positions sorted by entry name: entries are decoded on demand, the entries of a
+ * directory are a range of the table found by binary search.
+ */
+public class ZipArchive implements Closeable {
+    public static final long MAX_BUFFERED_SIZE = 32L * 1024 * 1024;
+
+    protected static final int LOCSIG = 0x04034b50;
+    protected static final int CENSIG = 0x02014b50;
+    protected static final int ENDSIG = 0x06054b50;
+    protected static final int ZIP64_ENDSIG = 0x06064b50;
+    protected static final int ZIP64_LOCSIG = 0x07064b50;
+    protected static final int LOCHDR = 30;
+    protected static final int CENHDR = 46;
+    protected static final int ENDHDR = 22;
+    protected static final int ZIP64_ENDHDR = 56;
+    protected static final int ZIP64_LOCHDR = 20;
+    protected static final int ZIP64_EXTID = 0x0001;
+    protected static final long ZIP64_MAGICVAL = 0xFFFFFFFFL;
+    protected static final int ZIP64_MAGICCOUNT = 0xFFFF;
+    protected static final int BUFFER_SIZE = 8192;
+
+    private final Source source;
+    // Offset of the first byte of the archive in the source: data may be prepended (ie. JMOD header)
+    private final long archiveOffset;
+    // Central directory, mapped in memory when the source is a file
+    private final ByteBuffer cen;
+    // Positions of the central directory headers in 'cen', sorted by entry name
+    private final int[] sortedPositions;
+
+    public ZipArchive(Source source) throws IOException {
+        this.source = source;
+
+        ByteBuffer end = readEnd();
+        long endPosition = source.size() - end.remaining();
+        long cenLength = end.getInt(12) & ZIP64_MAGICVAL;
+        long cenOffset = end.getInt(16) & ZIP64_MAGICVAL;
+        int count = end.getShort(10) & ZIP64_MAGICCOUNT;
+        long cenPosition = endPosition - cenLength;
+
+        if (endPosition >= ZIP64_LOCHDR) {
+            ByteBuffer locator = read(endPosition - ZIP64_LOCHDR, ZIP64_LOCHDR);
+
+            if (locator.getInt(0) == ZIP64_LOCSIG) {
+                long zip64EndPosition = endPosition - ZIP64_LOCHDR - ZIP64_ENDHDR;
+                ByteBuffer zip64End = read(zip64EndPosition, ZIP64_ENDHDR);
+
+                if (zip64End.getInt(0) == ZIP64_ENDSIG) {
+                    count = (int)zip64End.getLong(32);
+                    cenLength = zip64End.getLong(40);
+                    cenOffset = zip64End.getLong(48);
+                    cenPosition = zip64EndPosition - cenLength;
+                }
+            }
+        }
+
+        if (cenPosition < 0 || cenPosition < cenOffset || cenLength > Integer.MAX_VALUE) {
+            throw new ZipException("Invalid central directory");
+        }
+
+        this.archiveOffset = cenPosition - cenOffset;
+        this.cen = source.map(cenPosition, (int)cenLength).order(ByteOrder.LITTLE_ENDIAN);
+        this.sortedPositions = sort(readCentralDirectory(count));
+    }
+
+    protected ByteBuffer readEnd() throws IOException {
+        long size = source.size();
+        // The comment of the archive follows the end record
+        int length = (int)Math.min(size, ENDHDR + 0xFFFF);
+        ByteBuffer buffer = read(size - length, length);
+
+        for (int i = length - ENDHDR; i >= 0; i--) {
+            if (buffer.getInt(i) == ENDSIG) {
+                buffer.position(i);
+                return buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        throw new ZipException("End of central directory not found");
+    }
+
+    /**
+     * @param count the number of entries of the end record: a hint only, as the 16 bits count of the
+     *              archives having more than 65535 entries and no ZIP64 record has wrapped
+     * @return the positions of the central directory headers
+     */
+    protected int[] readCentralDirectory(int count) throws ZipException {
+        int[] positions = new int[Math.max(16, Math.min(count, cen.limit() / CENHDR))];
+        int length = 0;
+        int position = 0;
+
+        while (position + CENHDR <= cen.limit() && cen.getInt(position) == CENSIG) {
+            int nextPosition = position + CENHDR + getNameLength(position) + (cen.getShort(position + 30) & 0xFFFF) + (cen.getShort(position + 32) & 0xFFFF);
+
+            if (nextPosition > cen.limit()) {
+                throw new ZipException("Invalid central directory entry");
+            }
+
+            if (length == positions.length) {
+                positions = Arrays.copyOf(positions, length * 2);
+            }
+
+            positions[length++] = position;
+            position = nextPosition;
+        }
+
+        if (position != cen.limit()) {
+            throw new ZipException("Invalid central directory entry signature");
+        }
+
+        return length == positions.length ? positions : Arrays.copyOf(positions, length);
+    }
+
+    /**
+     * Stable sort of the header positions by name: the first of the entries having the same name
+     * is found by name.
+     */
+    protected int[] sort(int[] positions) {
+        mergeSort(positions, new int[positions.length], 0, positions.length);
+        return positions;
+    }
+
+    protected void mergeSort(int[] positions, int[] buffer, int from, int to) {
+        if (to - from <= 16) {
+            // Insertion sort of the small ranges
+            for (int i = from + 1; i < to; i++) {
+                int position = positions[i];
+                int j = i;
+
+                while (j > from && compareNames(positions[j - 1], position) > 0) {
+                    positions[j] = positions[j - 1];
+                    j--;
+                }
+
+                positions[j] = position;
+            }
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+
+        mergeSort(positions, buffer, from, middle);
+        mergeSort(positions, buffer, middle, to);
+
+        if (compareNames(positions[middle - 1], positions[middle]) <= 0) {
+            // Already sorted
+            return;
+        }
+
+        System.arraycopy(positions, from, buffer, from, to - from);
+
+        int i = from;
+        int j = middle;
+        int k = from;
+
+        while (i < middle && j < to) {
+            // Take the left position first on equal names
+            positions[k++] = compareNames(buffer[j], buffer[i]) < 0 ? buffer[j++] : buffer[i++];
+        }
+        while (i < middle) {
+            positions[k++] = buffer[i++];
+        }
+        while (j < to) {
+            positions[k++] = buffer[j++];
+        }
+    }
+
+    protected int getNameLength(int position) {
+        return cen.getShort(position + 28) & 0xFFFF;
+    }
+
+    /**
+     * Compare the names of two central directory headers as unsigned bytes.
+     */
+    protected int compareNames(int position1, int position2) {
+        int length1 = getNameLength(position1);
+        int length2 = getNameLength(position2);
+        int length = Math.min(length1, length2);
+
+        for (int i = 0; i < length; i++) {
+            int b1 = cen.get(position1 + CENHDR + i) & 0xFF;
+            int b2 = cen.get(position2 + CENHDR + i) & 0xFF;
+
+            if (b1 != b2) {
+                return b1 - b2;
+            }
+        }
+
+        return length1 - length2;
+    }
+
+    /**
+     * Compare the name of a central directory header with the first bytes of a name.
+     *
+     * @param prefix true to compare only the first bytes of the name of the header
+     */
+    protected int compareName(int position, byte[] name, boolean prefix) {
+        int nameLength = getNameLength(position);
+        int length = Math.min(nameLength, name.length);
+
+        for (int i = 0; i < length; i++) {
+            int b1 = cen.get(position + CENHDR + i) & 0xFF;
+            int b2 = name[i] & 0xFF;
+
+            if (b1 != b2) {
+                return b1 - b2;
+            }
+        }
+
+        return (prefix && nameLength >= name.length) ? 0 : nameLength - name.length;
+    }
+
+    protected ByteBuffer read(long position, int length) throws IOException {
+        return read(source, position, length);
+    }
+
+    protected static ByteBuffer read(Source source, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+
+        return buffer.flip();
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() { return sortedPositions.length; }
+
+    /**
+     * @return the entries, sorted by name
+     */
+    public List<Entry> getEntries() {
+        return new AbstractList<>() {
+            @Override
+            public Entry get(int index) { return getEntry(index); }
+            @Override
+            public int size() { return sortedPositions.length; }
+        };
+    }
+
+    /**
+     * @return the entry at 'index' in the entries sorted by name
+     */
+    public Entry getEntry(int index) {
+        int position = sortedPositions[index];
+        int method = cen.getShort(position + 10) & 0xFFFF;
+        long compressedSize = cen.getInt(position + 20) & ZIP64_MAGICVAL;
+        long size = cen.getInt(position + 24) & ZIP64_MAGICVAL;
+        int nameLength = getNameLength(position);
+        int extraLength = cen.getShort(position + 30) & 0xFFFF;
+        int commentLength = cen.getShort(position + 32) & 0xFFFF;
+        long localHeaderOffset = cen.getInt(position + 42) & ZIP64_MAGICVAL;
+
+        if (size == ZIP64_MAGICVAL || compressedSize == ZIP64_MAGICVAL || localHeaderOffset == ZIP64_MAGICVAL) {
+            // Read the values from the Zip64 extended information
+            int extraPosition = position + CENHDR + nameLength;
+            int extraEnd = extraPosition + extraLength;
+
+            while (extraPosition + 4 <= extraEnd) {
+                int id = cen.getShort(extraPosition) & 0xFFFF;
+                int length = cen.getShort(extraPosition + 2) & 0xFFFF;
+                int valuePosition = extraPosition + 4;
+
+                if (id == ZIP64_EXTID) {
+                    if (size == ZIP64_MAGICVAL) {
+                        size = cen.getLong(valuePosition);
+                        valuePosition += 8;
+                    }
+                    if (compressedSize == ZIP64_MAGICVAL) {
+                        compressedSize = cen.getLong(valuePosition);
+                        valuePosition += 8;
+                    }
+                    if (localHeaderOffset == ZIP64_MAGICVAL) {
+                        localHeaderOffset = cen.getLong(valuePosition);
+                    }
+                    break;
+                }
+
+                extraPosition = valuePosition + length;
+            }
+        }
+
+        // Compressed data, local header and central directory header
+        long impactBytes = compressedSize + LOCHDR + CENHDR + 2L * (nameLength + extraLength) + commentLength;
+
+        return new Entry(getName(index), method, compressedSize, size, localHeaderOffset, impactBytes);
+    }
+
+    /**
+     * @return the name of the entry at 'index' in the entries sorted by name
+     */
+    public String getName(int index) {
+        int position = sortedPositions[index];
+        byte[] name = new byte[getNameLength(position)];
+        cen.get(position + CENHDR, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    public Entry getEntry(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int index = indexOf(bytes);
+        return (index < size() && compareName(sortedPositions[index], bytes, false) == 0) ? getEntry(index) : null;
+    }
+
+    /**
+     * @return the index of the first entry whose name is greater or equal to 'name', or {@link #size()}
+     */
+    public int indexOf(byte[] name) {
+        return search(name, false, 0);
+    }
+
+    /**
+     * @return the index of the first entry whose name is greater than 'prefix' and does not start with 'prefix', or {@link #size()}
+     */
+    public int indexAfter(byte[] prefix) {
+        return search(prefix, true, 1);
+    }
+
+    protected int search(byte[] name, boolean prefix, int threshold) {
+        int low = 0;
+        int high = sortedPositions.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (compareName(sortedPositions[middle], name, prefix) < threshold) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return true if the name of the entry at 'index' in the entries sorted by name starts with 'prefix'
+     */
+    public boolean startsWith(int index, byte[] prefix) {
+        return compareName(sortedPositions[index], prefix, true) == 0;
+    }
+
+    protected long getDataPosition(Entry entry) throws IOException {
+        long localHeaderPosition = archiveOffset + entry.getLocalHeaderOffset();
+        ByteBuffer loc = read(localHeaderPosition, LOCHDR);
+
+        if (loc.getInt(0) != LOCSIG) {
+            throw new ZipException("Invalid local header: " + entry.getName());
+        }
+
+        return localHeaderPosition + LOCHDR + (loc.getShort(26) & 0xFFFF) + (loc.getShort(28) & 0xFFFF);
+    }
+
+    public InputStream getInputStream(Entry entry) throws IOException {
+        InputStream inputStream = new SourceInputStream(source, getDataPosition(entry), entry.getCompressedSize());
+
+        switch (entry.getMethod()) {
+            case ZipEntry.STORED:
+                return new BufferedInputStream(inputStream, BUFFER_SIZE);
+            case ZipEntry.DEFLATED:
+                return new EntryInflaterInputStream(inputStream, entry.getSize());
+            default:
+                inputStream.close();
+                throw new ZipException("Unsupported compression method " + entry.getMethod() + ": " + entry.getName());
+        }
+    }
+
+    /**
+     * @return the source of the content of the entry: a slice of this archive if the entry is stored,
+     *         a memory buffer or a temporary file otherwise
+     */
+    public Source getSource(Entry entry) throws IOException {
+        if (entry.getMethod() == ZipEntry.STORED) {
+            return new SliceSource(source, getDataPosition(entry), entry.getSize());
+        }
+        try (InputStream inputStream = getInputStream(entry)) {
+            return newSource(inputStream, entry.getSize());
+        }
+    }
+
+    /**
+     * @param size the length of the content, or -1 if unknown
+     * @return a memory buffer if the length is lower or equal to {@link #MAX_BUFFERED_SIZE}, a temporary file otherwise
+     */
+    public static Source newSource(InputStream inputStream, long size) throws IOException {
+        if (size >= 0 && size <= MAX_BUFFERED_SIZE) {
+            byte[] bytes = new byte[(int)size];
+            int length = inputStream.readNBytes(bytes, 0, bytes.length);
+            return new BufferSource(ByteBuffer.wrap(bytes, 0, length));
+        }
+
+        Path path = Files.createTempFile("jd-gui.tmp.", ".zip");
+
+        try {
+            Files.copy(inputStream, path, StandardCopyOption.REPLACE_EXISTING);
+            return new FileSource(FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE));
+        } catch (IOException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    public static class Entry {
+        private final String name;
+        private final int method;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+        private final long impactBytes;
+
+        public Entry(String name, int method, long compressedSize, long size, long localHeaderOffset, long impactBytes) {
+            this.name = name;
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+            this.impactBytes = impactBytes;
+        }
+
+        public String getName() { return name; }
+        public int getMethod() { return method; }
+        public long getCompressedSize() { return compressedSize; }
+        public long getSize() { return size; }
+        public long getLocalHeaderOffset() { return localHeaderOffset; }
+        /**
+         * @return the number of bytes of the entry in the archive, headers included
+         */
+        public long getImpactBytes() { return impactBytes; }
+        public boolean isDirectory() { return name.endsWith("/"); }
+    }
+
+    /**
+     * Random access content, read with absolute positions: a source may be shared by several threads.
+     */
+    public interface Source extends Closeable {
+        long size() throws IOException;
+
+        /**
+         * @return the number of bytes read, or -1 at the end of the source
+         */
+        int read(ByteBuffer dst, long position) throws IOException;
+
+        /**
+         * @return the bytes from 'position' to 'position + length'
+         */
+        default ByteBuffer map(long position, int length) throws IOException {
+            return ZipArchive.read(this, position, length);
+        }
+    }
+
+    public static class FileSource implements Source {
+        private final FileChannel channel;
+
+        public FileSource(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        public static FileSource open(Path path) throws IOException {
+            return new FileSource(FileChannel.open(path, StandardOpenOption.READ));
+        }
+
+        @Override
+        public long size() throws IOException { return channel.size(); }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException { return channel.read(dst, position); }
+
+        /**
+         * @return the bytes mapped in memory: the mapping remains valid once the channel is closed
+         */
+        @Override
+        public ByteBuffer map(long position, int length) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        }
+
+        @Override
+        public void close() throws IOException { channel.close(); }
+    }
+
+    public static class BufferSource implements Source {
+        private final ByteBuffer buffer;
+
+        public BufferSource(ByteBuffer buffer) {
+            this.buffer = buffer.slice();
+        }
+
+        @Override
+        public long size() { return buffer.limit(); }
+
+        @Override
+        public int read(ByteBuffer dst, long position) {
+            if (position >= buffer.limit()) {
+                return -1;
+            }
+
+            ByteBuffer src = buffer.duplicate();
+            int length = (int)Math.min(dst.remaining(), buffer.limit() - position);
+
+            src.position((int)position).limit((int)position + length);
+            dst.put(src);
+
+            return length;
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    /**
+     * View of a part of a source: closing a slice does not close the source.
+     */
+    public static class SliceSource implements Source {
+        private final Source source;
+        private final long offset;
+        private final long size;
+
+        public SliceSource(Source source, long offset, long size) {
+            this.source = source;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public long size() { return size; }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            if (position >= size) {
+                return -1;
+            }
+
+            long remaining = size - position;
+
+            if (dst.remaining() > remaining) {
+                ByteBuffer limitedDst = dst.duplicate();
+                limitedDst.limit(dst.position() + (int)remaining);
+                int length = source.read(limitedDst, offset + position);
+                if (length > 0) {
+                    dst.position(dst.position() + length);
+                }
+                return length;
+            }
+
+            return source.read(dst, offset + position);
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    protected static class SourceInputStream extends InputStream {
+        private final Source source;
+        private long position;
+        private final long end;
+
+        public SourceInputStream(Source source, long position, long length) {
+            this.source = source;
+            this.position = position;
+            this.end = position + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return (read(b, 0, 1) == 1) ? (b[0] & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+
+            int length = source.read(ByteBuffer.wrap(b, off, (int)Math.min(len, end - position)), position);
+
+            if (length > 0) {
+                position += length;
+            }
+
+            return length;
+        }
+
+        @Override
+        public long skip(long n) {
+            long length = Math.max(0, Math.min(n, end - position));
+            position += length;
+            return length;
+        }
+
+        @Override
+        public int available() {
+            return (int)Math.min(Integer.MAX_VALUE, end - position);
+        }
+    }
+
+    protected static class EntryInflaterInputStream extends InflaterInputStream {
+        private final long size;
+        private long remaining;
+        private boolean eof;
+        private boolean closed;
+
+        public EntryInflaterInputStream(InputStream inputStream, long size) {
+            super(inputStream, new Inflater(true), BUFFER_SIZE);
+            this.size = size;
+            this.remaining = size;
+        }
+
+        @Override
+        protected void fill() throws IOException {
+            if (eof) {
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            }
+
+            len = in.read(buf, 0, buf.length);
+
+            if (len == -1) {
+                // The inflater may need an extra "dummy" byte in 'nowrap' mode
+                buf[0] = 0;
+                len = 1;
+                eof = true;
+            }
+
+            inf.setInput(buf, 0, len);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int length = super.read(b, off, len);
+
+            if (length > 0) {
+                remaining -= length;
+            }
+
+            return length;
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (closed) {
+                return 0;
+            }
+            return (size < 0) ? super.available() : (int)Math.min(Integer.MAX_VALUE, Math.max(0, remaining));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    inf.end();
+                }
+            }
+        }
+    }
+}
@@ -9,46 +9,64 @@ package org.jd.gui.view.component;
 
 import org.fife.ui.rsyntaxtextarea.DocumentRange;
 import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
-import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ByteCodeWriter;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
 import org.jd.gui.api.API;
 import org.jd.gui.api.model.Container;
-import org.jd.gui.util.MethodPatcher;
+import org.jd.gui.api.model.Indexes;
 import org.jd.gui.util.decompiler.ContainerLoader;
+import org.jd.gui.util.decompiler.DecompilationCache;
+import org.jd.gui.util.decompiler.DecompilationPrefetcher;
 import org.jd.gui.util.decompiler.GuiPreferences;
-import org.jd.gui.util.loader.LoaderUtils;
 import org.jd.gui.util.parser.jdt.core.manipulation.RemoveUnnecessaryCasts;
 
-import com.heliosdecompiler.transformerapi.StandardTransformers;
-import com.heliosdecompiler.transformerapi.common.Loader;
-
 import java.awt.Color;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import javax.swing.SwingUtilities;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultCaret;
 
-import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V0;
-import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V1;
 import static jd.core.preferences.Preferences.REALIGN_LINE_NUMBERS;
-import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_ENGINE;
 import static org.jd.gui.util.decompiler.GuiPreferences.REMOVE_UNNECESSARY_CASTS;
 
-import jd.core.ClassUtil;
 import jd.core.DecompilationResult;
+import jd.core.links.ReferenceData;
 
 public class ClassFilePage extends TypePage {
 
     private static final String INTERNAL_ERROR = "// INTERNAL ERROR //";
+    private static final String DECOMPILING = "// Decompiling... //";
+
+    private static final ExecutorService DECOMPILER_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+                Thread thread = new Thread(runnable, "jd-gui-class-file-page-decompiler");
+                thread.setDaemon(true);
+                return thread;
+            });
 
     private static final long serialVersionUID = 1L;
 
     private int maximumLineNumber = -1;
 
+    // Decompilation state, only accessed on the Event Dispatch Thread
+    private transient Future<?> decompilation;
+    private transient Map<String, String> decompiledPreferences;
+    private transient URI pendingUri;
+    private int decompilationCount;
+    private boolean decompilationCancelled;
+    private boolean displayed;
+
     public ClassFilePage(API api, Container.Entry entry) {
         super(api, entry);
         Map<String, String> preferences = api.getPreferences();
@@ -58,74 +76,151 @@ public class ClassFilePage extends TypePage {
         decompile(preferences);
     }
 
+    /**
+     * Decompile the class in background. A placeholder is displayed until the first source is ready,
+     * then the source is swapped in with its hyperlinks and its line numbers.
+     */
     public void decompile(Map<String, String> preferences) {
         
         boolean realignmentLineNumbers = "true".equals(preferences.get(REALIGN_LINE_NUMBERS)) || "true".equals(preferences.get("StretchLines"));
         boolean removeUnnecessaryCasts = "true".equals(preferences.get(REMOVE_UNNECESSARY_CASTS));
 
         setShowMisalignment(realignmentLineNumbers);
-        
+
+        cancelDecompilation();
+        DecompilationPrefetcher.getInstance().cancel();
+
+        if (!displayed) {
+            setText(DECOMPILING);
+        }
+
+        int decompilationId = ++decompilationCount;
+
+        decompiledPreferences = preferences;
+        decompilation = DECOMPILER_EXECUTOR.submit(() -> {
+            ParsedSource parsedSource = decompile(preferences, removeUnnecessaryCasts);
+            SwingUtilities.invokeLater(() -> {
+                if (decompilationId == decompilationCount) {
+                    setDecompiledSource(parsedSource);
+                }
+            });
+        });
+    }
+
+    /**
+     * Decompile the class, off the Event Dispatch Thread.
+     */
+    protected ParsedSource decompile(Map<String, String> preferences, boolean removeUnnecessaryCasts) {
         // Init loader
-        ContainerLoader loader = new ContainerLoader(entry);
+        ContainerLoader loader = new ContainerLoader(api, entry);
         try {
-            // Clear ...
-            clearLineNumbers();
-            listener.clearData();
-
-            // Format internal name
-            String entryInternalName = ClassUtil.getInternalName(entry.getPath());
-            
-            String engineName = preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1);
-            Loader apiLoader = LoaderUtils.createLoader(preferences, loader, entry);
-            DecompilationResult decompilationResult = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, engineName);
-            if (decompilationResult.getDecompiledOutput().contains(ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE)) {
+            // Classes displayed to the user are raced, if the race is enabled
+            DecompilationCache.Decompilation decompilation = DecompilationCache.getInstance().decompile(preferences, loader, entry, true);
+            if (decompilation.isPatched()) {
                 /*
                  * Sometimes JD-Core v0 decompiles with success where JD-Core v1 fails. 
                  * In this case, patch JD-Core v0 method into JD-Core v1 method.
                  * It will appear with comment 'Patched from JD-Core V0'
                  */
-                DecompilationResult sourceCodeV0 = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, ENGINE_JD_CORE_V0);
-                String patchedCode = MethodPatcher.patchCode(decompilationResult.getDecompiledOutput(), sourceCodeV0.getDecompiledOutput(), entry);
+                String patchedCode = decompilation.getSource();
                 if (removeUnnecessaryCasts) {
                     patchedCode = new RemoveUnnecessaryCasts(entry).process(patchedCode);
                 }
-                parseAndSetText(patchedCode);
-            } else {
+                return parse(patchedCode);
+            }
+            /*
+             * Use the hyperlinks of the decompiler as preferred way providing links as it often provides more of them
+             */
+            DecompilationResult decompilationResult = decompilation.getResult();
+            String sourceCode = decompilation.getSource();
+            if (decompilationResult.getHyperlinks().isEmpty() || removeUnnecessaryCasts) {
                 /*
-                 * Use the hyperlinks of the decompiler as preferred way providing links as it often provides more of them
+                 * if hyperlinks are empty, it means the links are not supported by the decompiler, so the JAVA parser is called to 
+                 * enable the links. Same thing in case 'Remove casts' options is activated, as it ruins the hyperlinks.
+                 * Avoid shifting positions for all of them by re-parsing the source code. 
+                 * The cached result is shared: the source code is not replaced in the result.
                  */
-                listener.getStrings().addAll(decompilationResult.getStrings());
-                listener.getTypeDeclarations().putAll(decompilationResult.getTypeDeclarations());
-                listener.getDeclarations().putAll(decompilationResult.getDeclarations());
-                listener.getReferences().addAll(decompilationResult.getReferences());
-                hyperlinks.putAll(decompilationResult.getHyperlinks());
-                if (decompilationResult.getMaxLineNumber() != 0) {
-                    setMaxLineNumber(decompilationResult.getMaxLineNumber());
-                }
-                for (Map.Entry<Integer, Integer> entry : decompilationResult.getLineNumbers().entrySet()) {
-                    Integer textAreaLineNumber = entry.getKey();
-                    Integer sourceLineNumber = entry.getValue();
-                    setLineNumber(textAreaLineNumber, sourceLineNumber);
-                }
-                if (hyperlinks.isEmpty() || removeUnnecessaryCasts) {
-                    /*
-                     * if hyperlinks are empty, it means the links are not supported by the decompiler, so the JAVA parser is called to 
-                     * enable the links. Same thing in case 'Remove casts' options is activated, as it ruins the hyperlinks.
-                     * Avoid shifting positions for all of them by re-parsing the source code. 
-                     */
-                    if (removeUnnecessaryCasts) {
-                        decompilationResult.setDecompiledOutput(new RemoveUnnecessaryCasts(entry).process(decompilationResult.getDecompiledOutput()));
-                    }
-                    parseAndSetText(decompilationResult.getDecompiledOutput());
-                } else {
-                    setText(decompilationResult.getDecompiledOutput());
+                if (removeUnnecessaryCasts) {
+                    sourceCode = new RemoveUnnecessaryCasts(entry).process(sourceCode);
                 }
+                return parse(sourceCode);
             }
+            ReferenceListener decompiledListener = new ReferenceListener(entry);
+            decompiledListener.getStrings().addAll(decompilationResult.getStrings());
+            decompiledListener.getTypeDeclarations().putAll(decompilationResult.getTypeDeclarations());
+            decompiledListener.getDeclarations().putAll(decompilationResult.getDeclarations());
+            decompiledListener.getReferences().addAll(decompilationResult.getReferences());
+            decompiledListener.getHyperlinks().putAll(decompilationResult.getHyperlinks());
+            ParsedSource parsedSource = new ParsedSource(sourceCode, decompiledListener);
+            parsedSource.maxLineNumber = decompilationResult.getMaxLineNumber();
+            parsedSource.lineNumbers.putAll(decompilationResult.getLineNumbers());
+            return parsedSource;
         } catch (Exception t) {
             assert ExceptionUtil.printStackTrace(t);
-            setText(INTERNAL_ERROR);
+            return new ParsedSource(INTERNAL_ERROR, new ReferenceListener(entry));
+        }
+    }
+
+    protected void setDecompiledSource(ParsedSource parsedSource) {
+        DefaultCaret caret = (DefaultCaret) textArea.getCaret();
+        int updatePolicy = caret.getUpdatePolicy();
+
+        if (displayed) {
+            // Keep the position of the caret when the source is refreshed
+            caret.setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
+        }
+
+        try {
+            clearLineNumbers();
+            setParsedSource(parsedSource);
         } finally {
+            caret.setUpdatePolicy(updatePolicy);
             maximumLineNumber = getMaximumSourceLineNumber();
+            decompilation = null;
+            displayed = true;
+        }
+
+        // Refresh links
+        indexesChanged(collectionOfFutureIndexes);
+
+        prefetch(parsedSource);
+
+        if (pendingUri != null) {
+            URI uri = pendingUri;
+            pendingUri = null;
+            openUri(uri);
+        }
+    }
+
+    /**
+     * Prefetch the classes next to this class and the classes referenced by this class.
+     */
+    protected void prefetch(ParsedSource parsedSource) {
+        Set<String> typeNames = new LinkedHashSet<>();
+
+        for (ReferenceData reference : parsedSource.listener.getReferences()) {
+            if (reference.getTypeName() != null) {
+                typeNames.add(reference.getTypeName());
+            }
+        }
+
+        Collection<Future<Indexes>> indexes = collectionOfFutureIndexes;
+
+        DecompilationPrefetcher.getInstance().prefetch(api, () -> {
+            Set<Container.Entry> entries = new LinkedHashSet<>(DecompilationPrefetcher.getNeighbours(entry));
+            if (indexes != null) {
+                entries.addAll(DecompilationPrefetcher.getReferencedEntries(indexes, entry, typeNames));
+            }
+            return entries;
+        });
+    }
+
+    protected void cancelDecompilation() {
+        if (decompilation != null) {
+            // Do not interrupt a running decompilation: interrupting a thread reading a zip file system closes it
+            decompilation.cancel(false);
+            decompilation = null;
+            decompilationCount++;
         }
     }
 
@@ -145,30 +240,18 @@ public class ClassFilePage extends TypePage {
     @Override
     public void save(API api, OutputStream os) {
 
-        DecompilationResult decompilationResult = new DecompilationResult();
-        
-        // Init loader
-        ContainerLoader loader = new ContainerLoader(entry);
+        String sourceCode;
+
         try {
-            // Init preferences
-            Map<String, String> preferences = api.getPreferences();
-
-            // Format internal name
-            String entryInternalName = ClassUtil.getInternalName(entry.getPath());
-
-            String decompileEngine = preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1);
-            Loader apiLoader = LoaderUtils.createLoader(preferences, loader, entry);
-            decompilationResult = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, decompileEngine);
-            if (decompilationResult.getDecompiledOutput().contains(ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE)) {
-                DecompilationResult sourceCodeV0 = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, ENGINE_JD_CORE_V0);
-                decompilationResult.setDecompiledOutput(MethodPatcher.patchCode(decompilationResult.getDecompiledOutput(), sourceCodeV0.getDecompiledOutput(), entry));
-            }
+            // Init loader
+            ContainerLoader loader = new ContainerLoader(api, entry);
+            sourceCode = DecompilationCache.getInstance().getSource(api.getPreferences(), loader, entry);
         } catch (Exception t) {
             assert ExceptionUtil.printStackTrace(t);
-            decompilationResult.setDecompiledOutput(INTERNAL_ERROR);
+            sourceCode = INTERNAL_ERROR;
         }
         try (PrintStream ps = new PrintStream(os, true, StandardCharsets.UTF_8.name())) {
-            ps.print(decompilationResult.getDecompiledOutput());
+            ps.print(sourceCode);
         } catch (IOException e) {
             assert ExceptionUtil.printStackTrace(e);
         }
@@ -210,6 +293,39 @@ public class ClassFilePage extends TypePage {
         caret.setUpdatePolicy(updatePolicy);
 
         super.preferencesChanged(preferences);
-        indexesChanged(collectionOfFutureIndexes);
+        if (decompilation == null) {
+            // Source decompiled synchronously, otherwise links are refreshed when the new source is displayed
+            indexesChanged(collectionOfFutureIndexes);
+        }
+    }
+
+    // --- UriOpenable --- //
+    @Override
+    public boolean openUri(URI uri) {
+        if (!displayed && decompilation != null) {
+            // Open the URI when the source is displayed
+            pendingUri = uri;
+            return true;
+        }
+        return super.openUri(uri);
+    }
+
+    // --- Component --- //
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (decompilationCancelled) {
+            // Page added again: restart the decompilation cancelled when the page was removed
+            decompilationCancelled = false;
+            decompile(decompiledPreferences);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        // Page closed: stop waiting for the source
+        decompilationCancelled = decompilation != null;
+        cancelDecompilation();
+        super.removeNotify();
     }
 }
@@ -79,7 +79,7 @@ public class ModuleInfoFilePage extends ClassFilePage {
             boolean unicodeEscape = Boolean.parseBoolean(preferences.getOrDefault(ESCAPE_UNICODE_CHARACTERS, Boolean.FALSE.toString()));
 
             // Init loader
-            ContainerLoader loader = new ContainerLoader(entry);
+            ContainerLoader loader = new ContainerLoader(api, entry);
 
             // Init printer
             ModuleInfoFilePrinter printer = new ModuleInfoFilePrinter();
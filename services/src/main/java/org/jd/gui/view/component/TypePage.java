@@ -7,7 +7,6 @@
 package org.jd.gui.view.component;
 
 import org.eclipse.jdt.core.dom.ASTNode;
-import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.Comment;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.fife.ui.rsyntaxtextarea.DocumentRange;
@@ -20,24 +19,32 @@ import org.jd.gui.api.model.Container;
 import org.jd.gui.api.model.Indexes;
 import org.jd.gui.api.model.Type;
 import org.jd.gui.util.index.IndexesUtil;
+import org.jd.gui.util.index.SymbolTable;
 import org.jd.gui.util.matcher.DescriptorMatcher;
-import org.jd.gui.util.parser.jdt.ASTParserFactory;
+import org.jd.gui.util.parser.jdt.CompilationUnitCache;
 import org.jd.gui.util.parser.jdt.RSyntaxASTParser;
 
 import java.awt.Point;
+import java.awt.event.HierarchyEvent;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.function.BiPredicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.swing.SwingUtilities;
+
 import jd.core.links.DeclarationData;
 import jd.core.links.HyperlinkData;
 import jd.core.links.HyperlinkReferenceData;
@@ -50,12 +57,24 @@ public abstract class TypePage extends CustomLineNumbersPage
     private static final long serialVersionUID = 1L;
 
     private static final Pattern LINE_COMMENT_PATTERN = Pattern.compile("/\\*\s*(\\d+)\s*\\*/");
+
+    private static final ExecutorService LINK_RESOLVER_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jd-gui-type-page-link-resolver");
+        thread.setDaemon(true);
+        return thread;
+    });
     
     protected final transient API api;
     protected final transient Container.Entry entry;
     protected transient Collection<Future<Indexes>> collectionOfFutureIndexes = Collections.emptyList();
 
     protected final transient ReferenceListener listener;
+    protected final transient CompilationUnitCache compilationUnitCache;
+
+    // Link resolution state, only modified on the Event Dispatch Thread
+    private transient Future<?> linkResolution;
+    private volatile int linkResolutionCount;
+    private boolean linksPending;
 
     protected TypePage(API api, Container.Entry entry) {
         // Init attributes
@@ -63,7 +82,14 @@ public abstract class TypePage extends CustomLineNumbersPage
         this.entry = entry;
         this.listener = new ReferenceListener(entry);
         this.listener.setHyperlinks(hyperlinks);
-        this.textArea.addParser(new RSyntaxASTParser(entry, api));
+        this.compilationUnitCache = new CompilationUnitCache(entry);
+        this.textArea.addParser(new RSyntaxASTParser(entry, api, compilationUnitCache));
+        // Resolve the links deferred while the page was hidden
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && linksPending && isShowing()) {
+                resolveLinks();
+            }
+        });
     }
 
     @Override
@@ -377,50 +403,83 @@ public abstract class TypePage extends CustomLineNumbersPage
     public void indexesChanged(Collection<Future<Indexes>> collectionOfFutureIndexes) {
         // Update the list of containers
         this.collectionOfFutureIndexes = collectionOfFutureIndexes;
-        // Refresh links
-        boolean refresh = false;
+        // Refresh links, when the page is visible
+        if (isShowing()) {
+            resolveLinks();
+        } else {
+            linksPending = true;
+        }
+    }
 
-        for (ReferenceData reference : listener.getReferences()) {
-            String typeName = reference.getTypeName();
-            boolean enabled;
+    /**
+     * Enable the hyperlinks of the references found in the indexes. The references are resolved
+     * off the Event Dispatch Thread, then updated on the Event Dispatch Thread.
+     */
+    protected void resolveLinks() {
+        linksPending = false;
 
-            if (reference.getName() == null) {
-                enabled = false;
+        if (linkResolution != null) {
+            linkResolution.cancel(false);
+        }
 
-                try {
-                    for (Future<Indexes> futureIndexes : collectionOfFutureIndexes) {
-                        if (futureIndexes.isDone()) {
-                            @SuppressWarnings("rawtypes")
-                            Map<String, Collection> index = futureIndexes.get().getIndex("typeDeclarations");
-                            if (index != null && index.get(typeName) != null) {
-                                enabled = true;
-                                break;
-                            }
-                        }
-                    }
-                } catch (InterruptedException e) {
-                    assert ExceptionUtil.printStackTrace(e);
-                    // Restore interrupted state...
-                    Thread.currentThread().interrupt();
-                } catch (ExecutionException e) {
-                    assert ExceptionUtil.printStackTrace(e);
+        List<ReferenceData> references = new ArrayList<>(listener.getReferences());
+        List<String[]> queries = new ArrayList<>(references.size());
+
+        for (ReferenceData reference : references) {
+            queries.add(new String[] { reference.getTypeName(), reference.getName(), reference.getDescriptor() });
+        }
+
+        Collection<Future<Indexes>> indexes = collectionOfFutureIndexes;
+        int resolutionId = ++linkResolutionCount;
+
+        linkResolution = LINK_RESOLVER_EXECUTOR.submit(() -> {
+            List<String> typeNames = new ArrayList<>(queries.size());
+
+            for (String[] query : queries) {
+                if (resolutionId != linkResolutionCount) {
+                    // Outdated
+                    return;
                 }
-            } else {
-                try {
-                    // Recursive search
-                    typeName = searchTypeHavingMember(typeName, reference.getName(), reference.getDescriptor(), entry);
-                    if (typeName != null) {
-                        // Replace type with the real type having the referenced member
-                        reference.setTypeName(typeName);
-                        enabled = true;
-                    } else {
-                        enabled = false;
-                    }
-                } catch (StackOverflowError | OutOfMemoryError e) {
-                    // Catch StackOverflowError or OutOfMemoryError
-                    assert ExceptionUtil.printStackTrace(e);
-                    enabled = false;
+                typeNames.add(resolveLink(indexes, query[0], query[1], query[2]));
+            }
+
+            SwingUtilities.invokeLater(() -> {
+                if (resolutionId == linkResolutionCount) {
+                    setLinks(references, typeNames);
                 }
+            });
+        });
+    }
+
+    /**
+     * @return the name of the type declaring the referenced type or member, or null if not found
+     */
+    protected String resolveLink(Collection<Future<Indexes>> collectionOfFutureIndexes, String typeName, String name, String descriptor) {
+        if (name == null) {
+            return IndexesUtil.containsInternalTypeName(collectionOfFutureIndexes, typeName) ? typeName : null;
+        }
+
+        try {
+            // Recursive search
+            return searchTypeHavingMember(collectionOfFutureIndexes, typeName, name, descriptor, entry);
+        } catch (StackOverflowError | OutOfMemoryError e) {
+            // Catch StackOverflowError or OutOfMemoryError
+            assert ExceptionUtil.printStackTrace(e);
+            return null;
+        }
+    }
+
+    protected void setLinks(List<ReferenceData> references, List<String> typeNames) {
+        boolean refresh = false;
+
+        for (int i = 0; i < references.size(); i++) {
+            ReferenceData reference = references.get(i);
+            String typeName = typeNames.get(i);
+            boolean enabled = typeName != null;
+
+            if (enabled && reference.getName() != null) {
+                // Replace type with the real type having the referenced member
+                reference.setTypeName(typeName);
             }
 
             if (reference.isEnabled() != enabled) {
@@ -434,29 +493,88 @@ public abstract class TypePage extends CustomLineNumbersPage
         }
     }
 
-    @SuppressWarnings({ "rawtypes" })
-    protected String searchTypeHavingMember(String typeName, String name, String descriptor, Container.Entry entry) {
-        List<Container.Entry> entries = new ArrayList<>();
+    /**
+     * Search the member in the type and in its super classes. Class files are searched in the member
+     * and super class indexes, other types are loaded by their type factory.
+     */
+    protected String searchTypeHavingMember(Collection<Future<Indexes>> collectionOfFutureIndexes, String typeName, String name, String descriptor, Container.Entry entry) {
+        boolean field = descriptor.indexOf('(') == -1;
+        Set<String> visitedTypeNames = new HashSet<>();
 
-        try {
-            for (Future<Indexes> futureIndexes : collectionOfFutureIndexes) {
-                if (futureIndexes.isDone()) {
-                    Map<String, Collection> index = futureIndexes.get().getIndex("typeDeclarations");
-                    if (index != null) {
-                        @SuppressWarnings("unchecked")
-                        Collection<Container.Entry> collection = index.get(typeName);
-                        if (collection != null) {
-                            entries.addAll(collection);
+        while (typeName != null && visitedTypeNames.add(typeName)) {
+            List<Indexes> declaringIndexes = getDeclaringIndexes(collectionOfFutureIndexes, typeName, entry);
+            String superName = null;
+
+            if (declaringIndexes.isEmpty()) {
+                return null;
+            }
+
+            for (Indexes indexes : declaringIndexes) {
+                Collection<String> superNames = get(indexes, "superClassNames", typeName);
+
+                if (superNames == null || superNames.isEmpty()) {
+                    // Not a class file, or root class: load the types
+                    return searchTypeHavingMember(collectionOfFutureIndexes, typeName, name, descriptor, entry, declaringIndexes);
+                }
+
+                Collection<String> descriptors = get(indexes, "memberDeclarations", typeName + '-' + name);
+
+                if (descriptors != null) {
+                    for (String memberDescriptor : descriptors) {
+                        if (field ? DescriptorMatcher.matchFieldDescriptors(memberDescriptor, descriptor) : DescriptorMatcher.matchMethodDescriptors(memberDescriptor, descriptor)) {
+                            // Member found
+                            return typeName;
                         }
                     }
                 }
+
+                if (superName == null) {
+                    superName = superNames.iterator().next();
+                }
+            }
+
+            // Not found -> Search in super type
+            typeName = superName;
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    protected static <T> Collection<T> get(Indexes indexes, String indexName, String key) {
+        Map<String, Collection> index = indexes.getIndex(indexName);
+        return index == null ? null : index.get(key);
+    }
+
+    /**
+     * @return the indexes declaring the type, in the container of the entry if possible
+     */
+    protected static List<Indexes> getDeclaringIndexes(Collection<Future<Indexes>> collectionOfFutureIndexes, String typeName, Container.Entry entry) {
+        String rootUri = entry.getContainer().getRoot().getUri().toString();
+        List<Indexes> declaringIndexes = SymbolTable.getInstance().getIndexes(collectionOfFutureIndexes, "typeDeclarations", typeName);
+        List<Indexes> sameContainerIndexes = new ArrayList<>();
+
+        for (Indexes indexes : declaringIndexes) {
+            Collection<Container.Entry> collection = get(indexes, "typeDeclarations", typeName);
+            for (Container.Entry e : collection) {
+                if (e.getUri().toString().startsWith(rootUri)) {
+                    sameContainerIndexes.add(indexes);
+                    break;
+                }
+            }
+        }
+
+        return sameContainerIndexes.isEmpty() ? declaringIndexes : sameContainerIndexes;
+    }
+
+    protected String searchTypeHavingMember(Collection<Future<Indexes>> collectionOfFutureIndexes, String typeName, String name, String descriptor, Container.Entry entry, List<Indexes> declaringIndexes) {
+        List<Container.Entry> entries = new ArrayList<>();
+
+        for (Indexes indexes : declaringIndexes) {
+            Collection<Container.Entry> collection = get(indexes, "typeDeclarations", typeName);
+            if (collection != null) {
+                entries.addAll(collection);
             }
-        } catch (InterruptedException e) {
-            assert ExceptionUtil.printStackTrace(e);
-            // Restore interrupted state...
-            Thread.currentThread().interrupt();
-        } catch (Exception e) {
-            assert ExceptionUtil.printStackTrace(e);
         }
 
         String rootUri = entry.getContainer().getRoot().getUri().toString();
@@ -469,12 +587,12 @@ public abstract class TypePage extends CustomLineNumbersPage
         }
 
         if (!sameContainerEntries.isEmpty()) {
-            return searchTypeHavingMember(typeName, name, descriptor, sameContainerEntries);
+            return searchTypeHavingMember(collectionOfFutureIndexes, typeName, name, descriptor, sameContainerEntries);
         }
-        return searchTypeHavingMember(typeName, name, descriptor, entries);
+        return searchTypeHavingMember(collectionOfFutureIndexes, typeName, name, descriptor, entries);
     }
 
-    protected String searchTypeHavingMember(String typeName, String name, String descriptor,
+    protected String searchTypeHavingMember(Collection<Future<Indexes>> collectionOfFutureIndexes, String typeName, String name, String descriptor,
             List<Container.Entry> entries) {
         for (Container.Entry nextEntry : entries) {
             Type type = api.getTypeFactory(nextEntry).make(api, nextEntry, typeName);
@@ -501,7 +619,7 @@ public abstract class TypePage extends CustomLineNumbersPage
                 }
 
                 // Not found -> Search in super type
-                String typeOwnerName = searchTypeHavingMember(type.getSuperName(), name, descriptor, nextEntry);
+                String typeOwnerName = searchTypeHavingMember(collectionOfFutureIndexes, type.getSuperName(), name, descriptor, nextEntry);
                 if (typeOwnerName != null) {
                     return typeOwnerName;
                 }
@@ -512,26 +630,56 @@ public abstract class TypePage extends CustomLineNumbersPage
     }
 
     public void parseAndSetText(String text) {
-        listener.clearData();
-        // Parse
-        char[] source = text.toCharArray();
-        URI jarURI = entry.getContainer().getRoot().getParent().getUri();
-        String unitName = entry.getPath();
-        // 1st pass for declarations
-        ASTParser astParser = ASTParserFactory.getInstance().newASTParser(source, unitName, jarURI);
-        astParser.createAST(null).accept(listener.getDeclarationListener());    
-        listener.init();
+        setParsedSource(parse(text));
+    }
+
+    /**
+     * Parse the source without updating the page: the data are stored in a new listener, so that
+     * sources can be parsed off the Event Dispatch Thread.
+     */
+    protected ParsedSource parse(String text) {
+        ReferenceListener parsedListener = new ReferenceListener(entry);
+        // Parse once with bindings, the AST is shared with the error strip parser
+        ASTNode astNode = compilationUnitCache.getAST(text);
+        // 1st pass for declarations, without recovered statements
+        compilationUnitCache.getDeclarationAST(text).accept(parsedListener.getDeclarationListener());
+        parsedListener.init();
         // 2nd pass for references
-        ASTParser astParserWithBindings = ASTParserFactory.getInstanceWithBindings().newASTParser(source, unitName, jarURI);
-        ASTNode astNode = astParserWithBindings.createAST(null);
-        astNode.accept(listener);
+        astNode.accept(parsedListener);
+        ParsedSource parsedSource = new ParsedSource(text, parsedListener);
+        parsedSource.initLineNumbers = true;
+        setMisalignedLineNumbers(astNode, text, parsedSource.lineNumbers);
+        return parsedSource;
+    }
+
+    /**
+     * Display a parsed source. Must be called on the Event Dispatch Thread.
+     */
+    protected void setParsedSource(ParsedSource parsedSource) {
+        ReferenceListener parsedListener = parsedSource.listener;
+
+        // Discard the links resolved for the previous references
+        linkResolutionCount++;
+        listener.clearData();
+        listener.getStrings().addAll(parsedListener.getStrings());
+        listener.getTypeDeclarations().putAll(parsedListener.getTypeDeclarations());
+        listener.getDeclarations().putAll(parsedListener.getDeclarations());
+        listener.getReferences().addAll(parsedListener.getReferences());
+        hyperlinks.putAll(parsedListener.getHyperlinks());
         // Display
-        setText(text);
-        initLineNumbers();
-        setMisalignedLineNumbers(astNode, text);
+        setText(parsedSource.text);
+        if (parsedSource.initLineNumbers) {
+            initLineNumbers();
+        }
+        if (parsedSource.maxLineNumber != 0) {
+            setMaxLineNumber(parsedSource.maxLineNumber);
+        }
+        for (Map.Entry<Integer, Integer> lineNumber : parsedSource.lineNumbers.entrySet()) {
+            setLineNumber(lineNumber.getKey(), lineNumber.getValue());
+        }
     }
 
-    private void setMisalignedLineNumbers(ASTNode astNode, String text) {
+    private static void setMisalignedLineNumbers(ASTNode astNode, String text, Map<Integer, Integer> lineNumbers) {
         if (astNode instanceof CompilationUnit) {
             CompilationUnit cu = (CompilationUnit) astNode;
             @SuppressWarnings("unchecked")
@@ -550,11 +698,25 @@ public abstract class TypePage extends CustomLineNumbersPage
                         int originalLineNumber = Integer.parseInt(lineNumberText);
                         int textAreaLineNumber = startLineNumber;
                         if (originalLineNumber != textAreaLineNumber) {
-                            setLineNumber(textAreaLineNumber, originalLineNumber);
+                            lineNumbers.put(textAreaLineNumber, originalLineNumber);
                         }
                     }
                 }
             }
         }
     }
+
+    protected static class ParsedSource {
+        protected final String text;
+        protected final ReferenceListener listener;
+        /** Map[textarea line number] = original line number. */
+        protected final Map<Integer, Integer> lineNumbers = new HashMap<>();
+        protected int maxLineNumber;
+        protected boolean initLineNumbers;
+
+        public ParsedSource(String text, ReferenceListener listener) {
+            this.text = text;
+            this.listener = listener;
+        }
+    }
 }
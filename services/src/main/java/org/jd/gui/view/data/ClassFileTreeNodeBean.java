@@ -8,7 +8,6 @@
 package org.jd.gui.view.data;
 
 import org.eclipse.jdt.core.compiler.IProblem;
-import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ExceptionUtil;
 import org.jd.gui.api.API;
@@ -21,11 +20,18 @@ import com.heliosdecompiler.transformerapi.StandardTransformers;
 import com.heliosdecompiler.transformerapi.common.Loader;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.Icon;
-import javax.swing.SwingWorker;
+import javax.swing.SwingUtilities;
 
 import static com.heliosdecompiler.transformerapi.StandardTransformers.Decompilers.ENGINE_JD_CORE_V1;
 import static org.jd.gui.service.treenode.ClassFileTreeNodeFactoryProvider.CLASS_FILE_ICON;
@@ -38,7 +44,26 @@ import static org.jd.gui.util.decompiler.GuiPreferences.SHOW_COMPILER_WARNINGS;
 import jd.core.ClassUtil;
 import jd.core.DecompilationResult;
 
+/**
+ * Class file node showing the compiler errors and warnings of its decompiled source.<br>
+ * <br>
+ * The states of the nodes are computed in background, in batches: the tree is repainted once per batch,
+ * and the sources decompiled for the nodes of an archive are parsed with the parser environment of the archive.
+ */
 public class ClassFileTreeNodeBean extends TreeNodeBean {
+    protected static final int MAXIMUM_BATCH_SIZE = 64;
+
+    private static final ExecutorService STATE_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jd-gui-class-file-state");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // Nodes waiting for their state, guarded by itself
+    private static final Map<ClassFileTreeNodeBean, PreferenceKey> PENDING_BEANS = new LinkedHashMap<>();
+    private static boolean computing;
+
     private final API api;
     private final Entry entry;
     private final Map<PreferenceKey, ClassFileTreeNodeState> decompilerToState = new ConcurrentHashMap<>();
@@ -61,7 +86,7 @@ public class ClassFileTreeNodeBean extends TreeNodeBean {
                 return CLASS_FILE_ICON_WARNING;
             }
         } else {
-            getWorker().execute();
+            computeState();
         }
         return CLASS_FILE_ICON;
     }
@@ -70,20 +95,22 @@ public class ClassFileTreeNodeBean extends TreeNodeBean {
         return new PreferenceKey(preferences.getOrDefault(DECOMPILE_ENGINE, ENGINE_JD_CORE_V1), preferences);
     }
 
-    public SwingWorker<Void, Void> getWorker() {
-        return new SwingWorker<Void, Void>() {
-            @Override
-            protected Void doInBackground() throws Exception {
-                Map<String, String> preferences = api.getPreferences();
-                decompilerToState.computeIfAbsent(makeKey(preferences), k -> getStateForEntry(entry, api, k.engineName()));
-                return null;
-            }
-            
-            @Override
-            protected void done() {
-                api.repaint();
+    /**
+     * Compute the state of the node in background, if not computed yet. The tree is repainted when done.
+     */
+    public void computeState() {
+        PreferenceKey key = makeKey(api.getPreferences());
+
+        if (!decompilerToState.containsKey(key)) {
+            synchronized (PENDING_BEANS) {
+                PENDING_BEANS.putIfAbsent(this, key);
+
+                if (!computing) {
+                    computing = true;
+                    STATE_EXECUTOR.execute(ClassFileTreeNodeBean::computePendingStates);
+                }
             }
-        };
+        }
     }
 
     @Override
@@ -91,26 +118,118 @@ public class ClassFileTreeNodeBean extends TreeNodeBean {
         return getIcon();
     }
 
-    public static synchronized ClassFileTreeNodeState getStateForEntry(Entry entry, API api, String engineName) {
-        String unitName = entry.getPath();
-        URI jarURI = entry.getContainer().getRoot().getParent().getUri();
+    protected static void computePendingStates() {
+        try {
+            computeBatches();
+        } finally {
+            synchronized (PENDING_BEANS) {
+                computing = false;
+
+                // Nodes queued after the last batch, or left by an error
+                if (!PENDING_BEANS.isEmpty()) {
+                    computing = true;
+                    STATE_EXECUTOR.execute(ClassFileTreeNodeBean::computePendingStates);
+                }
+            }
+        }
+    }
+
+    protected static void computeBatches() {
+        for (;;) {
+            Map<ClassFileTreeNodeBean, PreferenceKey> beans = new LinkedHashMap<>();
+
+            synchronized (PENDING_BEANS) {
+                Iterator<Map.Entry<ClassFileTreeNodeBean, PreferenceKey>> iterator = PENDING_BEANS.entrySet().iterator();
+
+                while (iterator.hasNext() && beans.size() < MAXIMUM_BATCH_SIZE) {
+                    Map.Entry<ClassFileTreeNodeBean, PreferenceKey> e = iterator.next();
+                    beans.put(e.getKey(), e.getValue());
+                    iterator.remove();
+                }
+
+                if (beans.isEmpty()) {
+                    return;
+                }
+            }
+
+            // Group the nodes by archive and by decompiler
+            Map<URI, Map<PreferenceKey, List<ClassFileTreeNodeBean>>> groups = new LinkedHashMap<>();
+
+            for (Map.Entry<ClassFileTreeNodeBean, PreferenceKey> e : beans.entrySet()) {
+                URI jarURI = e.getKey().entry.getContainer().getRoot().getParent().getUri();
+                groups.computeIfAbsent(jarURI, k -> new LinkedHashMap<>()).computeIfAbsent(e.getValue(), k -> new ArrayList<>()).add(e.getKey());
+            }
+
+            try {
+                for (Map.Entry<URI, Map<PreferenceKey, List<ClassFileTreeNodeBean>>> group : groups.entrySet()) {
+                    for (Map.Entry<PreferenceKey, List<ClassFileTreeNodeBean>> e : group.getValue().entrySet()) {
+                        computeStates(group.getKey(), e.getKey(), e.getValue());
+                    }
+                }
+            } catch (RuntimeException e) {
+                assert ExceptionUtil.printStackTrace(e);
+            }
+
+            API api = null;
+
+            for (Map.Entry<ClassFileTreeNodeBean, PreferenceKey> e : beans.entrySet()) {
+                // Nodes without AST get a state anyway, not to be queued again on each repaint
+                e.getKey().decompilerToState.putIfAbsent(e.getValue(), getState(null));
+                api = e.getKey().api;
+            }
+
+            SwingUtilities.invokeLater(api::repaint);
+        }
+    }
+
+    /**
+     * Decompile the classes of an archive, then parse their sources together.
+     */
+    protected static void computeStates(URI jarURI, PreferenceKey key, List<ClassFileTreeNodeBean> beans) {
+        Map<String, ClassFileTreeNodeBean> unitNameToBean = new HashMap<>();
+        Map<String, char[]> sources = new LinkedHashMap<>();
+
+        for (ClassFileTreeNodeBean bean : beans) {
+            if (!bean.decompilerToState.containsKey(key)) {
+                String text = decompile(bean.entry, bean.api, key.engineName());
+
+                if (text == null) {
+                    bean.decompilerToState.put(key, new ClassFileTreeNodeState(true, false));
+                } else {
+                    String unitName = bean.entry.getPath();
+                    unitNameToBean.put(unitName, bean);
+                    sources.put(unitName, text.toCharArray());
+                }
+            }
+        }
+
+        if (!sources.isEmpty()) {
+            ASTParserFactory.getInstanceWithBindings().createASTs(jarURI, sources, (unitName, ast) ->
+                unitNameToBean.get(unitName).decompilerToState.put(key, getState(ast)));
+        }
+    }
+
+    /**
+     * @return the decompiled source, or null if the decompilation failed
+     */
+    protected static String decompile(Entry entry, API api, String engineName) {
         String entryInternalName = ClassUtil.getInternalName(entry.getPath());
         Map<String, String> preferences = api.getPreferences();
-        ContainerLoader loader = new ContainerLoader(entry);
+        ContainerLoader loader = new ContainerLoader(api, entry);
         Loader apiLoader = LoaderUtils.createLoader(preferences, loader, entry);
-        DecompilationResult decompilationResult;
         try {
-            decompilationResult = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, engineName);
+            DecompilationResult decompilationResult = StandardTransformers.decompile(apiLoader, entryInternalName, preferences, engineName);
+            return decompilationResult.getDecompiledOutput();
         } catch (Exception e) {
             assert ExceptionUtil.printStackTrace(e);
-            return new ClassFileTreeNodeState(true, false);
+            return null;
         }
-        String text = decompilationResult.getDecompiledOutput();
-        ASTNode ast = ASTParserFactory.getInstanceWithBindings().newASTParser(text.toCharArray(), unitName, jarURI).createAST(null);
+    }
+
+    protected static ClassFileTreeNodeState getState(CompilationUnit cu) {
         boolean hasWarning = false;
         boolean hasError = false;
-        if (ast instanceof CompilationUnit) {
-            CompilationUnit cu = (CompilationUnit) ast;
+        if (cu != null) {
             IProblem[] problems = cu.getProblems();
             for (IProblem pb : problems) {
                 hasError |= pb.isError();
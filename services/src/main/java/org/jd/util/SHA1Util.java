@@ -29,9 +29,12 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class SHA1Util {
 
+    private static final Map<File, FileDigest> FILE_DIGESTS = new ConcurrentHashMap<>();
+
     private SHA1Util() {
     }
 
@@ -56,7 +59,7 @@ public final class SHA1Util {
         StringBuilder sb = new StringBuilder();
         try {
             messageDigest = MessageDigest.getInstance("SHA-1");
-            byte[] buffer = new byte[1024 * 2];
+            byte[] buffer = new byte[1024 * 64];
 
             try (DigestInputStream is = new DigestInputStream(new FileInputStream(file), messageDigest)) {
                 while (is.read(buffer) > -1) {
@@ -64,20 +67,55 @@ public final class SHA1Util {
                 }
             }
 
-            byte[] array = messageDigest.digest();
+            appendHexa(sb, messageDigest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            assert ExceptionUtil.printStackTrace(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the SHA-1 of the file, computed again only if the length or the modification time of the file changed
+     */
+    public static String getSHA1(File file) {
+        long length = file.length();
+        long lastModified = file.lastModified();
+        FileDigest fileDigest = FILE_DIGESTS.get(file);
 
-            for (byte b : array) {
-                sb.append(hexa((b & 255) >> 4));
-                sb.append(hexa(b & 15));
+        if (fileDigest == null || fileDigest.length() != length || fileDigest.lastModified() != lastModified) {
+            String sha1 = computeSHA1(file);
+            if (sha1.isEmpty()) {
+                return sha1;
             }
-        } catch (IOException | NoSuchAlgorithmException e) {
+            fileDigest = new FileDigest(length, lastModified, sha1);
+            FILE_DIGESTS.put(file, fileDigest);
+        }
+
+        return fileDigest.sha1();
+    }
+
+    public static String computeSHA1(String text) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            appendHexa(sb, MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
             assert ExceptionUtil.printStackTrace(e);
         }
         return sb.toString();
     }
 
+    private static void appendHexa(StringBuilder sb, byte[] array) {
+        for (byte b : array) {
+            sb.append(hexa((b & 255) >> 4));
+            sb.append(hexa(b & 15));
+        }
+    }
+
     private static char hexa(int i) {
         return (char) (i <= 9 ? '0' + i : 'a' - 10 + i);
     }
 
+    private record FileDigest(long length, long lastModified, String sha1) {
+    }
+
 }
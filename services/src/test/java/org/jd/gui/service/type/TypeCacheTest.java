@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.service.type;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class TypeCacheTest {
+
+    @Test
+    public void testHitsAndMisses() {
+        TypeCache typeCache = new TypeCache(1024 * 1024);
+        int[] calls = new int[1];
+
+        assertEquals("A", typeCache.get("file:/test.jar!/A.class", 100, () -> { calls[0]++; return "A"; }));
+        assertEquals("A", typeCache.get("file:/test.jar!/A.class", 100, () -> { calls[0]++; return "A"; }));
+        // Failures are cached too
+        assertNull(typeCache.get("file:/test.jar!/B.class", 100, () -> { calls[0]++; return null; }));
+        assertNull(typeCache.get("file:/test.jar!/B.class", 100, () -> { calls[0]++; return null; }));
+
+        assertEquals(2, calls[0]);
+        assertEquals(2, typeCache.getHitCount());
+        assertEquals(2, typeCache.getMissCount());
+        assertEquals(2 * (TypeCache.MODEL_WEIGHT + 100), typeCache.getWeight());
+    }
+
+    @Test
+    public void testEviction() {
+        long modelWeight = TypeCache.MODEL_WEIGHT + 100;
+        TypeCache typeCache = new TypeCache(2 * modelWeight);
+
+        typeCache.get("file:/test.jar!/A.class", 100, () -> "A");
+        typeCache.get("file:/test.jar!/B.class", 100, () -> "B");
+        // Touch A, so that B is the least recently used model
+        typeCache.get("file:/test.jar!/A.class", 100, () -> "A");
+        typeCache.get("file:/test.jar!/C.class", 100, () -> "C");
+
+        assertEquals(2, typeCache.size());
+        assertEquals(1, typeCache.getEvictionCount());
+        assertEquals("A", typeCache.get("file:/test.jar!/A.class", 100, () -> "new A"));
+        assertEquals("new B", typeCache.get("file:/test.jar!/B.class", 100, () -> "new B"));
+    }
+
+    @Test
+    public void testRetain() {
+        TypeCache typeCache = new TypeCache(1024 * 1024);
+
+        typeCache.get("file:/a.jar!/A.class", 100, () -> "A");
+        typeCache.get("file:/a.jar!/lib/c.jar!/C.class", 100, () -> "C");
+        typeCache.get("file:/b.jar!/B.class", 100, () -> "B");
+        typeCache.retain(Collections.singletonList(URI.create("file:/a.jar")));
+
+        assertEquals(2, typeCache.size());
+        assertEquals(2 * (TypeCache.MODEL_WEIGHT + 100), typeCache.getWeight());
+    }
+
+    @Test
+    public void testRemove() {
+        TypeCache typeCache = new TypeCache(1024 * 1024);
+
+        typeCache.get("file:/dir/A.class", 100, () -> "A");
+        typeCache.get("file:/dir/A.class#A$Inner", 100, () -> "A$Inner");
+        typeCache.get("file:/dir/B.class", 100, () -> "B");
+        typeCache.remove(key -> key.equals("file:/dir/A.class") || key.startsWith("file:/dir/A.class#"));
+
+        assertEquals(1, typeCache.size());
+        assertEquals(TypeCache.MODEL_WEIGHT + 100, typeCache.getWeight());
+        assertEquals("new A", typeCache.get("file:/dir/A.class", 100, () -> "new A"));
+        assertEquals("B", typeCache.get("file:/dir/B.class", 100, () -> "new B"));
+    }
+}
@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util;
+
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.jd.core.v1.service.converter.classfiletojavasyntax.util.ByteCodeWriter;
+import org.jd.util.Range;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MethodPatcherTest {
+
+    private static final String UNIT_NAME = "p/A.class";
+
+    private static final String FAILURE = "/* " + ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE + "10 */";
+
+    private static final String SOURCE_V1 = String.join("\n",
+            "package p;",
+            "",
+            "import java.util.Map;",
+            "",
+            "public class A {",
+            "    public void m(int i) {",
+            "        Runnable r = new Runnable() {",
+            "            public void run() {",
+            "                " + FAILURE,
+            "            }",
+            "        };",
+            "    }",
+            "",
+            "    public void m(String s) {",
+            "        System.out.println(s);",
+            "    }",
+            "",
+            "    public void v(String... args) {",
+            "        " + FAILURE,
+            "        System.out.println(args);",
+            "        System.out.println(args.length);",
+            "    }",
+            "",
+            "    public void e(int[] a, Map.Entry<String, String> entry) {",
+            "    }",
+            "",
+            "    class Inner {",
+            "        Inner(int x) {",
+            "            " + FAILURE,
+            "        }",
+            "",
+            "        void run() {",
+            "        }",
+            "    }",
+            "}",
+            "");
+
+    private static final String SOURCE_V0 = String.join("\n",
+            "package p;",
+            "",
+            "public class A {",
+            "    public void m(int i) {",
+            "        Runnable r = new A$1(this);",
+            "    }",
+            "",
+            "    public void m(String s) {",
+            "        System.out.println(\"v0\");",
+            "    }",
+            "",
+            "    public void v(String[] args) {",
+            "        System.out.println(args);",
+            "    }",
+            "",
+            "    class Inner {",
+            "        Inner(int x) {",
+            "            super();",
+            "        }",
+            "    }",
+            "}",
+            "");
+
+    @TempDir
+    Path directory;
+
+    private URI jarURI;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Path jarPath = directory.resolve("test.jar");
+
+        try (JarOutputStream jarOutputStream = new JarOutputStream(Files.newOutputStream(jarPath))) {
+            jarOutputStream.putNextEntry(new ZipEntry("p/"));
+        }
+
+        jarURI = jarPath.toUri();
+    }
+
+    @Test
+    public void testGetMethodKey() {
+        Map<String, MethodDeclaration> methodDeclarations = MethodPatcher.getMethodDeclarations(SOURCE_V1, UNIT_NAME, jarURI);
+
+        // Overloads, varargs, generic and qualified types, member class; no method of the anonymous class
+        assertEquals(new HashSet<>(Arrays.asList("A#m(int)", "A#m(String)", "A#v(String[])", "A#e(int[],Entry)", "A$Inner#<init>(int)", "A$Inner#run()")),
+                methodDeclarations.keySet());
+    }
+
+    @Test
+    public void testFindFailedMethods() {
+        Map<String, Range> failedMethods = MethodPatcher.findFailedMethods(SOURCE_V1, UNIT_NAME, jarURI);
+
+        // The failure in the anonymous class fails its enclosing method
+        assertEquals(new HashSet<>(Arrays.asList("A#m(int)", "A#v(String[])", "A$Inner#<init>(int)")), failedMethods.keySet());
+        assertTrue(MethodPatcher.findFailedMethods(SOURCE_V0, UNIT_NAME, jarURI).isEmpty());
+    }
+
+    @Test
+    public void testFindMethodDeclaration() {
+        Map<String, MethodDeclaration> methodDeclarations = MethodPatcher.getMethodDeclarations(SOURCE_V0, UNIT_NAME, jarURI);
+
+        assertSame(methodDeclarations.get("A#m(String)"), MethodPatcher.findMethodDeclaration(methodDeclarations, "A#m(String)"));
+        assertSame(methodDeclarations.get("A#v(String[])"), MethodPatcher.findMethodDeclaration(methodDeclarations, "A#v(String[])"));
+        // Same name and parameter count, other parameter types
+        assertSame(methodDeclarations.get("A$Inner#<init>(int)"), MethodPatcher.findMethodDeclaration(methodDeclarations, "A$Inner#<init>(Integer)"));
+        // Ambiguous overloads
+        assertNull(MethodPatcher.findMethodDeclaration(methodDeclarations, "A#m(Object)"));
+        assertNull(MethodPatcher.findMethodDeclaration(methodDeclarations, "A#unknown()"));
+    }
+
+    @Test
+    public void testPatchCode() {
+        Map<String, Range> failedMethods = MethodPatcher.findFailedMethods(SOURCE_V1, UNIT_NAME, jarURI);
+        String patchedSource = MethodPatcher.patchCode(SOURCE_V1, failedMethods, SOURCE_V0, UNIT_NAME, jarURI);
+
+        assertFalse(patchedSource.contains(ByteCodeWriter.DECOMPILATION_FAILED_AT_LINE));
+        assertEquals(3, patchedSource.split(MethodPatcher.PATCHED_COMMENT.replace("*", "\\*"), -1).length - 1);
+        assertTrue(patchedSource.contains("new A$1(this)"));
+        assertTrue(patchedSource.contains("super();"));
+        // Methods not failed are kept
+        assertTrue(patchedSource.contains("System.out.println(s);"));
+        assertFalse(patchedSource.contains("\"v0\""));
+        // Lines are kept, for the line numbers
+        assertEquals(SOURCE_V1.lines().count(), patchedSource.lines().count());
+        assertTrue(MethodPatcher.findFailedMethods(patchedSource, UNIT_NAME, jarURI).isEmpty());
+    }
+
+    @Test
+    public void testGetMethodNames() {
+        Map<String, Set<String>> methodNames = MethodPatcher.getMethodNames(Arrays.asList("A#m(int)", "A#v(String[])", "A$Inner#<init>(int)"), "p/A");
+
+        assertEquals(2, methodNames.size());
+        assertEquals(new HashSet<>(Arrays.asList("m", "v")), methodNames.get("p/A"));
+        assertEquals(new HashSet<>(Arrays.asList("<init>")), methodNames.get("p/A$Inner"));
+    }
+
+    @Test
+    public void testIsNamedMember() {
+        assertTrue(MethodPatcher.isNamedMember("p/A", "p/A"));
+        assertTrue(MethodPatcher.isNamedMember("p/A", "p/A$Inner"));
+        assertTrue(MethodPatcher.isNamedMember("p/A", "p/A$Inner$Deep"));
+        // Anonymous and local classes
+        assertFalse(MethodPatcher.isNamedMember("p/A", "p/A$1"));
+        assertFalse(MethodPatcher.isNamedMember("p/A", "p/A$Inner$1Local"));
+        assertFalse(MethodPatcher.isNamedMember("p/A", "p/A$"));
+        // Other classes
+        assertFalse(MethodPatcher.isNamedMember("p/A", "p/AB"));
+        assertFalse(MethodPatcher.isNamedMember("p/A", "p/B"));
+    }
+
+    @Test
+    public void testFilterMethods() {
+        ClassWriter classWriter = new ClassWriter(0);
+        classWriter.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "p/A", null, "java/lang/Object", null);
+        addMethod(classWriter, 0, "m", "(I)V");
+        addMethod(classWriter, 0, "m", "(Ljava/lang/String;)V");
+        addMethod(classWriter, 0, "e", "([ILjava/util/Map$Entry;)V");
+        addMethod(classWriter, Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC, "lambda$e$0", "()V");
+        classWriter.visitEnd();
+
+        byte[] filteredBytes = MethodPatcher.filterMethods(classWriter.toByteArray(), new HashSet<>(Arrays.asList("m")));
+        Set<String> methods = new HashSet<>();
+
+        new ClassReader(filteredBytes).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                methods.add(name + descriptor);
+                return null;
+            }
+        }, 0);
+
+        // All the overloads of the kept methods, and the synthetic methods
+        assertEquals(new HashSet<>(Arrays.asList("m(I)V", "m(Ljava/lang/String;)V", "lambda$e$0()V")), methods);
+    }
+
+    protected static void addMethod(ClassWriter classWriter, int access, String name, String descriptor) {
+        MethodVisitor methodVisitor = classWriter.visitMethod(access, name, descriptor, null, null);
+        methodVisitor.visitCode();
+        methodVisitor.visitInsn(Opcodes.RETURN);
+        methodVisitor.visitMaxs(0, 3);
+        methodVisitor.visitEnd();
+    }
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.decompiler;
+
+import org.jd.gui.api.model.Container;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILATION_CACHE_DISK;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILATION_CACHE_SIZE;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_ENGINE;
+import static org.jd.gui.util.decompiler.GuiPreferences.FONT_SIZE_KEY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class DecompilationCacheTest {
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void testKey() throws IOException {
+        File jar = new File(directory, "test.jar");
+        Files.write(jar.toPath(), new byte[] { 1, 2, 3 });
+
+        TestEntry archive = new TestEntry(null, jar.toURI(), "test.jar");
+        TestEntry classEntry = new TestEntry(new TestContainer(archive), URI.create(jar.toURI() + "!/a/A.class"), "a/A.class");
+        TestEntry nestedArchive = new TestEntry(new TestContainer(archive), URI.create(jar.toURI() + "!/lib/b.jar"), "lib/b.jar");
+        TestEntry nestedClassEntry = new TestEntry(new TestContainer(nestedArchive), URI.create(jar.toURI() + "!/lib/b.jar!/b/B.class"), "b/B.class");
+
+        assertSame(archive, DecompilationCache.getArchiveEntry(classEntry));
+        assertSame(archive, DecompilationCache.getArchiveEntry(nestedClassEntry));
+        assertEquals("a/A.class", DecompilationCache.getEntryId(classEntry, archive));
+        assertEquals("lib/b.jar!/b/B.class", DecompilationCache.getEntryId(nestedClassEntry, archive));
+
+        Map<String, String> preferences = new HashMap<>();
+        String key = DecompilationCache.getKey(preferences, classEntry);
+
+        // Viewer preferences do not change the source
+        preferences.put(FONT_SIZE_KEY, "12");
+        assertEquals(key, DecompilationCache.getKey(preferences, classEntry));
+        // Decompiler preferences change the source
+        preferences.put(DECOMPILE_ENGINE, "CFR");
+        assertEquals(false, key.equals(DecompilationCache.getKey(preferences, classEntry)));
+
+        // Entries not stored in a file are not cached
+        assertNull(DecompilationCache.getKey(preferences, new TestEntry(null, URI.create("jrt:/java.base/java/lang/Object.class"), "java/lang/Object.class")));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        File jar = new File(directory, "test.jar");
+        Files.write(jar.toPath(), new byte[] { 1, 2, 3 });
+
+        TestEntry archive = new TestEntry(null, jar.toURI(), "test.jar");
+        TestEntry classEntry1 = new TestEntry(new TestContainer(archive), URI.create(jar.toURI() + "!/A.class"), "A.class");
+        TestEntry classEntry2 = new TestEntry(new TestContainer(archive), URI.create(jar.toURI() + "!/B.class"), "B.class");
+
+        DecompilationCache cache = DecompilationCache.getInstance();
+        Map<String, String> preferences = new HashMap<>();
+        preferences.put(DECOMPILATION_CACHE_SIZE, "1");
+        preferences.put(DECOMPILATION_CACHE_DISK, "true");
+
+        try {
+            cache.clear();
+            cache.setDirectory(new File(directory, "sources"));
+
+            String source1 = String.join("", Collections.nCopies(300 * 1024, "a"));
+            String source2 = String.join("", Collections.nCopies(300 * 1024, "b"));
+            String key1 = DecompilationCache.getKey(preferences, classEntry1);
+            String key2 = DecompilationCache.getKey(preferences, classEntry2);
+
+            cache.put(preferences, key1, new DecompilationCache.Decompilation(null, source1, false));
+            assertEquals(source1, cache.getSource(preferences, null, classEntry1));
+
+            // 2 sources of 600 KB do not fit in 1 MB: the least recently used source is written on disk
+            cache.put(preferences, key2, new DecompilationCache.Decompilation(null, source2, false));
+            assertNull(cache.get(key1));
+            assertEquals(source2, cache.getSource(preferences, null, classEntry2));
+            assertEquals(source1, cache.getSource(preferences, null, classEntry1));
+        } finally {
+            cache.clear();
+            cache.setDirectory(null);
+        }
+    }
+
+    protected static class TestContainer implements Container {
+        private final Container.Entry root;
+
+        public TestContainer(Container.Entry parent) {
+            this.root = new TestEntry(null, parent.getUri(), "") {
+                @Override
+                public Container.Entry getParent() { return parent; }
+            };
+        }
+
+        @Override
+        public String getType() { return "jar"; }
+        @Override
+        public Container.Entry getRoot() { return root; }
+    }
+
+    protected static class TestEntry implements Container.Entry {
+        private final Container container;
+        private final URI uri;
+        private final String path;
+
+        public TestEntry(Container container, URI uri, String path) {
+            this.container = container;
+            this.uri = uri;
+            this.path = path;
+        }
+
+        @Override
+        public Container getContainer() { return container; }
+        @Override
+        public Container.Entry getParent() { return null; }
+        @Override
+        public URI getUri() { return uri; }
+        @Override
+        public long length() { return 0; }
+        @Override
+        public long compressedLength() { return 0; }
+        @Override
+        public InputStream getInputStream() { return null; }
+        @Override
+        public Map<Container.EntryPath, Container.Entry> getChildren() { return Collections.emptyMap(); }
+        @Override
+        public boolean isDirectory() { return false; }
+        @Override
+        public String getPath() { return path; }
+    }
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.decompiler;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_ENGINE;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_RACE;
+import static org.jd.gui.util.decompiler.GuiPreferences.DECOMPILE_RACE_ENGINES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DecompilationRaceTest {
+
+    @Test
+    public void testEngineNames() {
+        Map<String, String> preferences = new HashMap<>();
+        preferences.put(DECOMPILE_ENGINE, "A");
+        preferences.put(DECOMPILE_RACE_ENGINES, "B, A,,C");
+
+        // Selected engine first, without duplicates
+        assertEquals(Arrays.asList("A", "B", "C"), DecompilationRace.getEngineNames(preferences));
+        // Opt-in
+        assertFalse(DecompilationRace.isEnabled(preferences));
+        preferences.put(DECOMPILE_RACE, "true");
+        assertTrue(DecompilationRace.isEnabled(preferences));
+        preferences.put(DECOMPILE_RACE_ENGINES, "A");
+        assertFalse(DecompilationRace.isEnabled(preferences));
+    }
+
+    @Test
+    public void testFirstGoodResultWins() throws Exception {
+        DecompilationRace race = DecompilationRace.getInstance();
+        race.clearStatistics();
+        CountDownLatch blocked = new CountDownLatch(1);
+
+        String result = race.race(Arrays.asList("slow", "failed", "fast"), engineName -> {
+            switch (engineName) {
+                case "slow":
+                    blocked.await();
+                    return "slow";
+                case "failed":
+                    return "// $FF: Couldn't be decompiled";
+                default:
+                    return "fast";
+            }
+        }, Function.identity());
+
+        assertEquals("fast", result);
+        assertEquals(1, race.getStatistics().get("fast").getWinCount());
+        assertEquals(0, race.getStatistics().get("failed").getWinCount());
+        // The slow engine is interrupted
+        assertEquals(1, race.getStatistics().get("slow").getCancellationCount());
+    }
+
+    @Test
+    public void testAllFailed() throws Exception {
+        DecompilationRace race = DecompilationRace.getInstance();
+        List<String> engineNames = Arrays.asList("first", "second");
+
+        // First completed result in the order of the engines
+        assertEquals("first: This method could not be decompiled", race.race(engineNames, engineName -> {
+            if ("first".equals(engineName)) {
+                Thread.sleep(50);
+            }
+            return engineName + ": This method could not be decompiled";
+        }, Function.identity()));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> race.race(engineNames, engineName -> {
+            throw new IOException(engineName);
+        }, Function.identity()));
+        assertEquals("first", e.getCause().getMessage());
+    }
+}
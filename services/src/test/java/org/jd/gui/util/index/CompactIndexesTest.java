@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import org.jd.gui.api.model.Indexes;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactIndexesTest {
+
+    @Test
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testCompact() {
+        Object entry1 = new Object();
+        Object entry2 = new Object();
+        Map<String, Collection> strings = new HashMap<>();
+        strings.put(new String("hello"), new ArrayList<>(Arrays.asList(entry1, entry2, entry1)));
+        strings.put("world", new ArrayList<>(Arrays.asList(entry2)));
+        Map<String, Map<String, Collection>> map = new HashMap<>();
+        map.put("strings", strings);
+
+        Indexes indexes = CompactIndexes.compact(map);
+        Map<String, Collection> index = indexes.getIndex("strings");
+
+        assertEquals(2, index.size());
+        assertEquals(new HashSet<>(Arrays.asList(entry1, entry2)), new HashSet<>(index.get("hello")));
+        assertEquals(2, index.get("hello").size());
+        assertEquals(Arrays.asList(entry2), index.get("world"));
+        assertTrue(index.containsKey("world"));
+        assertFalse(index.containsKey("unknown"));
+        assertNull(index.get("unknown"));
+        assertEquals(new HashSet<>(Arrays.asList("hello", "world")), index.keySet());
+        assertNull(indexes.getIndex("typeDeclarations"));
+        assertThrows(UnsupportedOperationException.class, () -> index.get("hello").add(entry1));
+    }
+
+    @Test
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testGetCachedCollection() {
+        Map<String, Collection> strings = new HashMap<>();
+        for (int i = 0; i <= CompactIndexes.CompactIndex.DECODED_CACHE_SIZE; i++) {
+            strings.put("key" + i, new ArrayList<>(Arrays.asList(i)));
+        }
+        Map<String, Map<String, Collection>> map = new HashMap<>();
+        map.put("strings", strings);
+
+        Map<String, Collection> index = CompactIndexes.compact(map).getIndex("strings");
+        Collection first = index.get("key0");
+
+        assertSame(first, index.get("key0"));
+        for (int i = 0; i <= CompactIndexes.CompactIndex.DECODED_CACHE_SIZE; i++) {
+            assertEquals(Arrays.asList(i), index.get("key" + i));
+        }
+        // Evicted by the key having the same slot
+        assertNotSame(first, index.get("key0"));
+        assertEquals(first, index.get("key0"));
+    }
+
+    /**
+     * Retained heap of 4 indexes of 80k keys and 400k postings over 20k entries, keys and entries excluded:
+     * about 38 MB as HashMap/ArrayList, about 6 MB compacted.
+     */
+    @Test
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testFootprint() {
+        Random random = new Random(1);
+        Object[] entries = new Object[20_000];
+        String[] keys = new String[80_000];
+
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new Object();
+        }
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ("org/jd/gui/Type" + i).intern();
+        }
+
+        long initialMemory = getUsedMemory();
+        Map<String, Map<String, Collection>> map = new HashMap<>();
+
+        for (int i = 0; i < 4; i++) {
+            Map<String, Collection> index = new HashMap<>();
+            for (String key : keys) {
+                List<Object> list = new ArrayList<>();
+                for (int j = 0; j < 5; j++) {
+                    list.add(entries[random.nextInt(entries.length)]);
+                }
+                index.put(key, list);
+            }
+            map.put("index" + i, index);
+        }
+
+        long mapMemory = getUsedMemory() - initialMemory;
+        Indexes indexes = CompactIndexes.compact(map);
+        map = null;
+        long compactMemory = getUsedMemory() - initialMemory;
+
+        assertEquals(keys.length, indexes.getIndex("index0").size());
+        assertTrue(compactMemory * 5 <= mapMemory, "HashMap/ArrayList: " + mapMemory + " bytes, compact: " + compactMemory + " bytes");
+    }
+
+    protected static long getUsedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import org.jd.gui.api.model.Container;
+import org.jd.gui.api.model.Indexes;
+import org.jd.gui.model.container.ContainerEntryComparator;
+import org.jd.gui.model.container.entry.path.SimpleEntryPath;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class IndexesCacheTest {
+
+    @TempDir
+    File directory;
+
+    @Test
+    @SuppressWarnings("rawtypes")
+    public void testSaveAndLoad() {
+        TestContainer container = new TestContainer();
+        TestEntry archive = new TestEntry(null, null, "/tmp/test.jar", false);
+        TestEntry root = new TestEntry(container, archive, "", true);
+        container.root = root;
+        archive.children = root.children;
+        TestEntry packageEntry = new TestEntry(container, root, "test", true);
+        TestEntry classEntry = new TestEntry(container, packageEntry, "test/Test.class", false);
+
+        // Nested archive
+        TestEntry nestedArchive = new TestEntry(container, root, "lib.jar", false);
+        TestContainer nestedContainer = new TestContainer();
+        TestEntry nestedRoot = new TestEntry(nestedContainer, nestedArchive, "", true);
+        nestedContainer.root = nestedRoot;
+        nestedArchive.children = nestedRoot.children;
+        TestEntry nestedClassEntry = new TestEntry(nestedContainer, nestedRoot, "Nested.class", false);
+
+        Map<String, Map<String, Collection>> map = new HashMap<>();
+        Map<String, Collection> typeDeclarations = new HashMap<>();
+        typeDeclarations.put("test/Test", new ArrayList<>(Arrays.asList(classEntry)));
+        typeDeclarations.put("Nested", new ArrayList<>(Arrays.asList(nestedClassEntry)));
+        map.put("typeDeclarations", typeDeclarations);
+        Map<String, Collection> subTypeNames = new HashMap<>();
+        subTypeNames.put("java/lang/Object", new ArrayList<>(Arrays.asList("test/Test", "Nested")));
+        map.put("subTypeNames", subTypeNames);
+
+        IndexesCache cache = new IndexesCache(directory);
+        File cacheFile = new File(directory, "test.idx");
+        cache.save(cacheFile, map, container);
+
+        Indexes indexes = cache.load(cacheFile, archive);
+
+        assertSame(classEntry, indexes.getIndex("typeDeclarations").get("test/Test").iterator().next());
+        assertSame(nestedClassEntry, indexes.getIndex("typeDeclarations").get("Nested").iterator().next());
+        assertEquals(Arrays.asList("test/Test", "Nested"), indexes.getIndex("subTypeNames").get("java/lang/Object"));
+        assertNull(indexes.getIndex("strings"));
+    }
+
+    protected static class TestContainer implements Container {
+        private Container.Entry root;
+
+        @Override
+        public String getType() { return "jar"; }
+        @Override
+        public Container.Entry getRoot() { return root; }
+    }
+
+    protected static class TestEntry implements Container.Entry {
+        private final Container container;
+        private final Container.Entry parent;
+        private final String path;
+        private final boolean directory;
+        private NavigableMap<Container.EntryPath, Container.Entry> children = new TreeMap<>(ContainerEntryComparator.COMPARATOR);
+
+        public TestEntry(Container container, TestEntry parent, String path, boolean directory) {
+            this.container = container;
+            this.parent = parent;
+            this.path = path;
+            this.directory = directory;
+            if (parent != null) {
+                parent.children.put(new SimpleEntryPath(path, directory), this);
+            }
+        }
+
+        @Override
+        public Container getContainer() { return container; }
+        @Override
+        public Container.Entry getParent() { return parent; }
+        @Override
+        public URI getUri() { return URI.create("file:/tmp/test.jar"); }
+        @Override
+        public long length() { return 0; }
+        @Override
+        public long compressedLength() { return 0; }
+        @Override
+        public InputStream getInputStream() { return null; }
+        @Override
+        public Map<Container.EntryPath, Container.Entry> getChildren() { return children; }
+        @Override
+        public boolean isDirectory() { return directory; }
+        @Override
+        public String getPath() { return path; }
+    }
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import org.jd.gui.util.index.IndexesCacheTest.TestContainer;
+import org.jd.gui.util.index.IndexesCacheTest.TestEntry;
+import org.jd.gui.api.model.Indexes;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IndexesUtilTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFindOuterEntry() {
+        TestContainer container = new TestContainer();
+        TestEntry root = new TestEntry(container, null, "", true);
+        TestEntry classesEntry = new TestEntry(container, root, "BOOT-INF/classes", true);
+        TestEntry packageEntry = new TestEntry(container, classesEntry, "BOOT-INF/classes/a", true);
+        TestEntry outerEntry = new TestEntry(container, packageEntry, "BOOT-INF/classes/a/B.class", false);
+        TestEntry innerEntry = new TestEntry(container, packageEntry, "BOOT-INF/classes/a/B$C.class", false);
+        TestEntry innerInnerEntry = new TestEntry(container, packageEntry, "BOOT-INF/classes/a/B$C$1.class", false);
+
+        MapIndexes indexes = new MapIndexes();
+        indexes.getIndex("typeDeclarations").get("a/B").add(outerEntry);
+        indexes.getIndex("typeDeclarations").get("a/B$C").add(innerEntry);
+        indexes.getIndex("typeDeclarations").get("a/B$C$1").add(innerInnerEntry);
+        indexes.getIndex("outerTypeNames").get("a/B$C").add("a/B");
+        indexes.getIndex("outerTypeNames").get("a/B$C$1").add("a/B$C");
+
+        assertSame(outerEntry, IndexesUtil.findOuterEntry(indexes, outerEntry));
+        assertSame(outerEntry, IndexesUtil.findOuterEntry(indexes, innerEntry));
+        assertSame(outerEntry, IndexesUtil.findOuterEntry(indexes, innerInnerEntry));
+        assertNull(IndexesUtil.findOuterEntry(indexes, packageEntry));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFindWithSymbolTable() {
+        TestContainer container = new TestContainer();
+        TestEntry root = new TestEntry(container, null, "", true);
+        TestEntry entry1 = new TestEntry(container, root, "a/B.class", false);
+        TestEntry entry2 = new TestEntry(container, root, "a/C.class", false);
+
+        MapIndexes registeredIndexes = new MapIndexes();
+        registeredIndexes.getIndex("typeDeclarations").get("a/B").add(entry1);
+        MapIndexes unregisteredIndexes = new MapIndexes();
+        unregisteredIndexes.getIndex("typeDeclarations").get("a/B").add(entry2);
+        unregisteredIndexes.getIndex("typeDeclarations").get("a/C").add(entry2);
+
+        SymbolTable symbolTable = SymbolTable.getInstance();
+        symbolTable.register(registeredIndexes);
+
+        try {
+            Collection<Future<Indexes>> collectionOfFutureIndexes = Arrays.asList(
+                CompletableFuture.completedFuture(registeredIndexes), CompletableFuture.completedFuture(unregisteredIndexes), new CompletableFuture<>());
+
+            List<TestEntry> entries = IndexesUtil.find(collectionOfFutureIndexes, "typeDeclarations", "a/B");
+            assertEquals(Arrays.asList(entry1, entry2), entries);
+            assertTrue(IndexesUtil.containsInternalTypeName(collectionOfFutureIndexes, "a/C"));
+
+            // Lookups are restricted to the given indexes
+            assertFalse(IndexesUtil.containsInternalTypeName(Collections.singletonList(CompletableFuture.completedFuture(registeredIndexes)), "a/C"));
+            Collection<Future<Indexes>> otherIndexes = Collections.singletonList(CompletableFuture.completedFuture(unregisteredIndexes));
+            assertEquals(Collections.singletonList(entry2), IndexesUtil.find(otherIndexes, "typeDeclarations", "a/B"));
+
+            symbolTable.retain(Collections.singletonList(unregisteredIndexes));
+            assertEquals(0, symbolTable.size());
+            assertEquals(Arrays.asList(entry1, entry2), IndexesUtil.find(collectionOfFutureIndexes, "typeDeclarations", "a/B"));
+        } finally {
+            symbolTable.unregister(registeredIndexes);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PatchedIndexesTest {
+
+    @Test
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testPatch() {
+        MapIndexes indexes = new MapIndexes();
+        MapIndexes fileIndexes1 = new MapIndexes();
+        fileIndexes1.getIndex("strings").get("hello").add("A.class");
+        fileIndexes1.getIndex("strings").get("world").add("A.class");
+        MapIndexes fileIndexes2 = new MapIndexes();
+        fileIndexes2.getIndex("strings").get("hello").add("B.class");
+        fileIndexes2.getIndex("methodDeclarations").get("run").add("B.class");
+        fileIndexes1.mergeInto(indexes);
+        fileIndexes2.mergeInto(indexes);
+
+        CompactIndexes compactIndexes = indexes.compact();
+        assertEquals(3, indexes.getKeyCount());
+
+        // A.class is modified : 'world' is replaced by 'java'
+        Map<String, Set<String>> changedKeys = new HashMap<>();
+        fileIndexes1.removeFrom(indexes);
+        fileIndexes1.addKeysTo(changedKeys);
+        MapIndexes newFileIndexes1 = new MapIndexes();
+        newFileIndexes1.getIndex("strings").get("hello").add("A.class");
+        newFileIndexes1.getIndex("strings").get("java").add("A.class");
+        newFileIndexes1.mergeInto(indexes);
+        newFileIndexes1.addKeysTo(changedKeys);
+
+        PatchedIndexes patchedIndexes = indexes.patch(compactIndexes, changedKeys);
+        Map<String, Collection> index = patchedIndexes.getIndex("strings");
+
+        assertEquals(2, index.size());
+        assertEquals(new HashSet<>(Arrays.asList("B.class", "A.class")), new HashSet<>(index.get("hello")));
+        assertEquals(Arrays.asList("A.class"), index.get("java"));
+        assertNull(index.get("world"));
+        assertFalse(index.containsKey("world"));
+        assertTrue(index.containsKey("java"));
+        assertEquals(new HashSet<>(Arrays.asList("hello", "java")), index.keySet());
+        assertEquals(new HashSet<>(Arrays.asList("hello", "java")), new HashSet<>(index.keySet()));
+        assertEquals(2, index.entrySet().size());
+        // Unchanged indexes are the compact ones
+        assertSame(compactIndexes.getIndex("methodDeclarations"), patchedIndexes.getIndex("methodDeclarations"));
+        assertNull(patchedIndexes.getIndex("typeDeclarations"));
+    }
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class SearchIndexTest {
+
+    @Test
+    public void testSearch() {
+        List<String> keys = Arrays.asList("java/util/HashMap", "java/util/Map", "java/util/Map$Entry", "org/jd/gui/util/index/SearchIndex");
+        SearchIndex searchIndex = SearchIndex.build(keys, SearchIndexTest::getSimpleTypeName);
+
+        assertEquals(new HashSet<>(Arrays.asList("java/util/Map")), search(searchIndex, "Map"));
+        assertEquals(new HashSet<>(Arrays.asList("java/util/HashMap", "java/util/Map")), search(searchIndex, "*Map"));
+        assertEquals(new HashSet<>(Arrays.asList("org/jd/gui/util/index/SearchIndex")), search(searchIndex, "*rch*dex"));
+        assertEquals(new HashSet<>(), search(searchIndex, "*List"));
+        assertNull(searchIndex.search("*ap", s -> true));
+    }
+
+    protected static HashSet<String> search(SearchIndex searchIndex, String pattern) {
+        Pattern p = Pattern.compile(pattern.replace("*", ".*").replace("?", ".") + ".*");
+        return new HashSet<>(searchIndex.search(pattern, term -> p.matcher(term).matches()));
+    }
+
+    protected static String getSimpleTypeName(String typeName) {
+        return typeName.substring(Math.max(typeName.lastIndexOf('/'), typeName.lastIndexOf('$')) + 1);
+    }
+}
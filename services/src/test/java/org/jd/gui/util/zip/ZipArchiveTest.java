@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (C) 2022 GPLv3
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package org.jd.gui.util.zip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ZipArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testReadFile() throws IOException {
+        Path path = directory.resolve("test.jar");
+
+        try (OutputStream outputStream = Files.newOutputStream(path)) {
+            outputStream.write(zip(new byte[0], "b/B.class", "a-b.txt", "a/A.class"));
+        }
+
+        try (ZipArchive archive = new ZipArchive(ZipArchive.FileSource.open(path))) {
+            assertEquals(3, archive.size());
+            // Sorted by name
+            assertEquals("a-b.txt", archive.getName(0));
+            assertEquals("a/A.class", archive.getName(1));
+            assertEquals("b/B.class", archive.getName(2));
+            assertEquals(1, archive.indexOf("a/".getBytes(StandardCharsets.UTF_8)));
+            assertEquals(2, archive.indexAfter("a/".getBytes(StandardCharsets.UTF_8)));
+            assertTrue(archive.startsWith(1, "a/".getBytes(StandardCharsets.UTF_8)));
+            assertNull(archive.getEntry("a"));
+            assertEquals("a/A.class", read(archive, archive.getEntry("a/A.class")));
+        }
+    }
+
+    @Test
+    public void testSortDuplicateNames() throws IOException {
+        String[] names = new String[100];
+
+        for (int i = 0; i < names.length; i++) {
+            names[i] = String.format("%02d", names.length - 1 - i);
+        }
+
+        byte[] bytes = zip(new byte[0], names);
+        // Rename the last header : "00" -> "50", the name of the entry 49
+        int namePosition = lastIndexOf(bytes, "00".getBytes(StandardCharsets.UTF_8));
+        bytes[namePosition] = '5';
+
+        try (ZipArchive archive = new ZipArchive(new ZipArchive.BufferSource(ByteBuffer.wrap(bytes)))) {
+            assertEquals(100, archive.size());
+            assertEquals("01", archive.getName(0));
+            assertEquals("50", archive.getName(49));
+            assertEquals("50", archive.getName(50));
+            // The first of the entries having the same name is found by name
+            assertEquals("50", read(archive, "50"));
+        }
+    }
+
+    @Test
+    public void testReadNestedArchives() throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        // Module header before the archive
+        byte[] jmod = zip(new byte[] { 'J', 'M', 1, 0 }, "classes/C.class");
+        byte[] jar = zip(new byte[0], "p/C.class");
+
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(byteArrayOutputStream)) {
+            ZipEntry zipEntry = new ZipEntry("lib/stored.jmod");
+            CRC32 crc = new CRC32();
+            crc.update(jmod);
+            zipEntry.setMethod(ZipEntry.STORED);
+            zipEntry.setSize(jmod.length);
+            zipEntry.setCrc(crc.getValue());
+            zipOutputStream.putNextEntry(zipEntry);
+            zipOutputStream.write(jmod);
+            zipOutputStream.putNextEntry(new ZipEntry("lib/deflated.jar"));
+            zipOutputStream.write(jar);
+        }
+
+        try (ZipArchive archive = new ZipArchive(new ZipArchive.BufferSource(ByteBuffer.wrap(byteArrayOutputStream.toByteArray())))) {
+            ZipArchive.Source stored = archive.getSource(archive.getEntry("lib/stored.jmod"));
+            assertTrue(stored instanceof ZipArchive.SliceSource);
+
+            try (ZipArchive storedArchive = new ZipArchive(stored)) {
+                assertEquals("classes/C.class", read(storedArchive, "classes/C.class"));
+            }
+
+            ZipArchive.Source deflated = archive.getSource(archive.getEntry("lib/deflated.jar"));
+            assertTrue(deflated instanceof ZipArchive.BufferSource);
+
+            try (ZipArchive deflatedArchive = new ZipArchive(deflated)) {
+                assertEquals("p/C.class", read(deflatedArchive, "p/C.class"));
+            }
+        }
+    }
+
+    @Test
+    public void testReadWrappedEntryCount() throws IOException {
+        int count = ZipArchive.ZIP64_MAGICCOUNT + 2;
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(byteArrayOutputStream)) {
+            for (int i = 0; i < count; i++) {
+                zipOutputStream.putNextEntry(new ZipEntry(String.format("e%05d", i)));
+            }
+        }
+
+        byte[] bytes = byteArrayOutputStream.toByteArray();
+        int endPosition = bytes.length - ZipArchive.ENDHDR;
+        int zip64EndPosition = endPosition - ZipArchive.ZIP64_LOCHDR - ZipArchive.ZIP64_ENDHDR;
+        ByteBuffer buffer = ByteBuffer.allocate(zip64EndPosition + ZipArchive.ENDHDR).order(ByteOrder.LITTLE_ENDIAN);
+
+        assertEquals(ZipArchive.ZIP64_ENDSIG, ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getInt(zip64EndPosition));
+
+        // Archive written without ZIP64 records: the 16 bits counts of the end record have wrapped
+        buffer.put(bytes, 0, zip64EndPosition).put(bytes, endPosition, ZipArchive.ENDHDR).flip();
+        buffer.putShort(zip64EndPosition + 8, (short)count);
+        buffer.putShort(zip64EndPosition + 10, (short)count);
+
+        try (ZipArchive archive = new ZipArchive(new ZipArchive.BufferSource(buffer))) {
+            assertEquals(count, archive.size());
+            assertEquals("e00000", archive.getName(0));
+            assertEquals("e65536", archive.getName(count - 1));
+        }
+    }
+
+    protected static byte[] zip(byte[] header, String... names) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        byteArrayOutputStream.write(header);
+
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(byteArrayOutputStream)) {
+            for (String name : names) {
+                zipOutputStream.putNextEntry(new ZipEntry(name));
+                zipOutputStream.write(name.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    protected static int lastIndexOf(byte[] bytes, byte[] pattern) {
+        for (int i = bytes.length - pattern.length; i >= 0; i--) {
+            if (Arrays.equals(bytes, i, i + pattern.length, pattern, 0, pattern.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    protected static String read(ZipArchive archive, String name) throws IOException {
+        return read(archive, archive.getEntry(name));
+    }
+
+    protected static String read(ZipArchive archive, ZipArchive.Entry entry) throws IOException {
+        try (InputStream inputStream = archive.getInputStream(entry)) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}